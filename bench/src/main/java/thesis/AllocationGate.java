@@ -0,0 +1,51 @@
+package thesis;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *
+ * Runs StepAllocationBenchmark with JMH's GC profiler and fails (exit status 1) if any of its benchmarks allocates
+ * more than MAX_BYTES_PER_OP, going by the profiler's allocation per op (gc.alloc.rate.norm). The bench module runs
+ * it in the verify phase, so mvn verify fails if stepping or targeting starts allocating again; skip it with
+ * -DallocationGate.skip=true.
+ *
+ */
+public class AllocationGate {
+
+	private final static double MAX_BYTES_PER_OP = 0.5; //Anything above this is a regression
+	private final static String ALLOCATION = "gc.alloc.rate.norm"; //Name of the GC profiler's allocation per op
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(StepAllocationBenchmark.class.getName() + "\\.")
+				.addProfiler(GCProfiler.class)
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+
+		boolean failed = results.isEmpty();
+		System.out.println();
+		for (RunResult result : results){
+			String name = result.getParams().getBenchmark();
+			Result allocation = result.getSecondaryResults().get(ALLOCATION);
+			if (allocation == null){
+				System.out.println(name + ": the GC profiler reported no " + ALLOCATION);
+				failed = true;
+				continue;
+			}
+			boolean regressed = allocation.getScore() > MAX_BYTES_PER_OP;
+			System.out.printf("%-60s %10.3f B/op%s%n", name, allocation.getScore(), regressed ? "  FAIL" : "");
+			failed |= regressed;
+		}
+		System.out.println(failed ? "Allocation gate failed: at most " + MAX_BYTES_PER_OP + " B/op is allowed" : "Allocation gate passed");
+		System.exit(failed ? 1 : 0);
+	}
+
+}
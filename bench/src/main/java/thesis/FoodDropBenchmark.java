@@ -0,0 +1,40 @@
+package thesis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ *
+ * World.foodDrop(); one op is one drop. The food dropped is taken back after each op, so every drop lands in a world
+ * with the scenario's food.
+ *
+ */
+public class FoodDropBenchmark extends ScenarioBenchmark {
+
+	private final int[] liveBefore = new int[2]; //Live food of each type before the drop
+
+	@Setup(Level.Invocation)
+	public void countFood(){
+		liveBefore[Food.DISTANCE] = world.getFood().getLiveCount(Food.DISTANCE);
+		liveBefore[Food.ENERGY] = world.getFood().getLiveCount(Food.ENERGY);
+	}
+
+	@Benchmark
+	public void foodDrop(){
+		world.foodDrop();
+	}
+
+	@TearDown(Level.Invocation)
+	public void removeDroppedFood(){
+		//dropped food is at the end of the live lists, so taking it back from there leaves the rest as it was
+		FoodStore food = world.getFood();
+		for (int type = Food.DISTANCE; type <= Food.ENERGY; type++){
+			while (food.getLiveCount(type) > liveBefore[type]){
+				world.removeFood(food.getLiveSlot(type, food.getLiveCount(type) - 1));
+			}
+		}
+	}
+
+}
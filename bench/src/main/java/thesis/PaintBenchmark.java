@@ -0,0 +1,57 @@
+package thesis;
+
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ *
+ * Field.update(); one op is one frame, drawn into an image. The world is ticked between frames, as the simulator
+ * does while running at 1x, and its food and energy put back. Field needs a Simulator, which needs a display, so
+ * this benchmark fails without one; the others do not.
+ *
+ */
+public class PaintBenchmark extends ScenarioBenchmark {
+
+	private Field field;
+	private BufferedImage screen; //What the field draws on
+	private Graphics graphics; //Graphics of the screen
+
+	@Override
+	void prepare(){
+		Simulator simulator = new Simulator();
+		int width = world.getConfig().getWidth(), height = world.getConfig().getHeight();
+		field = new Field(simulator, world){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Image createImage(int w, int h){
+				return new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			}
+		};
+		field.setSize(width, height);
+		screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		graphics = screen.getGraphics();
+	}
+
+	@Benchmark
+	public void update(){
+		field.update(graphics);
+	}
+
+	@TearDown(Level.Invocation)
+	public void tick(){
+		world.tick();
+		definition.refresh(world);
+	}
+
+	@TearDown(Level.Trial)
+	public void disposeGraphics(){
+		graphics.dispose();
+	}
+
+}
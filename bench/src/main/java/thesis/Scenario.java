@@ -0,0 +1,151 @@
+package thesis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * A canonical world to benchmark on: a fixed seed, number of vehicles (half of each type), pairs of food and
+ * terrain circles, all at the default settings. The standard scenarios are sparse food, dense food and many
+ * terrain circles, each with 10, 1000 or 100000 vehicles, so that a change can be measured on the same worlds
+ * before and after.
+ *
+ * Benchmarks change the world they run on; refresh() puts back the food that was eaten and the energy that was
+ * spent, so a benchmark can run on the same world for as long as it likes without its vehicles dying off.
+ * ScenarioBenchmark makes a JMH fixture of every standard scenario.
+ *
+ */
+public class Scenario {
+
+	/**
+	 * Vehicle counts of the standard scenarios
+	 */
+	public final static int[] VEHICLE_COUNTS = {10, 1000, 100000};
+
+	private final static long SEED = 1; //Seed of every standard scenario
+
+	private final String name; //e.g. "dense-food/1000"
+	private final int vehicles; //Number of vehicles, half of each type
+	private final int food; //Number of pairs of food kept in the world
+	private final int terrains; //Number of terrain circles
+	private final long seed; //Seed of the world
+
+	/**
+	 * Constructor
+	 * @param name	Name to report results under
+	 * @param vehicles	Number of vehicles, half of each type
+	 * @param food	Number of pairs of food (one of each type) kept in the world
+	 * @param terrains	Number of terrain circles, of the three types in turn and random radius
+	 * @param seed	Seed of the world
+	 */
+	public Scenario(String name, int vehicles, int food, int terrains, long seed){
+		this.name = name;
+		this.vehicles = vehicles;
+		this.food = food;
+		this.terrains = terrains;
+		this.seed = seed;
+	}
+
+	/**
+	 * @param vehicles	Number of vehicles
+	 * @return	A few pieces of food spread over the whole world, so vehicles look far for it
+	 */
+	public static Scenario sparseFood(int vehicles){
+		return new Scenario("sparse-food/" + vehicles, vehicles, 10, 5, SEED);
+	}
+
+	/**
+	 * @param vehicles	Number of vehicles
+	 * @return	Food everywhere, so there is always some close by
+	 */
+	public static Scenario denseFood(int vehicles){
+		return new Scenario("dense-food/" + vehicles, vehicles, 2000, 5, SEED);
+	}
+
+	/**
+	 * @param vehicles	Number of vehicles
+	 * @return	The world covered in overlapping terrain circles
+	 */
+	public static Scenario manyTerrains(int vehicles){
+		return new Scenario("many-terrains/" + vehicles, vehicles, 300, 200, SEED);
+	}
+
+	/**
+	 * @param kind	"sparse-food", "dense-food" or "many-terrains"
+	 * @param vehicles	Number of vehicles
+	 * @return	The standard scenario of that kind, e.g. for a benchmark parameter
+	 */
+	public static Scenario named(String kind, int vehicles){
+		if (kind.equals("sparse-food")) return sparseFood(vehicles);
+		if (kind.equals("dense-food")) return denseFood(vehicles);
+		if (kind.equals("many-terrains")) return manyTerrains(vehicles);
+		throw new IllegalArgumentException("Unknown scenario " + kind);
+	}
+
+	/**
+	 * @param vehicleCounts	Vehicle counts to include, e.g. VEHICLE_COUNTS
+	 * @return	Every standard scenario with those vehicle counts
+	 */
+	public static List<Scenario> standard(int[] vehicleCounts){
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		for (int i = 0; i < vehicleCounts.length; i++){
+			scenarios.add(sparseFood(vehicleCounts[i]));
+			scenarios.add(denseFood(vehicleCounts[i]));
+			scenarios.add(manyTerrains(vehicleCounts[i]));
+		}
+		return scenarios;
+	}
+
+	/**
+	 * @return	A new world set up as the scenario says; the same one each time
+	 */
+	public World create(){
+		World world = new World(seed);
+		world.getConfig().setAddNewVehicles(false);
+		for (int i = 0; i < terrains; i++){
+			world.addTerrain(i % 3, 0);
+		}
+		for (int i = 0; i < food; i++){
+			world.addFood();
+		}
+		for (int i = 0; i < vehicles; i++){
+			world.generateNewVehicle(i % 2, world.getConfig().getVehicleSize());
+		}
+		return world;
+	}
+
+	/**
+	 * Tops the world's food back up to what the scenario started with, and every living vehicle's energy back up
+	 * to the initial energy
+	 * @param world	A world made by create()
+	 */
+	public void refresh(World world){
+		FoodStore store = world.getFood();
+		while (Math.min(store.getLiveCount(Food.DISTANCE), store.getLiveCount(Food.ENERGY)) < food){
+			world.addFood();
+		}
+		for (int i = 0; i < world.getVehicleCount(); i++){
+			Vehicle vehicle = world.getVehicle(i);
+			if (!vehicle.isDeceased()){
+				vehicle.setEnergy(world.getConfig().getInitialEnergy());
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getVehicles() {
+		return vehicles;
+	}
+
+	public int getFood() {
+		return food;
+	}
+
+	public int getTerrains() {
+		return terrains;
+	}
+
+}
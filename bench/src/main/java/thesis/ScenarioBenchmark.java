@@ -0,0 +1,58 @@
+package thesis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * JMH fixture of the standard scenarios (see Scenario): every benchmark that extends it runs on a new world of each
+ * of them, sparse food, dense food and many terrain circles, with 10, 1000 and 100000 vehicles. Unless a benchmark
+ * says otherwise, one op is one pass over the vehicles of the world, so ns/op grows with the number of vehicles.
+ * Benchmarks that change the world put it back between ops, outside the measured time.
+ *
+ * Run with java -jar bench/target/benchmarks.jar [regexp]; add -prof gc for the bytes allocated per op
+ * (gc.alloc.rate.norm), and e.g. -p vehicles=10,1000 to leave out the largest worlds.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class ScenarioBenchmark {
+
+	@Param({"sparse-food", "dense-food", "many-terrains"})
+	public String scenario; //Kind of standard scenario
+
+	@Param({"10", "1000", "100000"})
+	public int vehicles; //Number of vehicles in it
+
+	Scenario definition; //The scenario
+	World world; //The world the benchmark runs on
+
+	@Setup(Level.Trial)
+	public void createWorld(){
+		definition = Scenario.named(scenario, vehicles);
+		world = definition.create();
+		prepare();
+	}
+
+	/**
+	 * Sets up whatever else the benchmark needs, once the world has been made
+	 */
+	void prepare(){
+	}
+
+}
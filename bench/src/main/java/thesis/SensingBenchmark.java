@@ -0,0 +1,25 @@
+package thesis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ *
+ * Vehicle.getTerrainSensorReading() at both sensors of every vehicle. The readings are summed and returned, so JMH
+ * keeps them from being optimized away.
+ *
+ */
+public class SensingBenchmark extends ScenarioBenchmark {
+
+	@Benchmark
+	public double getTerrainSensorReading(){
+		VehicleStore store = world.getVehicles();
+		double sum = 0;
+		for (int i = 0; i < world.getVehicleCount(); i++){
+			Vehicle vehicle = world.getVehicle(i);
+			sum += vehicle.getTerrainSensorReading(store.getX(i), store.getY(i));
+			sum += vehicle.getTerrainSensorReading(store.getRightSensorX(i), store.getRightSensorY(i));
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,95 @@
+package thesis;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *
+ * Time and heap allocation per call of Vehicle.step() and Vehicle.setTargetFood() for each type of vehicle, in a
+ * warmed-up world of 200 vehicles, 500 pairs of food and 20 terrain circles. One op is one call, on the vehicles in
+ * turn. The food eaten and energy spent are put back before each iteration (see Scenario.refresh()).
+ *
+ * AllocationGate runs it with the GC profiler on mvn verify and fails the build if any call allocates; to run it by
+ * hand: java -jar bench/target/benchmarks.jar StepAllocationBenchmark -prof gc
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepAllocationBenchmark {
+
+	private final static int DISTANCE = 0; //Constant for distance type
+	private final static int ENERGY = 1; //Constant for energy type
+	private final static int WARMUP_TICKS = 20000; //Ticks run first, so every buffer that grows with use has grown
+
+	private final Scenario scenario = new Scenario("allocation", 200, 500, 20, 1);
+	private World world;
+	private int next = 0; //Index of the vehicle the next op is on
+
+	@Setup(Level.Trial)
+	public void createWorld(){
+		world = scenario.create();
+		world.run(WARMUP_TICKS);
+	}
+
+	@Setup(Level.Iteration)
+	public void refresh(){
+		scenario.refresh(world);
+	}
+
+	@Benchmark
+	public void step(){
+		for (int k = 0; k < world.getVehicleCount(); k++){
+			Vehicle vehicle = nextVehicle();
+			if (!vehicle.isDeceased()){
+				vehicle.step();
+				return;
+			}
+		}
+		throw new IllegalStateException("Every vehicle has died");
+	}
+
+	@Benchmark
+	public void setTargetFoodDistance(){
+		retarget(DISTANCE);
+	}
+
+	@Benchmark
+	public void setTargetFoodEnergy(){
+		retarget(ENERGY);
+	}
+
+	/**
+	 * Picks a target for the next vehicle of a type
+	 */
+	private void retarget(int type){
+		for (int k = 0; k < world.getVehicleCount(); k++){
+			Vehicle vehicle = nextVehicle();
+			if (vehicle.getVehicleType() == type){
+				vehicle.setTargetFood();
+				return;
+			}
+		}
+		throw new IllegalStateException("No vehicle of type " + type);
+	}
+
+	private Vehicle nextVehicle(){
+		if (next >= world.getVehicleCount()) next = 0;
+		return world.getVehicle(next++);
+	}
+
+}
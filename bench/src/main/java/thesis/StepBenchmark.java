@@ -0,0 +1,30 @@
+package thesis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ *
+ * Vehicle.step() for every living vehicle. The food eaten and energy spent are put back before each pass (see
+ * Scenario.refresh()), so every pass steps the same number of vehicles.
+ *
+ */
+public class StepBenchmark extends ScenarioBenchmark {
+
+	@Setup(Level.Invocation)
+	public void refresh(){
+		definition.refresh(world);
+	}
+
+	@Benchmark
+	public void step(){
+		for (int i = 0; i < world.getVehicleCount(); i++){
+			Vehicle vehicle = world.getVehicle(i);
+			if (!vehicle.isDeceased()){
+				vehicle.step();
+			}
+		}
+	}
+
+}
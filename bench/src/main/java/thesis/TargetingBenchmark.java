@@ -0,0 +1,35 @@
+package thesis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ *
+ * Vehicle.setTargetFood() for every vehicle of one type. Picking a target changes nothing the next pass depends on,
+ * so the world is not put back between passes.
+ *
+ */
+public class TargetingBenchmark extends ScenarioBenchmark {
+
+	private final static int DISTANCE = 0; //Constant for distance type
+	private final static int ENERGY = 1; //Constant for energy type
+
+	@Benchmark
+	public void setTargetFoodDistance(){
+		retarget(DISTANCE);
+	}
+
+	@Benchmark
+	public void setTargetFoodEnergy(){
+		retarget(ENERGY);
+	}
+
+	private void retarget(int type){
+		for (int i = 0; i < world.getVehicleCount(); i++){
+			Vehicle vehicle = world.getVehicle(i);
+			if (vehicle.getVehicleType() == type){
+				vehicle.setTargetFood();
+			}
+		}
+	}
+
+}
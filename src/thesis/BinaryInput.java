@@ -0,0 +1,141 @@
+package thesis;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ *
+ * Reads what BinaryOutput wrote from a buffer, typically a file mapped into memory. Arrays are copied out of the
+ * buffer in bulk. Reading past the end of the buffer, or a negative length, is reported as an IOException, so a
+ * truncated or corrupt file fails cleanly.
+ *
+ */
+public class BinaryInput {
+
+	private final ByteBuffer buffer; //The bytes, read from the current position on
+
+	/**
+	 * Constructor
+	 * @param buffer	Buffer to read from, from its current position; its byte order is set to little-endian
+	 */
+	public BinaryInput(ByteBuffer buffer){
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public int readByte() throws IOException {
+		ensure(1);
+		return buffer.get();
+	}
+
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	public int readInt() throws IOException {
+		ensure(4);
+		return buffer.getInt();
+	}
+
+	public long readLong() throws IOException {
+		ensure(8);
+		return buffer.getLong();
+	}
+
+	public float readFloat() throws IOException {
+		ensure(4);
+		return buffer.getFloat();
+	}
+
+	public double readDouble() throws IOException {
+		ensure(8);
+		return buffer.getDouble();
+	}
+
+	/**
+	 * Reads a count or length written with writeInt()
+	 * @param max	Largest sensible value
+	 * @return	The value, 0 to max
+	 */
+	public int readLength(int max) throws IOException {
+		int n = readInt();
+		if (n < 0 || n > max) throw new IOException("Bad length " + n + " at byte " + (buffer.position() - 4));
+		return n;
+	}
+
+	/**
+	 * Reads n values into the start of an array
+	 */
+	public void readDoubles(double[] values, int n) throws IOException {
+		ensure(8L*n);
+		buffer.asDoubleBuffer().get(values, 0, n);
+		buffer.position(buffer.position() + 8*n);
+	}
+
+	/**
+	 * Reads n values into the start of an array
+	 */
+	public void readFloats(float[] values, int n) throws IOException {
+		ensure(4L*n);
+		buffer.asFloatBuffer().get(values, 0, n);
+		buffer.position(buffer.position() + 4*n);
+	}
+
+	/**
+	 * Reads n values into the start of an array
+	 */
+	public void readInts(int[] values, int n) throws IOException {
+		ensure(4L*n);
+		buffer.asIntBuffer().get(values, 0, n);
+		buffer.position(buffer.position() + 4*n);
+	}
+
+	/**
+	 * Reads n values into the start of an array
+	 */
+	public void readLongs(long[] values, int n) throws IOException {
+		ensure(8L*n);
+		buffer.asLongBuffer().get(values, 0, n);
+		buffer.position(buffer.position() + 8*n);
+	}
+
+	/**
+	 * Reads n values into the start of an array
+	 */
+	public void readBytes(byte[] values, int n) throws IOException {
+		ensure(n);
+		buffer.get(values, 0, n);
+	}
+
+	/**
+	 * Reads n values written with writeBooleans() into the start of an array
+	 */
+	public void readBooleans(boolean[] values, int n) throws IOException {
+		ensure(n);
+		for (int i = 0; i < n; i++){
+			values[i] = buffer.get() != 0;
+		}
+	}
+
+	private void ensure(long bytes) throws IOException {
+		if (bytes > buffer.remaining()){
+			throw new IOException("Unexpected end of data at byte " + buffer.position(), new BufferUnderflowException());
+		}
+	}
+
+	/**
+	 * @return	Number of bytes read
+	 */
+	public int getPosition(){
+		return buffer.position();
+	}
+
+	/**
+	 * @return	Number of bytes left to read
+	 */
+	public int getRemaining(){
+		return buffer.remaining();
+	}
+
+}
@@ -0,0 +1,177 @@
+package thesis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ *
+ * Writes numbers and arrays of numbers to a channel through a fixed-size buffer, so that a file of any size is
+ * streamed out without being held in memory. Arrays are copied into the buffer in bulk. Numbers are little-endian,
+ * the order BinaryInput reads them in.
+ *
+ */
+public class BinaryOutput implements Closeable {
+
+	private final WritableByteChannel channel; //Where the bytes go
+	private final ByteBuffer buffer; //Bytes not yet written to the channel
+	private long written = 0; //Bytes written to the channel so far
+
+	private final static int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Constructor
+	 * @param channel	Channel to write to; closed by close()
+	 */
+	public BinaryOutput(WritableByteChannel channel){
+		this.channel = channel;
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public void writeByte(int value) throws IOException {
+		ensure(1);
+		buffer.put((byte) value);
+	}
+
+	public void writeBoolean(boolean value) throws IOException {
+		writeByte(value ? 1 : 0);
+	}
+
+	public void writeInt(int value) throws IOException {
+		ensure(4);
+		buffer.putInt(value);
+	}
+
+	public void writeLong(long value) throws IOException {
+		ensure(8);
+		buffer.putLong(value);
+	}
+
+	public void writeFloat(float value) throws IOException {
+		ensure(4);
+		buffer.putFloat(value);
+	}
+
+	public void writeDouble(double value) throws IOException {
+		ensure(8);
+		buffer.putDouble(value);
+	}
+
+	/**
+	 * Writes the first n values of an array
+	 */
+	public void writeDoubles(double[] values, int n) throws IOException {
+		int done = 0;
+		while (done < n){
+			ensure(8);
+			int k = Math.min(n - done, buffer.remaining() / 8);
+			buffer.asDoubleBuffer().put(values, done, k);
+			buffer.position(buffer.position() + 8*k);
+			done += k;
+		}
+	}
+
+	/**
+	 * Writes the first n values of an array
+	 */
+	public void writeFloats(float[] values, int n) throws IOException {
+		int done = 0;
+		while (done < n){
+			ensure(4);
+			int k = Math.min(n - done, buffer.remaining() / 4);
+			buffer.asFloatBuffer().put(values, done, k);
+			buffer.position(buffer.position() + 4*k);
+			done += k;
+		}
+	}
+
+	/**
+	 * Writes the first n values of an array
+	 */
+	public void writeInts(int[] values, int n) throws IOException {
+		int done = 0;
+		while (done < n){
+			ensure(4);
+			int k = Math.min(n - done, buffer.remaining() / 4);
+			buffer.asIntBuffer().put(values, done, k);
+			buffer.position(buffer.position() + 4*k);
+			done += k;
+		}
+	}
+
+	/**
+	 * Writes the first n values of an array
+	 */
+	public void writeLongs(long[] values, int n) throws IOException {
+		int done = 0;
+		while (done < n){
+			ensure(8);
+			int k = Math.min(n - done, buffer.remaining() / 8);
+			buffer.asLongBuffer().put(values, done, k);
+			buffer.position(buffer.position() + 8*k);
+			done += k;
+		}
+	}
+
+	/**
+	 * Writes the first n values of an array
+	 */
+	public void writeBytes(byte[] values, int n) throws IOException {
+		int done = 0;
+		while (done < n){
+			ensure(1);
+			int k = Math.min(n - done, buffer.remaining());
+			buffer.put(values, done, k);
+			done += k;
+		}
+	}
+
+	/**
+	 * Writes the first n values of an array, one byte each
+	 */
+	public void writeBooleans(boolean[] values, int n) throws IOException {
+		for (int i = 0; i < n; i++){
+			writeByte(values[i] ? 1 : 0);
+		}
+	}
+
+	/**
+	 * Makes room in the buffer for a number of bytes, writing out what is in it if need be
+	 */
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) flush();
+	}
+
+	/**
+	 * Writes everything buffered to the channel
+	 */
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()){
+			written += channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * @return	Number of bytes written, including those still buffered
+	 */
+	public long getPosition(){
+		return written + buffer.position();
+	}
+
+	/**
+	 * Writes everything buffered and closes the channel
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+}
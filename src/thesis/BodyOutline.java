@@ -0,0 +1,160 @@
+package thesis;
+
+/**
+ *
+ * The outline a vehicle body is tested against rectangles with: its four corners truncated to whole pixels, tested
+ * the way java.awt.Polygon.intersects() tests them. The body used to be a Polygon, so eating and the bounds check
+ * give the same answers as before without building one per step. Each thread of the advance phase reuses one
+ * outline (see Vehicle.bodyIntersects()).
+ *
+ */
+class BodyOutline {
+
+	private final int[] x = new int[4], y = new int[4]; //Corners, truncated (left sensor, right sensor, right wheel, left wheel)
+	private final double[] ranges = new double[8]; //Spans of the rectangle's height that edges left of it cross, as (start, end) pairs
+	private int limit = 0; //Number of entries of ranges in use
+
+	/**
+	 * Sets the corners, truncating them as Polygon's int coordinates did
+	 */
+	void set(double x0, double y0, double x1, double y1, double x2, double y2, double x3, double y3){
+		x[0] = (int) x0;
+		y[0] = (int) y0;
+		x[1] = (int) x1;
+		y[1] = (int) y1;
+		x[2] = (int) x2;
+		y[2] = (int) y2;
+		x[3] = (int) x3;
+		y[3] = (int) y3;
+	}
+
+	/**
+	 * Same test as Polygon.intersects(rx, ry, rw, rh): the bounding boxes must overlap, and then the outline and the
+	 * rectangle overlap if an edge crosses the rectangle, or if the edges to the left of it cross its height an odd
+	 * number of times somewhere
+	 */
+	boolean intersects(double rx, double ry, double rw, double rh){
+		int minX = Math.min(Math.min(x[0], x[1]), Math.min(x[2], x[3]));
+		int maxX = Math.max(Math.max(x[0], x[1]), Math.max(x[2], x[3]));
+		int minY = Math.min(Math.min(y[0], y[1]), Math.min(y[2], y[3]));
+		int maxY = Math.max(Math.max(y[0], y[1]), Math.max(y[2], y[3]));
+		if (maxX - minX <= 0 || maxY - minY <= 0 || rw <= 0 || rh <= 0) return false;
+		if (!(rx + rw > minX && ry + rh > minY && rx < maxX && ry < maxY)) return false;
+
+		limit = 0;
+		int lastX = x[3], lastY = y[3];
+		for (int k = 0; k < 4; k++){
+			boolean crosses = lastY <= y[k] ? crosses(lastX, lastY, x[k], y[k], rx, ry, rx + rw, ry + rh)
+					: crosses(x[k], y[k], lastX, lastY, rx, ry, rx + rw, ry + rh);
+			if (crosses) return true;
+			lastX = x[k];
+			lastY = y[k];
+		}
+		return limit > 0;
+	}
+
+	/**
+	 * Crossings.accumulateLine() for an edge from (x0, y0) down to (x1, y1)
+	 * @return	Whether the edge crosses the rectangle; if it passes left of it, the span of the rectangle's height it covers is recorded instead
+	 */
+	private boolean crosses(double x0, double y0, double x1, double y1, double xlo, double ylo, double xhi, double yhi){
+		if (yhi <= y0 || ylo >= y1) return false;
+		if (x0 >= xhi && x1 >= xhi) return false;
+		if (y0 == y1) return x0 >= xlo || x1 >= xlo;
+		double xstart, ystart, xend, yend;
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		if (y0 < ylo){
+			xstart = x0 + (ylo - y0)*dx/dy;
+			ystart = ylo;
+		}
+		else{
+			xstart = x0;
+			ystart = y0;
+		}
+		if (yhi < y1){
+			xend = x0 + (yhi - y0)*dx/dy;
+			yend = yhi;
+		}
+		else{
+			xend = x1;
+			yend = y1;
+		}
+		if (xstart >= xhi && xend >= xhi) return false;
+		if (xstart > xlo || xend > xlo) return true;
+		record(ystart, yend);
+		return false;
+	}
+
+	/**
+	 * Crossings.EvenOdd.record(): toggles the span [ystart, yend) in the recorded spans, so a span stays recorded
+	 * only where an odd number of edges cross it
+	 */
+	private void record(double ystart, double yend){
+		if (ystart >= yend) return;
+		int from = 0;
+		//skip the spans entirely above this one
+		while (from < limit && ystart > ranges[from+1]){
+			from += 2;
+		}
+		int to = from;
+		while (from < limit){
+			double yrlo = ranges[from++];
+			double yrhi = ranges[from++];
+			if (yend < yrlo){
+				//insert this span before the next one
+				ranges[to++] = ystart;
+				ranges[to++] = yend;
+				ystart = yrlo;
+				yend = yrhi;
+				continue;
+			}
+			//the spans overlap: keep the parts covered by only one of them
+			double yll, ylh, yhl, yhh;
+			if (ystart < yrlo){
+				yll = ystart;
+				ylh = yrlo;
+			}
+			else{
+				yll = yrlo;
+				ylh = ystart;
+			}
+			if (yend < yrhi){
+				yhl = yend;
+				yhh = yrhi;
+			}
+			else{
+				yhl = yrhi;
+				yhh = yend;
+			}
+			if (ylh == yhl){
+				ystart = yll;
+				yend = yhh;
+			}
+			else{
+				if (ylh > yhl){
+					ystart = yhl;
+					yhl = ylh;
+					ylh = ystart;
+				}
+				if (yll != ylh){
+					ranges[to++] = yll;
+					ranges[to++] = ylh;
+				}
+				ystart = yhl;
+				yend = yhh;
+			}
+			if (ystart >= yend) break;
+		}
+		if (to < from && from < limit){
+			System.arraycopy(ranges, from, ranges, to, limit - from);
+		}
+		to += limit - from;
+		if (ystart < yend){
+			ranges[to++] = ystart;
+			ranges[to++] = yend;
+		}
+		limit = to;
+	}
+
+}
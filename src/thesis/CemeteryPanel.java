@@ -0,0 +1,87 @@
+package thesis;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Image;
+
+import javax.swing.ImageIcon;
+import javax.swing.JPanel;
+
+/**
+ *
+ * The cemetery of one type of vehicle: its icon, how many have died, and a histogram of when they died (see
+ * DeathHistogram), drawn straight from the world each time the panel is painted. Drawing costs the same whether
+ * ten vehicles have died or ten thousand.
+ *
+ */
+public class CemeteryPanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Simulator simulator; //The simulator holding this panel
+	private final World world; //The world whose deaths are shown
+	private final int vehicleType; //0-distance; 1-energy
+	private final String title; //Shown before the icon
+	private final ImageIcon icon; //The vehicle image, scaled once; null if it could not be found
+
+	private final static int ICON_WIDTH = 20, ICON_HEIGHT = 25; //Size of the icon
+	private final static String WIDEST_COUNT = "x 000000"; //Room kept for the count, so the histogram does not move as it grows
+
+	/**
+	 * Constructor
+	 * @param sim	The simulator holding this panel
+	 * @param world	The world whose deaths to show
+	 * @param vehicleType	0-distance; 1-energy
+	 * @param title	Shown before the icon, e.g. "Distance:"
+	 * @param pathname	Resource name of the vehicle image
+	 */
+	public CemeteryPanel(Simulator sim, World world, int vehicleType, String title, String pathname){
+		this.simulator = sim;
+		this.world = world;
+		this.vehicleType = vehicleType;
+		this.title = title;
+		java.net.URL imgURL = Thread.currentThread().getContextClassLoader().getResource(pathname);
+		icon = imgURL == null ? null : new ImageIcon(new ImageIcon(imgURL).getImage().getScaledInstance(ICON_WIDTH, ICON_HEIGHT, Image.SCALE_DEFAULT));
+		setPreferredSize(new Dimension(Simulator.WINDOW_WIDTH, 30));
+		setBackground(Color.white);
+	}
+
+	@Override
+	protected void paintComponent(Graphics g){
+		super.paintComponent(g);
+		World shown = simulator.isRunning() ? simulator.getSnapshots().getLatest() : world;
+		DeathHistogram deaths = shown.getDeaths();
+		FontMetrics metrics = g.getFontMetrics();
+		int baseline = (getHeight() + metrics.getAscent() - metrics.getDescent()) / 2;
+
+		//title, icon and count
+		g.setColor(Color.black);
+		g.drawString(title, 5, baseline);
+		int x = 5 + metrics.stringWidth(title) + 5;
+		if (icon != null){
+			icon.paintIcon(this, g, x, (getHeight() - ICON_HEIGHT) / 2);
+		}
+		x += ICON_WIDTH + 5;
+		g.drawString("x " + deaths.getTotal(vehicleType), x, baseline);
+		x += metrics.stringWidth(WIDEST_COUNT) + 10;
+
+		//histogram of deaths over time, scaled to the fullest bin
+		long max = 0;
+		for (int b = 0; b < DeathHistogram.BINS; b++){
+			max = Math.max(max, deaths.getCount(vehicleType, b));
+		}
+		if (max == 0) return;
+		int barWidth = Math.max(1, (getWidth() - x - 5) / DeathHistogram.BINS);
+		int maxHeight = getHeight() - 4;
+		g.setColor(Vehicle.VEHICLE_COLOR[vehicleType]);
+		for (int b = 0; b < DeathHistogram.BINS; b++){
+			int height = (int) (deaths.getCount(vehicleType, b) * maxHeight / max);
+			if (height > 0){
+				g.fillRect(x + b*barWidth, getHeight() - 2 - height, Math.max(1, barWidth - 1), height);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package thesis;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ *
+ * Edits waiting to be applied to a world. Any thread may add commands without locking; the thread that owns
+ * the world applies them, in the order they were added, between ticks (applyAll()), so the tick itself never
+ * sees the world change under it and never takes a lock.
+ *
+ */
+public class CommandQueue {
+
+	private final ConcurrentLinkedQueue<WorldCommand> commands = new ConcurrentLinkedQueue<WorldCommand>(); //Commands not yet applied
+
+	/**
+	 * Adds a command to be applied at the next tick boundary
+	 * @param command	The edit
+	 */
+	public void add(WorldCommand command){
+		commands.add(command);
+	}
+
+	/**
+	 * Applies every command added so far. Only the thread that owns the world may call this.
+	 * @param world	The world to edit
+	 * @return	Number of commands applied
+	 */
+	public int applyAll(World world){
+		int applied = 0;
+		WorldCommand command;
+		while ((command = commands.poll()) != null){
+			command.apply(world);
+			applied++;
+		}
+		return applied;
+	}
+
+	/**
+	 * @return	Whether no commands are waiting
+	 */
+	public boolean isEmpty(){
+		return commands.isEmpty();
+	}
+
+}
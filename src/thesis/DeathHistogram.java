@@ -0,0 +1,123 @@
+package thesis;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ *
+ * How many vehicles of each type have died, in total and per stretch of simulated time. There is a fixed number of
+ * bins; when a death falls past the last one, neighbouring bins are merged in pairs and each bin covers twice the
+ * time, so the histogram always spans the whole run in constant space however long it gets.
+ *
+ */
+public class DeathHistogram {
+
+	private final long[][] counts = new long[2][BINS]; //Deaths of each type in each bin
+	private final long[] total = new long[2]; //Deaths of each type
+	private long binTicks = World.TICKS_PER_SECOND; //Ticks covered by each bin
+
+	/**
+	 * Number of bins
+	 */
+	public final static int BINS = 64;
+
+	/**
+	 * Records a death
+	 * @param tick	Tick the vehicle died at
+	 * @param type	0-distance; 1-energy
+	 */
+	public void add(long tick, int type){
+		while (tick >= BINS*binTicks){
+			mergeBins();
+		}
+		counts[type][(int) (tick / binTicks)]++;
+		total[type]++;
+	}
+
+	/**
+	 * Halves the number of bins in use by merging neighbours, doubling the time each covers
+	 */
+	private void mergeBins(){
+		for (int t = 0; t < 2; t++){
+			for (int b = 0; b < BINS/2; b++){
+				counts[t][b] = counts[t][2*b] + counts[t][2*b + 1];
+			}
+			Arrays.fill(counts[t], BINS/2, BINS, 0);
+		}
+		binTicks *= 2;
+	}
+
+	/**
+	 * Forgets all deaths
+	 */
+	public void clear(){
+		Arrays.fill(counts[0], 0);
+		Arrays.fill(counts[1], 0);
+		total[0] = 0;
+		total[1] = 0;
+		binTicks = World.TICKS_PER_SECOND;
+	}
+
+	/**
+	 * Makes this histogram a copy of another one
+	 * @param source	The histogram to copy
+	 */
+	public void copyFrom(DeathHistogram source){
+		System.arraycopy(source.counts[0], 0, counts[0], 0, BINS);
+		System.arraycopy(source.counts[1], 0, counts[1], 0, BINS);
+		total[0] = source.total[0];
+		total[1] = source.total[1];
+		binTicks = source.binTicks;
+	}
+
+	/**
+	 * Writes the histogram (see WorldFile)
+	 * @param out	Where to write
+	 */
+	void write(BinaryOutput out) throws IOException {
+		out.writeLong(binTicks);
+		out.writeLongs(total, 2);
+		out.writeInt(BINS);
+		out.writeLongs(counts[0], BINS);
+		out.writeLongs(counts[1], BINS);
+	}
+
+	/**
+	 * Replaces the histogram with what write() wrote
+	 * @param in	Where to read from
+	 */
+	void read(BinaryInput in) throws IOException {
+		binTicks = in.readLong();
+		if (binTicks <= 0) throw new IOException("Bad histogram bin width " + binTicks);
+		in.readLongs(total, 2);
+		int bins = in.readInt();
+		if (bins != BINS) throw new IOException("Histogram has " + bins + " bins, not " + BINS);
+		in.readLongs(counts[0], BINS);
+		in.readLongs(counts[1], BINS);
+	}
+
+	/**
+	 * @param type	0-distance; 1-energy
+	 * @param bin	0 to BINS-1; bin b covers ticks b*getBinTicks() to (b+1)*getBinTicks()-1
+	 * @return	Number of vehicles of that type that died in that bin
+	 */
+	public long getCount(int type, int bin){
+		return counts[type][bin];
+	}
+
+	/**
+	 * @param type	0-distance; 1-energy
+	 * @return	Number of vehicles of that type that died since the world was last cleared
+	 */
+	public long getTotal(int type){
+		return total[type];
+	}
+
+	/**
+	 * @return	Ticks covered by each bin
+	 */
+	public long getBinTicks(){
+		return binTicks;
+	}
+
+}
@@ -0,0 +1,189 @@
+package thesis;
+
+import java.util.Arrays;
+
+/**
+ *
+ * The parts of a frame that have to be drawn again, kept as a grid of square tiles. Things that move are
+ * marked every frame they are drawn, so that the tiles they covered in the last frame (to erase them) and
+ * the tiles they cover now (to draw them) are both repainted; changes to cached layers are marked only for
+ * the frame they happen in. The tiles to draw are handed out as rectangles, each to be drawn with its own
+ * rectangular clip (a clip made of many rectangles makes Java2D rasterize shapes slightly differently).
+ *
+ */
+public class DirtyRegion {
+
+	private int columns = 0, rows = 0; //Size of the grid in tiles
+	private boolean[] drawn = new boolean[0]; //Tiles covered by moving things in this frame
+	private boolean[] drawnBefore = new boolean[0]; //Tiles covered by moving things in the last frame
+	private boolean[] changed = new boolean[0]; //Tiles where a cached layer changed in this frame
+	private boolean all = true; //Whether the whole frame has to be drawn
+	private int[] rects = new int[0]; //x, y, width and height of each rectangle found by findRects()
+	private int rectCount = 0; //Number of rectangles found by findRects()
+
+	/**
+	 * Width and height of a tile in pixels
+	 */
+	public final static int TILE_SIZE = 32;
+
+	/**
+	 * Sets the size of the frame; everything has to be drawn after a change
+	 * @param width	Width of the frame
+	 * @param height	Height of the frame
+	 */
+	public void setSize(int width, int height){
+		int newColumns = Math.max(1, (width + TILE_SIZE - 1) / TILE_SIZE);
+		int newRows = Math.max(1, (height + TILE_SIZE - 1) / TILE_SIZE);
+		if (newColumns != columns || newRows != rows){
+			columns = newColumns;
+			rows = newRows;
+			drawn = new boolean[columns*rows];
+			drawnBefore = new boolean[columns*rows];
+			changed = new boolean[columns*rows];
+			all = true;
+		}
+	}
+
+	/**
+	 * Marks the whole frame to be drawn
+	 */
+	public void markAll(){
+		all = true;
+	}
+
+	/**
+	 * Marks the area of something drawn in this frame that may move by the next one
+	 * @param x	X-coordinate of upper left-hand corner
+	 * @param y	Y-coordinate of upper left-hand corner
+	 * @param width	Width of the area
+	 * @param height	Height of the area
+	 */
+	public void markDrawn(double x, double y, double width, double height){
+		mark(drawn, x, y, width, height);
+	}
+
+	/**
+	 * Marks an area where a cached layer changed in this frame
+	 * @param x	X-coordinate of upper left-hand corner
+	 * @param y	Y-coordinate of upper left-hand corner
+	 * @param width	Width of the area
+	 * @param height	Height of the area
+	 */
+	public void markChanged(double x, double y, double width, double height){
+		mark(changed, x, y, width, height);
+	}
+
+	private void mark(boolean[] tiles, double x, double y, double width, double height){
+		int fromColumn = getColumn(x);
+		int toColumn = getColumn(x + width);
+		int fromRow = getRow(y);
+		int toRow = getRow(y + height);
+		for (int row = fromRow; row <= toRow; row++){
+			Arrays.fill(tiles, row*columns + fromColumn, row*columns + toColumn + 1, true);
+		}
+	}
+
+	/**
+	 * @return	Whether anything has to be drawn in this frame
+	 */
+	public boolean isEmpty(){
+		if (all) return false;
+		for (int t = 0; t < drawn.length; t++){
+			if (drawn[t] || drawnBefore[t] || changed[t]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return	Whether the whole frame has to be drawn
+	 */
+	public boolean isAll(){
+		return all;
+	}
+
+	/**
+	 * Splits the tiles to draw in this frame into rectangles: each run of tiles in a row, joined with the same
+	 * run in the rows below
+	 * @return	Number of rectangles, for getRectX() etc.
+	 */
+	public int findRects(){
+		rectCount = 0;
+		for (int row = 0; row < rows; row++){
+			int column = 0;
+			while (column < columns){
+				if (!isDirty(row*columns + column)){
+					column++;
+					continue;
+				}
+				int start = column;
+				while (column < columns && isDirty(row*columns + column)) column++;
+				int x = start*TILE_SIZE;
+				int width = (column - start)*TILE_SIZE;
+				//grow a rectangle that ends in the row above and covers exactly the same columns
+				boolean joined = false;
+				for (int k = 0; k < rectCount; k++){
+					if (rects[4*k] == x && rects[4*k + 2] == width && rects[4*k + 1] + rects[4*k + 3] == row*TILE_SIZE){
+						rects[4*k + 3] += TILE_SIZE;
+						joined = true;
+						break;
+					}
+				}
+				if (!joined){
+					if (4*rectCount == rects.length){
+						rects = Arrays.copyOf(rects, Math.max(64, rects.length*2));
+					}
+					rects[4*rectCount] = x;
+					rects[4*rectCount + 1] = row*TILE_SIZE;
+					rects[4*rectCount + 2] = width;
+					rects[4*rectCount + 3] = TILE_SIZE;
+					rectCount++;
+				}
+			}
+		}
+		return rectCount;
+	}
+
+	/**
+	 * @param k	Index of a rectangle found by findRects()
+	 */
+	public int getRectX(int k){
+		return rects[4*k];
+	}
+
+	public int getRectY(int k){
+		return rects[4*k + 1];
+	}
+
+	public int getRectWidth(int k){
+		return rects[4*k + 2];
+	}
+
+	public int getRectHeight(int k){
+		return rects[4*k + 3];
+	}
+
+	/**
+	 * Starts the next frame: what was drawn in this one becomes what has to be erased in the next
+	 */
+	public void next(){
+		boolean[] tiles = drawnBefore;
+		drawnBefore = drawn;
+		drawn = tiles;
+		Arrays.fill(drawn, false);
+		Arrays.fill(changed, false);
+		all = false;
+	}
+
+	private boolean isDirty(int t){
+		return drawn[t] || drawnBefore[t] || changed[t];
+	}
+
+	private int getColumn(double px){
+		return Math.min(columns - 1, Math.max(0, (int) Math.floor(px / TILE_SIZE)));
+	}
+
+	private int getRow(double py){
+		return Math.min(rows - 1, Math.max(0, (int) Math.floor(py / TILE_SIZE)));
+	}
+
+}
@@ -0,0 +1,188 @@
+package thesis;
+
+import java.io.IOException;
+
+/**
+ *
+ * The most recently eaten food, for "Show Eaten Food", kept in a fixed-size ring so that a long run does not
+ * grow it without bound: once full, each newly eaten piece replaces the oldest one. How much of each type
+ * has been eaten in total is counted separately and never forgotten.
+ *
+ */
+public class EatenFoodHistory {
+
+	private final double[] x, y; //Upper left-hand corner of each remembered piece
+	private final int[] value; //Value of each remembered piece
+	private final byte[] type; //0-distance; 1-energy
+	private int oldest = 0; //Position in the ring of the oldest remembered piece
+	private int size = 0; //Number of pieces remembered
+	private long[] total = new long[2]; //Number of pieces of each type eaten since the last clear
+	private int clearCount = 0; //Number of times the history was cleared
+
+	/**
+	 * Constructor
+	 * @param capacity	Number of eaten pieces to remember; 0 to only count them
+	 */
+	public EatenFoodHistory(int capacity){
+		x = new double[capacity];
+		y = new double[capacity];
+		value = new int[capacity];
+		type = new byte[capacity];
+	}
+
+	/**
+	 * Records a piece of food that was eaten
+	 * @param x	X-coordinate of upper left-hand corner
+	 * @param y	Y-coordinate of upper left-hand corner
+	 * @param value	Value of the food
+	 * @param type	0-distance; 1-energy
+	 */
+	public void add(double x, double y, int value, int type){
+		total[type]++;
+		remember(x, y, value, type);
+	}
+
+	private void remember(double x, double y, int value, int type){
+		int capacity = this.x.length;
+		if (capacity == 0) return;
+		int pos;
+		if (size < capacity){
+			pos = (oldest + size++) % capacity;
+		}
+		else {
+			pos = oldest;
+			oldest = (oldest + 1) % capacity;
+		}
+		this.x[pos] = x;
+		this.y[pos] = y;
+		this.value[pos] = value;
+		this.type[pos] = (byte) type;
+	}
+
+	/**
+	 * Forgets all eaten food and resets the counts
+	 */
+	public void clear(){
+		oldest = 0;
+		size = 0;
+		total[0] = 0;
+		total[1] = 0;
+		clearCount++;
+	}
+
+	/**
+	 * Makes this history a copy of another one. Only the pieces eaten since the last copy are copied, unless the
+	 * other history was cleared or has forgotten some of them since.
+	 * @param source	A history of the same capacity
+	 */
+	public void copyFrom(EatenFoodHistory source){
+		long added = source.getTotal() - getTotal();
+		if (clearCount != source.clearCount || added < 0 || added > source.size){
+			System.arraycopy(source.x, 0, x, 0, x.length);
+			System.arraycopy(source.y, 0, y, 0, y.length);
+			System.arraycopy(source.value, 0, value, 0, value.length);
+			System.arraycopy(source.type, 0, type, 0, type.length);
+			oldest = source.oldest;
+			size = source.size;
+		}
+		else {
+			for (int i = source.size - (int) added; i < source.size; i++){
+				remember(source.getX(i), source.getY(i), source.getValue(i), source.getType(i));
+			}
+		}
+		total[0] = source.total[0];
+		total[1] = source.total[1];
+		clearCount = source.clearCount;
+	}
+
+	/**
+	 * Writes the counts and the remembered pieces, oldest first (see WorldFile)
+	 * @param out	Where to write
+	 */
+	void write(BinaryOutput out) throws IOException {
+		out.writeLong(total[0]);
+		out.writeLong(total[1]);
+		out.writeInt(size);
+		for (int i = 0; i < size; i++){
+			out.writeDouble(getX(i));
+			out.writeDouble(getY(i));
+			out.writeInt(getValue(i));
+			out.writeByte(getType(i));
+		}
+	}
+
+	/**
+	 * Replaces the history with what write() wrote. If this history is smaller, only the newest pieces are kept.
+	 * @param in	Where to read from
+	 */
+	void read(BinaryInput in) throws IOException {
+		clear();
+		total[0] = in.readLong();
+		total[1] = in.readLong();
+		int n = in.readLength(in.getRemaining());
+		for (int i = 0; i < n; i++){
+			double x = in.readDouble();
+			double y = in.readDouble();
+			int value = in.readInt();
+			int type = in.readByte();
+			if (type != 0 && type != 1) throw new IOException("Bad food type " + type);
+			remember(x, y, value, type);
+		}
+	}
+
+	/**
+	 * @return	Number of times the history was cleared, so that a copy of it can tell it has to start over
+	 */
+	public int getClearCount(){
+		return clearCount;
+	}
+
+	/**
+	 * @return	Number of pieces remembered, at most the capacity
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * @param type	0-distance; 1-energy
+	 * @return	Number of pieces of that type eaten since the last clear, remembered or not
+	 */
+	public long getTotal(int type){
+		return total[type];
+	}
+
+	/**
+	 * @return	Number of pieces eaten since the last clear, remembered or not
+	 */
+	public long getTotal(){
+		return total[0] + total[1];
+	}
+
+	/**
+	 * @param i	0 for the oldest remembered piece to size()-1 for the newest
+	 */
+	public double getX(int i){
+		return x[(oldest + i) % x.length];
+	}
+
+	public double getY(int i){
+		return y[(oldest + i) % x.length];
+	}
+
+	public int getValue(int i){
+		return value[(oldest + i) % x.length];
+	}
+
+	public int getType(int i){
+		return type[(oldest + i) % x.length];
+	}
+
+	/**
+	 * @return	Width (and height) of the i-th remembered piece
+	 */
+	public int getSize(int i){
+		return Food.getSize(getValue(i));
+	}
+
+}
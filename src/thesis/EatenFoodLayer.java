@@ -0,0 +1,75 @@
+package thesis;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ *
+ * The eaten food of a world, drawn into an image that is kept between frames. Each frame only the pieces
+ * eaten since the last one are added; the image is redrawn from the history when the history was cleared,
+ * the size changed, or eaten food was hidden for a while. Pieces that the history has since forgotten stay
+ * visible until the next redraw.
+ *
+ */
+public class EatenFoodLayer {
+
+	private BufferedImage image; //The drawn food; transparent elsewhere
+	private Graphics2D imageG; //Graphics of the image, kept as long as the image
+	private int clears = -1; //EatenFoodHistory.getClearCount() when the image was last redrawn
+	private long drawnTotal = 0; //EatenFoodHistory.getTotal() when the image was last brought up to date
+
+	/**
+	 * Brings the image up to date with the world's eaten food
+	 * @param world	The world whose eaten food to draw
+	 * @param sprites	Food sprites
+	 * @param width	Width of the area drawn on
+	 * @param height	Height of the area drawn on
+	 * @param dirty	Where the image changed is marked on it
+	 */
+	public void update(World world, SpriteCache sprites, int width, int height, DirtyRegion dirty){
+		EatenFoodHistory eatenFood = world.getEatenFood();
+		if (image == null || image.getWidth() != width || image.getHeight() != height){
+			if (imageG != null) imageG.dispose();
+			image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+			imageG = image.createGraphics();
+			invalidate();
+		}
+		if (clears != eatenFood.getClearCount()){
+			Composite composite = imageG.getComposite();
+			imageG.setComposite(AlphaComposite.Clear);
+			imageG.fillRect(0, 0, image.getWidth(), image.getHeight());
+			imageG.setComposite(composite);
+			clears = eatenFood.getClearCount();
+			drawnTotal = 0;
+			dirty.markAll();
+		}
+
+		//the newest pieces are at the end of the history; older ones may have been forgotten already
+		int added = (int) Math.min(eatenFood.size(), eatenFood.getTotal() - drawnTotal);
+		for (int i = eatenFood.size() - added; i < eatenFood.size(); i++){
+			int kind = eatenFood.getType(i) == Food.DISTANCE ? Food.DISTANCE_EATEN : Food.ENERGY_EATEN;
+			Food.paint(imageG, sprites.getSprite(kind, eatenFood.getValue(i)), eatenFood.getX(i), eatenFood.getY(i));
+			dirty.markChanged(eatenFood.getX(i), eatenFood.getY(i), eatenFood.getSize(i), eatenFood.getSize(i));
+		}
+		drawnTotal = eatenFood.getTotal();
+	}
+
+	/**
+	 * Draws the image as last updated
+	 * @param g	Graphics to draw on
+	 */
+	public void paint(Graphics g){
+		g.drawImage(image, 0, 0, null);
+	}
+
+	/**
+	 * Makes the next update() redraw all eaten food from scratch, e.g. after it was hidden
+	 */
+	public void invalidate(){
+		clears = -1;
+	}
+
+}
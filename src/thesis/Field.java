@@ -1,296 +1,420 @@
-package thesis;
-
-import java.awt.*;
-import java.awt.event.*;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.util.List;
-import java.util.ArrayList;
-
-import javax.imageio.ImageIO;
-
-/**
- * 
- * @author Karina Kinaman
- *
- * The main display component that holds the terrain, food, and vehicles.
- */
-public class Field extends Component{
-	
-	private static final long serialVersionUID = 1L;
-
-	private final Simulator simulator; //the instance of the simulator holding this field
-	
-	private List<Vehicle> vehicleList = new ArrayList<Vehicle>(); //List of vehicles on the field
-	private List<Food> energyFoodList = new ArrayList<Food>(); //List of food (for energy vehicles) on the field
-	private List<Food> distanceFoodList = new ArrayList<Food>(); //List of food (for distance vehicles) on the field
-	private List<Terrain> terrainList = new ArrayList<Terrain>(); //List of terrain patches
-	private List<Food> eatenFoodList = new ArrayList<Food>(); //List of eaten food
-	
-	private int chosenVehicleNo, chosenDistanceFoodNo, chosenEnergyFoodNo, chosenTerrainNo; //Keeps track of which (if any) vehicle, food, or terrain is selected
-	private int deadVehicleCount = 0; //Count of number of dead vehicles
-	
-	/**
-	 * Constructor
-	 */
-	public Field(Simulator sim){
-		this.simulator = sim;
-		clearSelection();
-		
-		this.addMouseListener(new MouseAdapter(){
-			public void mousePressed(MouseEvent e) {
-				Point point = e.getPoint();
-				clearSelection();
-				boolean found = false;
-				
-				//clicked on vehicle
-				if (!found){
-					for (int i=0; i < vehicleList.size(); i++) {
-						Vehicle curVehicle = vehicleList.get(i);
-						if (curVehicle.getBody().contains(point)){
-							chosenVehicleNo = i;
-							found = true;
-							break;
-						}
-					}
-				}
-				//clicked on distance food
-				if (!found){
-					for (int i=0; i < distanceFoodList.size(); i++) {
-						Food curFood = distanceFoodList.get(i);
-						if (curFood.getArea().contains(point)){
-							chosenDistanceFoodNo = i;
-							found = true;
-							break;
-						}
-					}
-				}
-				//clicked on energy food
-				if (!found){
-					for (int i=0; i < energyFoodList.size(); i++) {
-						Food curFood = energyFoodList.get(i);
-						if (curFood.getArea().contains(point)){
-							chosenEnergyFoodNo = i;
-							found = true;
-							break;
-						}
-					}
-				}
-				//clicked on terrain
-				if (!found){
-					for (int i = 0; i < terrainList.size(); i++){
-						Terrain curTerrain = terrainList.get(i);
-						if (curTerrain.getCircle().contains(point)){
-							chosenTerrainNo = i;
-							found = true;
-							break;
-						}
-					}
-				}
-				repaint();
-			}
-		});
-		
-		this.addMouseMotionListener(new MouseMotionAdapter(){
-			public void mouseDragged(MouseEvent e){
-				if (chosenVehicleNo >= 0){
-					Vehicle chosenVehicle = vehicleList.get(chosenVehicleNo);
-					chosenVehicle.resetPos(e.getX(), e.getY());
-				}
-				if (chosenDistanceFoodNo >= 0){
-					Food chosenFood = distanceFoodList.get(chosenDistanceFoodNo);
-					chosenFood.resetPos(e.getX(), e.getY());
-				}
-				if (chosenEnergyFoodNo >= 0){
-					Food chosenFood = energyFoodList.get(chosenEnergyFoodNo);
-					chosenFood.resetPos(e.getX(), e.getY());
-				}
-				if (chosenTerrainNo >= 0){
-					Terrain chosenTerrain = terrainList.get(chosenTerrainNo);
-					chosenTerrain.resetPos(e.getX(), e.getY());
-				}
-				repaint();
-			}
-		});
-	}
-	
-	public void paint(Graphics g){
-		update(g);
-	}
-	
-	public void update(Graphics g){
-		
-		//double buffering
-		Image offImage = createImage (this.getSize().width, this.getSize().height);
-		Graphics offG = offImage.getGraphics();
-		
-		// clear screen in background 
-		offG.setColor(Simulator.WINDOW_COLOR); 
-		offG.fillRect (0, 0, this.getSize().width, this.getSize().height); 
-		
-		//draw terrain patches
-		for (int i = 0; i < terrainList.size(); i++){
-			terrainList.get(i).paint(offG);
-		}
-		
-		//draw circle around chosen terrain
-		if (chosenTerrainNo >= 0) {
-			Terrain chosenTerrain = terrainList.get(chosenTerrainNo);
-			offG.setColor(Color.black);
-			Graphics2D g2 = (Graphics2D) offG;
-			g2.draw(chosenTerrain.getCircle());
-		}
-		
-		//draw circle around chosen food
-		if (chosenDistanceFoodNo >=0 || chosenEnergyFoodNo >=0){
-			Food chosenFood = new Food();
-			if (chosenDistanceFoodNo >= 0) chosenFood = distanceFoodList.get(chosenDistanceFoodNo);
-			else if (chosenEnergyFoodNo >=0) chosenFood = energyFoodList.get(chosenEnergyFoodNo);
-			offG.setColor(Color.magenta);
-			offG.drawOval((int)(chosenFood.getCenterX() - 25),(int)(chosenFood.getCenterY() - 25), 50, 50);
-		}
-		
-		//draw distance food
-		BufferedImage img = null;
-		try {
-			img = ImageIO.read(Thread.currentThread().getContextClassLoader().getResourceAsStream(
-					Food.pathnames[Food.DISTANCE]));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		for (int i = 0; i < distanceFoodList.size(); i++){
-			distanceFoodList.get(i).paint(offG, img);
-		}
-		
-		//draw energy food
-		try {
-			img = ImageIO.read(Thread.currentThread().getContextClassLoader().getResourceAsStream(
-					Food.pathnames[Food.ENERGY]));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		for (int i = 0; i < energyFoodList.size(); i++){
-			energyFoodList.get(i).paint(offG, img);
-		}
-		
-		//draw eaten food
-		BufferedImage img_d = null;
-		BufferedImage img_e = null;
-		try {
-			img_d = ImageIO.read(Thread.currentThread().getContextClassLoader().getResourceAsStream(
-					Food.pathnames[Food.DISTANCE_EATEN]));
-			img_e = ImageIO.read(Thread.currentThread().getContextClassLoader().getResourceAsStream(
-					Food.pathnames[Food.ENERGY_EATEN]));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		if (simulator.isShowEatenFood()){
-			for (int i = 0; i < eatenFoodList.size(); i++){
-				if (eatenFoodList.get(i).getType()==0)
-				eatenFoodList.get(i).paint(offG, img_d);
-				else eatenFoodList.get(i).paint(offG, img_e);
-			}
-		}
-		
-		//draw circle around chosen vehicle
-		if (chosenVehicleNo >= 0) {
-			Vehicle chosenVehicle = vehicleList.get(chosenVehicleNo);
-			offG.setColor(Color.cyan);
-			offG.drawOval((int)chosenVehicle.getCenterX() - chosenVehicle.getVehicleSize()/2, 
-					(int)chosenVehicle.getCenterY() - chosenVehicle.getVehicleSize()/2, 
-					chosenVehicle.getVehicleSize(), chosenVehicle.getVehicleSize());
-		}
-
-		//draw vehicles
-		for (int i = 0; i < vehicleList.size(); i++){
-			vehicleList.get(i).paint(offG);
-		}	
-		
-		// draw image from buffer onto the screen 
-		g.drawImage (offImage, 0, 0, this); 
-		
-		//garbage colleciton
-		offG.dispose();
-		offImage.flush();
-	}
-	
-	/**
-	 * When triggered by foodTimer in Simulator.java, adds food to field (amount specified in Simulator.java -> FOOD_DIST_AMOUNT)
-	 */
-	public void foodDrop(){
-		for (int i = 0; i < simulator.getFoodRefillAmount(); i++){
-			simulator.addFood();
-		}
-	}
-	
-	/**
-	 * Test whether all vehicles have died
-	 * @return True if all vehicles have died
-	 */
-	public boolean allDead(){
-		if (deadVehicleCount == vehicleList.size()) return true;
-		else return false;
-	}
-	
-	public void clearSelection(){
-		chosenVehicleNo = -1;
-		chosenEnergyFoodNo = -1;
-		chosenDistanceFoodNo = -1;
-		chosenTerrainNo = -1;
-	}
-	
-	public List<Vehicle> getVehicleList() {
-		return vehicleList;
-	}
-	public List<Food> getEnergyFoodList() {
-		return energyFoodList;
-	}
-	public List<Food> getDistanceFoodList() {
-		return distanceFoodList;
-	}
-	public List<Terrain> getTerrainList() {
-		return terrainList;
-	}
-	public List<Food> getEatenFoodList() {
-		return eatenFoodList;
-	}
-	
-	public int getChosenVehicleNo() {
-		return chosenVehicleNo;
-	}
-	public int getChosenDistanceFoodNo() {
-		return chosenDistanceFoodNo;
-	}
-	public int getChosenEnergyFoodNo() {
-		return chosenEnergyFoodNo;
-	}
-	public int getChosenTerrainNo() {
-		return chosenTerrainNo;
-	}
-
-	public void setChosenVehicleNo(int chosenVehicleNo) {
-		this.chosenVehicleNo = chosenVehicleNo;
-	}
-	public void setChosenDistanceFoodNo(int chosenDistanceFoodNo) {
-		this.chosenDistanceFoodNo = chosenDistanceFoodNo;
-	}
-	public void setChosenEnergyFoodNo(int chosenEnergyFoodNo) {
-		this.chosenEnergyFoodNo = chosenEnergyFoodNo;
-	}
-	public void setChosenTerrainNo(int chosenTerrainNo) {
-		this.chosenTerrainNo = chosenTerrainNo;
-	}
-
-	public int getDeadVehicleCount() {
-		return deadVehicleCount;
-	}
-
-	public void setDeadVehicleCount(int deadVehicleCount) {
-		this.deadVehicleCount = deadVehicleCount;
-	}
-
-	public Simulator getSimulator() {
-		return simulator;
-	}
-
-}
+package thesis;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * 
+ * @author Karina Kinaman
+ *
+ * The main display component that draws the terrain, food, and vehicles of a World.
+ */
+public class Field extends Component{
+	
+	private static final long serialVersionUID = 1L;
+
+	private final Simulator simulator; //the instance of the simulator holding this field
+	private final World world; //the world being displayed
+	private World shown; //World drawn in the current frame: the world itself while paused, the latest snapshot of it while running, or a frame of a replay
+	
+	private TerrainLayer terrainLayer = new TerrainLayer(); //Background and terrain, kept drawn until the terrain changes
+	private EatenFoodLayer eatenFoodLayer = new EatenFoodLayer(); //Eaten food, kept drawn between frames
+	private TrailLayer trails = new TrailLayer(); //Paths of the vehicles, kept drawn between frames
+	private DirtyRegion dirty = new DirtyRegion(); //Parts of the back buffer to draw again in the next frame
+	private boolean eatenFoodShown, pathsShown; //Whether eaten food and paths were shown in the last frame
+	private SpriteCache sprites = new SpriteCache(); //Food images scaled for each food value, and other small images drawn often
+	private Image offImage; //Back buffer, reused until the size changes
+	private Graphics offG; //Graphics of the back buffer
+	
+	private int chosenVehicle, chosenFood, chosenFoodSerial, chosenTerrain; //Which (if any) vehicle (serial), food (slot and serial), or terrain (id) is selected
+	private static final Color METRICS_BACKGROUND = new Color(255, 255, 255, 200); //Behind the metrics overlay
+	private final String[] metricsLines = new String[4]; //Text of the metrics overlay
+	private final StringBuilder metricsText = new StringBuilder(); //Builds each line of the overlay
+	private BufferedImage metricsImage; //The overlay drawn, made again only when the metrics are sampled; null until made
+	private SimMetrics metricsShown; //Metrics the overlay was made from
+	private long metricsSamples = -1; //Their number of samples when it was made
+	
+	private int shownVehicle, shownFood, shownTerrain; //Index, slot and index of the selection in the world drawn in the current frame; -1 if not there
+	
+	/**
+	 * Constructor
+	 * @param sim	The simulator holding this field
+	 * @param world	The world to display
+	 */
+	public Field(Simulator sim, final World world){
+		this.simulator = sim;
+		this.world = world;
+		clearSelection();
+		
+		this.addMouseListener(new MouseAdapter(){
+			public void mousePressed(MouseEvent e) {
+				if (simulator.getReplayWorld() != null) return; //a replay is only looked at
+				//pick from what is on the screen; while running that is a snapshot, as the world belongs to the animation thread
+				World view = simulator.isRunning() && shown != null ? shown : world;
+				FoodStore food = view.getFood();
+				List<Terrain> terrainList = view.getTerrainList();
+				Point point = e.getPoint();
+				clearSelection();
+				boolean found = false;
+				
+				//clicked on vehicle
+				if (!found){
+					for (int i=0; i < view.getVehicleCount(); i++) {
+						Vehicle curVehicle = view.getVehicle(i);
+						if (curVehicle.bodyContains(point.x, point.y)){
+							chosenVehicle = view.getVehicles().getSerial(i);
+							found = true;
+							break;
+						}
+					}
+				}
+				//clicked on distance or energy food
+				for (int type = Food.DISTANCE; type <= Food.ENERGY && !found; type++){
+					for (int i=0; i < food.getLiveCount(type); i++) {
+						int curFood = food.getLiveSlot(type, i);
+						if (food.contains(curFood, point.x, point.y)){
+							chosenFood = curFood;
+							chosenFoodSerial = food.getSerial(curFood);
+							found = true;
+							break;
+						}
+					}
+				}
+				//clicked on terrain
+				if (!found){
+					for (int i = 0; i < terrainList.size(); i++){
+						Terrain curTerrain = terrainList.get(i);
+						if (curTerrain.contains(point.x, point.y)){
+							chosenTerrain = curTerrain.getId();
+							found = true;
+							break;
+						}
+					}
+				}
+				repaint();
+			}
+		});
+		
+		this.addMouseMotionListener(new MouseMotionAdapter(){
+			public void mouseDragged(MouseEvent e){
+				final int vehicle = chosenVehicle, food = chosenFood, foodSerial = chosenFoodSerial, terrain = chosenTerrain;
+				if (vehicle < 0 && food < 0 && terrain < 0) return;
+				final double x = e.getX(), y = e.getY();
+				simulator.edit(new WorldCommand() {
+					public void apply(World world) {
+						int i = vehicle >= 0 ? world.getVehicles().indexOf(vehicle) : -1;
+						if (i >= 0){
+							world.getVehicle(i).resetPos(x, y);
+						}
+						if (world.getFood().isLive(food, foodSerial)){
+							world.moveFood(food, x, y);
+						}
+						int t = terrain >= 0 ? world.indexOfTerrain(terrain) : -1;
+						if (t >= 0){
+							world.moveTerrain(t, x, y);
+						}
+					}
+				});
+			}
+		});
+	}
+	
+	public void paint(Graphics g){
+		update(g);
+	}
+	
+	public void update(Graphics g){
+		long start = System.nanoTime();
+		
+		//double buffering
+		int width = this.getSize().width;
+		int height = this.getSize().height;
+		if (offImage == null || offImage.getWidth(null) != width || offImage.getHeight(null) != height){
+			if (offG != null) offG.dispose();
+			if (offImage != null) offImage.flush();
+			offImage = createImage (Math.max(1, width), Math.max(1, height));
+			offG = offImage.getGraphics();
+			dirty.setSize(width, height);
+			dirty.markAll();
+		}
+		
+		//while running, draw a whole tick rather than the world as the animation thread changes it
+		World replayed = simulator.getReplayWorld();
+		shown = replayed != null ? replayed : simulator.isRunning() ? simulator.getSnapshots().getLatest() : world;
+		findSelection();
+		
+		//bring the cached layers up to date, marking where they changed
+		if (terrainLayer.update(shown, width, height)){
+			dirty.markAll();
+		}
+		if (simulator.isShowEatenFood()){
+			eatenFoodLayer.update(shown, sprites, width, height, dirty);
+		}
+		if (simulator.showPaths()){
+			trails.update(shown, width, height, dirty);
+		}
+		if (simulator.isShowEatenFood() != eatenFoodShown || simulator.showPaths() != pathsShown){
+			if (!simulator.isShowEatenFood()) eatenFoodLayer.invalidate();
+			if (!simulator.showPaths()) trails.invalidate();
+			eatenFoodShown = simulator.isShowEatenFood();
+			pathsShown = simulator.showPaths();
+			dirty.markAll();
+		}
+		
+		//mark where the things that move are drawn
+		markMovingParts();
+		
+		//only the tiles something was or is drawn on are drawn again
+		if (dirty.isAll()){
+			paintLayers(0, 0, width, height);
+		}
+		else if (!dirty.isEmpty()){
+			int rects = dirty.findRects();
+			for (int k = 0; k < rects; k++){
+				offG.setClip(dirty.getRectX(k), dirty.getRectY(k), dirty.getRectWidth(k), dirty.getRectHeight(k));
+				paintLayers(dirty.getRectX(k), dirty.getRectY(k), dirty.getRectWidth(k), dirty.getRectHeight(k));
+			}
+			offG.setClip(null);
+		}
+		dirty.next();
+		
+		// draw image from buffer onto the screen 
+		g.drawImage (offImage, 0, 0, this); 
+		
+		//the overlay goes on the screen only, so the back buffer stays as it was
+		SimMetrics metrics = simulator.getMetrics();
+		if (metrics != null){
+			metrics.addFrame(System.nanoTime() - start);
+			if (simulator.isShowMetrics()) paintMetrics(g, metrics);
+		}
+	}
+	
+	/**
+	 * Draws the rates, phase times and counts of the simulation in the upper left-hand corner
+	 * @param g	Graphics to draw on
+	 * @param metrics	The metrics to show
+	 */
+	private void paintMetrics(Graphics g, SimMetrics metrics){
+		long samples = metrics.getSamples();
+		if (metricsImage == null || metrics != metricsShown || samples != metricsSamples){
+			updateMetricsImage(metrics, g.getFont());
+			metricsShown = metrics;
+			metricsSamples = samples;
+		}
+		g.drawImage(metricsImage, 4, 4, null);
+	}
+	
+	/**
+	 * Draws the metrics overlay from their latest sample into metricsImage. The rates only change about once a second,
+	 * so this is not done every frame; frames in between just copy the image.
+	 * @param metrics	The metrics to show
+	 * @param font	Font to write in
+	 */
+	private void updateMetricsImage(SimMetrics metrics, Font font){
+		StringBuilder line = metricsText;
+		line.setLength(0);
+		appendFixed(line, metrics.getTicksPerSecond(), 0).append(" ticks/s, ");
+		appendFixed(line, metrics.getFramesPerSecond(), 0).append(" frames/s");
+		metricsLines[0] = line.toString();
+		line.setLength(0);
+		appendFixed(line.append("us/tick: sensing "), metrics.getSensingMicrosPerTick(), 1);
+		appendFixed(line.append(", retargeting "), metrics.getRetargetingMicrosPerTick(), 1);
+		appendFixed(line.append(", motion "), metrics.getMotionMicrosPerTick(), 1);
+		appendFixed(line.append(", terrain "), metrics.getTerrainCostMicrosPerTick(), 1);
+		appendFixed(line.append(", commit "), metrics.getCommitMicrosPerTick(), 1);
+		metricsLines[1] = line.toString();
+		line.setLength(0);
+		appendFixed(line.append("us/frame: rendering "), metrics.getRenderMicrosPerFrame(), 0);
+		metricsLines[2] = line.toString();
+		line.setLength(0);
+		line.append("retargets ").append(metrics.getRetargets()).append(", eaten ").append(metrics.getFoodsEaten())
+				.append(", deaths ").append(metrics.getDeaths()).append(", spawns ").append(metrics.getSpawns());
+		metricsLines[3] = line.toString();
+		
+		FontMetrics fontMetrics = getFontMetrics(font);
+		int width = 0;
+		for (int k = 0; k < metricsLines.length; k++){
+			width = Math.max(width, fontMetrics.stringWidth(metricsLines[k]));
+		}
+		int lineHeight = fontMetrics.getHeight();
+		metricsImage = new BufferedImage(width + 8, metricsLines.length*lineHeight + 6, BufferedImage.TYPE_INT_ARGB);
+		Graphics g = metricsImage.getGraphics();
+		g.setFont(font);
+		g.setColor(METRICS_BACKGROUND);
+		g.fillRect(0, 0, width + 8, metricsLines.length*lineHeight + 6);
+		g.setColor(Color.black);
+		for (int k = 0; k < metricsLines.length; k++){
+			g.drawString(metricsLines[k], 4, 3 + k*lineHeight + fontMetrics.getAscent());
+		}
+		g.dispose();
+	}
+	
+	/**
+	 * Appends a non-negative number rounded to a few decimals, as String.format("%.nf") would, without its garbage
+	 * @param text	Where to append it
+	 * @param value	The number
+	 * @param decimals	Number of decimals: 0 or 1
+	 * @return	text
+	 */
+	private static StringBuilder appendFixed(StringBuilder text, double value, int decimals){
+		if (decimals == 0) return text.append(Math.round(value));
+		long tenths = Math.round(value * 10);
+		return text.append(tenths / 10).append('.').append(tenths % 10);
+	}
+	
+	/**
+	 * Marks the area of everything that is not in a cached layer: selection circles, live food and vehicles
+	 */
+	private void markMovingParts(){
+		FoodStore food = shown.getFood();
+		if (shownTerrain >= 0) {
+			Terrain chosenTerrain = shown.getTerrainList().get(shownTerrain);
+			dirty.markDrawn(chosenTerrain.getCenterX() - chosenTerrain.getRadius() - 1, chosenTerrain.getCenterY() - chosenTerrain.getRadius() - 1,
+					chosenTerrain.getRadius()*2 + 2, chosenTerrain.getRadius()*2 + 2);
+		}
+		if (shownFood >= 0){
+			dirty.markDrawn(food.getCenterX(shownFood) - 26, food.getCenterY(shownFood) - 26, 52, 52);
+		}
+		for (int type = Food.DISTANCE; type <= Food.ENERGY; type++){
+			for (int i = 0; i < food.getLiveCount(type); i++){
+				int slot = food.getLiveSlot(type, i);
+				dirty.markDrawn(food.getX(slot), food.getY(slot), food.getSize(slot), food.getSize(slot));
+			}
+		}
+		if (shownVehicle >= 0) {
+			Vehicle chosenVehicle = shown.getVehicle(shownVehicle);
+			dirty.markDrawn(chosenVehicle.getCenterX() - chosenVehicle.getVehicleSize()/2 - 1, chosenVehicle.getCenterY() - chosenVehicle.getVehicleSize()/2 - 1,
+					chosenVehicle.getVehicleSize() + 2, chosenVehicle.getVehicleSize() + 2);
+		}
+		for (int i = 0; i < shown.getVehicleCount(); i++){
+			shown.getVehicle(i).markBounds(dirty);
+		}
+	}
+	
+	/**
+	 * Draws every layer into a rectangle of the back buffer, bottom to top. Food and vehicles outside the
+	 * rectangle are skipped, so the clip must not be any larger.
+	 * @param x	X-coordinate of upper left-hand corner
+	 * @param y	Y-coordinate of upper left-hand corner
+	 * @param width	Width of the rectangle
+	 * @param height	Height of the rectangle
+	 */
+	private void paintLayers(int x, int y, int width, int height){
+		FoodStore food = shown.getFood();
+		
+		//draw background and terrain patches
+		terrainLayer.paint(offG);
+		
+		//draw circle around chosen terrain (circles are copied from sprites, which look the same however they are clipped)
+		if (shownTerrain >= 0) {
+			Ellipse2D circle = shown.getTerrainList().get(shownTerrain).getCircle();
+			offG.drawImage(sprites.getCircleSprite(circle.getX(), circle.getY(), circle.getWidth(), Color.black),
+					(int) Math.floor(circle.getX()) - 1, (int) Math.floor(circle.getY()) - 1, null);
+		}
+		
+		//draw circle around chosen food
+		if (shownFood >= 0){
+			offG.drawImage(sprites.getRingSprite(50, Color.magenta), (int)(food.getCenterX(shownFood) - 25),(int)(food.getCenterY(shownFood) - 25), null);
+		}
+		
+		//draw distance food
+		for (int i = 0; i < food.getLiveCount(Food.DISTANCE); i++){
+			int slot = food.getLiveSlot(Food.DISTANCE, i);
+			if (food.intersects(slot, x, y, width, height))
+				Food.paint(offG, sprites.getSprite(Food.DISTANCE, food.getValue(slot)), food.getX(slot), food.getY(slot));
+		}
+		
+		//draw energy food
+		for (int i = 0; i < food.getLiveCount(Food.ENERGY); i++){
+			int slot = food.getLiveSlot(Food.ENERGY, i);
+			if (food.intersects(slot, x, y, width, height))
+				Food.paint(offG, sprites.getSprite(Food.ENERGY, food.getValue(slot)), food.getX(slot), food.getY(slot));
+		}
+		
+		//draw eaten food
+		if (eatenFoodShown){
+			eatenFoodLayer.paint(offG);
+		}
+		
+		//draw circle around chosen vehicle
+		if (shownVehicle >= 0) {
+			Vehicle chosenVehicle = shown.getVehicle(shownVehicle);
+			offG.drawImage(sprites.getRingSprite(chosenVehicle.getVehicleSize(), Color.cyan),
+					(int)chosenVehicle.getCenterX() - chosenVehicle.getVehicleSize()/2, 
+					(int)chosenVehicle.getCenterY() - chosenVehicle.getVehicleSize()/2, null);
+		}
+
+		//draw paths traveled, then vehicles
+		if (pathsShown){
+			trails.paint(offG);
+		}
+		for (int i = 0; i < shown.getVehicleCount(); i++){
+			Vehicle vehicle = shown.getVehicle(i);
+			if (vehicle.paintsWithin(x, y, width, height)) vehicle.paint(offG, sprites);
+		}	
+	}
+	
+	/**
+	 * Finds the selection in the world drawn in the current frame; things deleted or eaten since are not drawn as selected
+	 */
+	private void findSelection(){
+		shownVehicle = chosenVehicle >= 0 ? shown.getVehicles().indexOf(chosenVehicle) : -1;
+		shownFood = shown.getFood().isLive(chosenFood, chosenFoodSerial) ? chosenFood : -1;
+		shownTerrain = chosenTerrain >= 0 ? shown.indexOfTerrain(chosenTerrain) : -1;
+	}
+	
+	public void clearSelection(){
+		chosenVehicle = -1;
+		chosenFood = -1;
+		chosenFoodSerial = -1;
+		chosenTerrain = -1;
+	}
+	
+	/**
+	 * @return	Serial of the selected vehicle (see VehicleStore.getSerial()); -1 for none
+	 */
+	public int getChosenVehicle() {
+		return chosenVehicle;
+	}
+	/**
+	 * @return	Slot of the selected food; -1 for none
+	 */
+	public int getChosenFood() {
+		return chosenFood;
+	}
+	/**
+	 * @return	Serial of the selected food (see FoodStore.getSerial())
+	 */
+	public int getChosenFoodSerial() {
+		return chosenFoodSerial;
+	}
+	/**
+	 * @return	Id of the selected terrain; -1 for none
+	 */
+	public int getChosenTerrain() {
+		return chosenTerrain;
+	}
+
+	public void setChosenVehicle(int serial) {
+		this.chosenVehicle = serial;
+	}
+	public void setChosenFood(int slot, int serial) {
+		this.chosenFood = slot;
+		this.chosenFoodSerial = serial;
+	}
+	public void setChosenTerrain(int id) {
+		this.chosenTerrain = id;
+	}
+
+	public Simulator getSimulator() {
+		return simulator;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+}
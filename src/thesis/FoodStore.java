@@ -0,0 +1,519 @@
+package thesis;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ *
+ * All of a world's food, stored as parallel primitive arrays indexed by slot rather than as one object per piece.
+ * Only uneaten food is in the live list of its type. When a piece is eaten or removed its slot goes on a free list
+ * and is reused by the next piece added, so a run that adds and eats food at a steady rate uses a fixed number
+ * of slots (eaten food is remembered for drawing by EatenFoodHistory, not here).
+ *
+ * Uneaten food is also bucketed by its center into a uniform grid of CELL_SIZE cells, one linked list per
+ * cell and type, so that food near a point can be found without scanning every piece. Points outside
+ * the world's bounds fall into the nearest edge cell.
+ *
+ * A fork of a world (see World.fork()) shares the food store's arrays until one of the two changes them; eating only
+ * changes the lists, so the positions and values of the food stay shared until food is added or moved.
+ *
+ */
+public class FoodStore {
+
+	private double[] x = new double[0], y = new double[0]; //Upper left-hand corner of each piece
+	private int[] value = new int[0]; //How much energy each piece contains
+	private byte[] type = new byte[0]; //0-distance; 1-energy
+	private int[] serial = new int[0]; //Number identifying the piece in each slot, never given to another piece
+	private int nextSerial = 0; //Serial of the next piece added
+	private int[] livePos = new int[0]; //Position of each slot in its type's live list; -1 once eaten or removed
+	private int count = 0; //Number of slots used, live or free
+	private IntList free = new IntList(); //Slots of eaten or removed food, reused by add()
+
+	private int[][] live = {new int[16], new int[16]}; //Slots of the uneaten food of each type
+	private int[] liveCount = new int[2]; //Number of uneaten pieces of each type
+	private int maxValue = 0; //Largest value of any food added
+	private int maxSize = 0; //Largest size of any food added
+
+	private final int columns, rows; //Size of the grid in cells
+	private int[][] cellHead; //First slot in each cell, per type; -1 for an empty cell
+	private int[] cellNext = new int[0], cellPrev = new int[0]; //Neighbours of each live slot in its cell's list; -1 at the ends
+	private int[] cell = new int[0]; //Cell index of each live slot
+
+	private boolean positionsShared; //Whether x, y, value, type and serial are shared with a fork and must be copied before they are changed
+	private boolean listsShared; //Whether the live, free and cell lists are shared with a fork and must be copied before they are changed
+
+	/**
+	 * Width and height of a grid cell in pixels
+	 */
+	public final static int CELL_SIZE = 64;
+
+	/**
+	 * Constructor
+	 * @param width	Width of the world
+	 * @param height	Height of the world
+	 */
+	public FoodStore(int width, int height){
+		columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+		rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+		cellHead = new int[2][columns*rows];
+		Arrays.fill(cellHead[0], -1);
+		Arrays.fill(cellHead[1], -1);
+	}
+
+	/**
+	 * Adds a piece of food
+	 * @param x	X-coordinate of upper left-hand corner
+	 * @param y	Y-coordinate of upper left-hand corner
+	 * @param value	Value of the food, 5-10
+	 * @param type	0-distance; 1-energy
+	 * @return	Slot of the new food
+	 */
+	public int add(double x, double y, int value, int type){
+		ownPositions();
+		ownLists();
+		if (free.size() > 0){
+			int slot = free.get(free.size() - 1);
+			free.removeAt(free.size() - 1);
+			return fill(slot, x, y, value, type);
+		}
+		if (count == this.x.length){
+			int capacity = Math.max(16, count*2);
+			this.x = Arrays.copyOf(this.x, capacity);
+			this.y = Arrays.copyOf(this.y, capacity);
+			this.value = Arrays.copyOf(this.value, capacity);
+			this.type = Arrays.copyOf(this.type, capacity);
+			serial = Arrays.copyOf(serial, capacity);
+			livePos = Arrays.copyOf(livePos, capacity);
+			cellNext = Arrays.copyOf(cellNext, capacity);
+			cellPrev = Arrays.copyOf(cellPrev, capacity);
+			cell = Arrays.copyOf(cell, capacity);
+		}
+		return fill(count++, x, y, value, type);
+	}
+
+	/**
+	 * Puts a new piece of food in a slot
+	 * @return	The slot
+	 */
+	private int fill(int slot, double x, double y, int value, int type){
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.value[slot] = value;
+		this.type[slot] = (byte) type;
+		serial[slot] = nextSerial++;
+
+		if (liveCount[type] == live[type].length){
+			live[type] = Arrays.copyOf(live[type], liveCount[type]*2);
+		}
+		livePos[slot] = liveCount[type];
+		live[type][liveCount[type]++] = slot;
+		maxValue = Math.max(maxValue, value);
+		maxSize = Math.max(maxSize, Food.getSize(value));
+		link(slot);
+		return slot;
+	}
+
+	/**
+	 * Takes a piece of food out of its live list (when eaten or deleted) and frees its slot for reuse.
+	 * The last live piece of the same type takes its place in the list.
+	 * @param slot	Slot of the food
+	 */
+	public void remove(int slot){
+		int t = type[slot];
+		int pos = livePos[slot];
+		if (pos < 0) return;
+		ownLists();
+		int last = live[t][--liveCount[t]];
+		live[t][pos] = last;
+		livePos[last] = pos;
+		livePos[slot] = -1;
+		unlink(slot);
+		free.add(slot);
+	}
+
+	/**
+	 * Puts a live slot at the head of the list of the cell its center is in
+	 */
+	private void link(int slot){
+		int c = getRow(getCenterY(slot))*columns + getColumn(getCenterX(slot));
+		int[] head = cellHead[type[slot]];
+		cell[slot] = c;
+		cellPrev[slot] = -1;
+		cellNext[slot] = head[c];
+		if (head[c] >= 0) cellPrev[head[c]] = slot;
+		head[c] = slot;
+	}
+
+	/**
+	 * Takes a slot out of its cell's list
+	 */
+	private void unlink(int slot){
+		if (cellPrev[slot] >= 0) cellNext[cellPrev[slot]] = cellNext[slot];
+		else cellHead[type[slot]][cell[slot]] = cellNext[slot];
+		if (cellNext[slot] >= 0) cellPrev[cellNext[slot]] = cellPrev[slot];
+	}
+
+	/**
+	 * Removes all food
+	 */
+	public void clear(){
+		ownLists();
+		count = 0;
+		free.clear();
+		liveCount[0] = 0;
+		liveCount[1] = 0;
+		maxValue = 0;
+		maxSize = 0;
+		Arrays.fill(cellHead[0], -1);
+		Arrays.fill(cellHead[1], -1);
+	}
+
+	/**
+	 * Makes this store a copy of another one, reusing its own arrays where they are big enough
+	 * @param source	A store of a world of the same size
+	 */
+	public void copyFrom(FoodStore source){
+		ownPositions();
+		ownLists();
+		if (x.length < source.count){
+			int capacity = source.x.length;
+			x = new double[capacity];
+			y = new double[capacity];
+			value = new int[capacity];
+			type = new byte[capacity];
+			serial = new int[capacity];
+			livePos = new int[capacity];
+			cellNext = new int[capacity];
+			cellPrev = new int[capacity];
+			cell = new int[capacity];
+		}
+		count = source.count;
+		System.arraycopy(source.x, 0, x, 0, count);
+		System.arraycopy(source.y, 0, y, 0, count);
+		System.arraycopy(source.value, 0, value, 0, count);
+		System.arraycopy(source.type, 0, type, 0, count);
+		System.arraycopy(source.serial, 0, serial, 0, count);
+		System.arraycopy(source.livePos, 0, livePos, 0, count);
+		System.arraycopy(source.cellNext, 0, cellNext, 0, count);
+		System.arraycopy(source.cellPrev, 0, cellPrev, 0, count);
+		System.arraycopy(source.cell, 0, cell, 0, count);
+		free.clear();
+		for (int k = 0; k < source.free.size(); k++){
+			free.add(source.free.get(k));
+		}
+		for (int t = 0; t < 2; t++){
+			if (live[t].length < source.liveCount[t]){
+				live[t] = new int[source.live[t].length];
+			}
+			System.arraycopy(source.live[t], 0, live[t], 0, source.liveCount[t]);
+			liveCount[t] = source.liveCount[t];
+			System.arraycopy(source.cellHead[t], 0, cellHead[t], 0, cellHead[t].length);
+		}
+		maxValue = source.maxValue;
+		maxSize = source.maxSize;
+		nextSerial = source.nextSerial;
+	}
+
+	/**
+	 * Writes every slot, the free and live lists and the grid as they are, so that a store read back hands out
+	 * slots and finds food in the same order (see WorldFile)
+	 * @param out	Where to write
+	 */
+	void write(BinaryOutput out) throws IOException {
+		out.writeInt(count);
+		out.writeInt(nextSerial);
+		out.writeInt(maxValue);
+		out.writeInt(maxSize);
+		out.writeDoubles(x, count);
+		out.writeDoubles(y, count);
+		out.writeInts(value, count);
+		out.writeBytes(type, count);
+		out.writeInts(serial, count);
+		out.writeInts(livePos, count);
+		out.writeInts(cellNext, count);
+		out.writeInts(cellPrev, count);
+		out.writeInts(cell, count);
+		out.writeInt(free.size());
+		for (int k = 0; k < free.size(); k++){
+			out.writeInt(free.get(k));
+		}
+		for (int t = 0; t < 2; t++){
+			out.writeInt(liveCount[t]);
+			out.writeInts(live[t], liveCount[t]);
+		}
+		out.writeInt(columns*rows);
+		out.writeInts(cellHead[0], columns*rows);
+		out.writeInts(cellHead[1], columns*rows);
+	}
+
+	/**
+	 * Replaces all food with what write() wrote
+	 * @param in	Where to read from
+	 */
+	void read(BinaryInput in) throws IOException {
+		ownPositions();
+		ownLists();
+		int n = in.readLength(in.getRemaining());
+		if (x.length < n){
+			x = new double[n];
+			y = new double[n];
+			value = new int[n];
+			type = new byte[n];
+			serial = new int[n];
+			livePos = new int[n];
+			cellNext = new int[n];
+			cellPrev = new int[n];
+			cell = new int[n];
+		}
+		count = n;
+		nextSerial = in.readInt();
+		maxValue = in.readInt();
+		maxSize = in.readInt();
+		in.readDoubles(x, n);
+		in.readDoubles(y, n);
+		in.readInts(value, n);
+		in.readBytes(type, n);
+		in.readInts(serial, n);
+		in.readInts(livePos, n);
+		in.readInts(cellNext, n);
+		in.readInts(cellPrev, n);
+		in.readInts(cell, n);
+		free.clear();
+		int freeCount = in.readLength(n);
+		for (int k = 0; k < freeCount; k++){
+			free.add(in.readInt());
+		}
+		for (int t = 0; t < 2; t++){
+			liveCount[t] = in.readLength(n);
+			if (live[t].length < liveCount[t]){
+				live[t] = new int[liveCount[t]];
+			}
+			in.readInts(live[t], liveCount[t]);
+		}
+		int cells = in.readInt();
+		if (cells != columns*rows){
+			throw new IOException("Food grid has " + cells + " cells, not the " + columns*rows + " of a world this size");
+		}
+		in.readInts(cellHead[0], cells);
+		in.readInts(cellHead[1], cells);
+	}
+
+	/**
+	 * Makes this store a copy of another one to be changed separately (see World.fork()). The two stores share
+	 * their arrays until either one changes them.
+	 * @param source	A store of a world of the same size
+	 */
+	void shareFrom(FoodStore source){
+		x = source.x;
+		y = source.y;
+		value = source.value;
+		type = source.type;
+		serial = source.serial;
+		livePos = source.livePos;
+		cellNext = source.cellNext;
+		cellPrev = source.cellPrev;
+		cell = source.cell;
+		free = source.free;
+		live = source.live;
+		cellHead = source.cellHead;
+		liveCount = source.liveCount.clone();
+		count = source.count;
+		nextSerial = source.nextSerial;
+		maxValue = source.maxValue;
+		maxSize = source.maxSize;
+		positionsShared = listsShared = true;
+		source.positionsShared = source.listsShared = true;
+	}
+
+	/**
+	 * Copies the positions and values of the food if they are shared, so they can be changed
+	 */
+	private void ownPositions(){
+		if (!positionsShared) return;
+		x = x.clone();
+		y = y.clone();
+		value = value.clone();
+		type = type.clone();
+		serial = serial.clone();
+		positionsShared = false;
+	}
+
+	/**
+	 * Copies the lists if they are shared, so they can be changed
+	 */
+	private void ownLists(){
+		if (!listsShared) return;
+		livePos = livePos.clone();
+		cellNext = cellNext.clone();
+		cellPrev = cellPrev.clone();
+		cell = cell.clone();
+		IntList shared = free;
+		free = new IntList(shared.size());
+		for (int k = 0; k < shared.size(); k++){
+			free.add(shared.get(k));
+		}
+		live = new int[][] {live[0].clone(), live[1].clone()};
+		cellHead = new int[][] {cellHead[0].clone(), cellHead[1].clone()};
+		listsShared = false;
+	}
+
+	/**
+	 * @param type	0-distance; 1-energy
+	 * @return	Number of uneaten pieces of that type
+	 */
+	public int getLiveCount(int type){
+		return liveCount[type];
+	}
+
+	/**
+	 * @param type	0-distance; 1-energy
+	 * @param i	Position in the live list, 0 to getLiveCount(type)-1
+	 * @return	Slot of the i-th uneaten piece of that type
+	 */
+	public int getLiveSlot(int type, int i){
+		return live[type][i];
+	}
+
+	public boolean isLive(int slot){
+		return livePos[slot] >= 0;
+	}
+
+	/**
+	 * @return	Number identifying the piece of food in a slot; a piece added later to the same slot gets another one
+	 */
+	public int getSerial(int slot){
+		return serial[slot];
+	}
+
+	/**
+	 * @param slot	Slot of a piece of food, possibly from before the store changed
+	 * @param serial	Serial of that piece
+	 * @return	Whether that piece is still in the slot and uneaten
+	 */
+	public boolean isLive(int slot, int serial){
+		return slot >= 0 && slot < count && livePos[slot] >= 0 && this.serial[slot] == serial;
+	}
+
+	/**
+	 * Reset upper left corner at (x,y)
+	 */
+	public void setPos(int slot, double x, double y){
+		ownPositions();
+		ownLists();
+		if (isLive(slot)) unlink(slot);
+		this.x[slot] = x;
+		this.y[slot] = y;
+		if (isLive(slot)) link(slot);
+	}
+
+	public double getX(int slot){
+		return x[slot];
+	}
+
+	public double getY(int slot){
+		return y[slot];
+	}
+
+	public int getValue(int slot){
+		return value[slot];
+	}
+
+	public int getType(int slot){
+		return type[slot];
+	}
+
+	/**
+	 * @return	Width (and height) of the food's area
+	 */
+	public int getSize(int slot){
+		return Food.getSize(value[slot]);
+	}
+
+	public double getCenterX(int slot){
+		return (x[slot] + (x[slot] + getSize(slot)))/2;
+	}
+
+	public double getCenterY(int slot){
+		return (y[slot] + (y[slot] + getSize(slot)))/2;
+	}
+
+	/**
+	 * @return	Whether (px, py) is within the food's area
+	 */
+	public boolean contains(int slot, double px, double py){
+		int size = getSize(slot);
+		return px >= x[slot] && py >= y[slot] && px < x[slot] + size && py < y[slot] + size;
+	}
+
+	/**
+	 * @return	Whether the food's area, give or take a pixel for rounding when it is drawn, overlaps the rectangle
+	 */
+	public boolean intersects(int slot, double rx, double ry, double rw, double rh){
+		int size = getSize(slot);
+		return x[slot] - 1 < rx + rw && x[slot] + size + 1 > rx && y[slot] - 1 < ry + rh && y[slot] + size + 1 > ry;
+	}
+
+	/**
+	 * @return	Number of slots used, live or free; slots are numbered 0 to getCount()-1
+	 */
+	public int getCount(){
+		return count;
+	}
+
+	/**
+	 * @return	Largest value of any food added since the store was last cleared
+	 */
+	public int getMaxValue(){
+		return maxValue;
+	}
+
+	/**
+	 * @return	Largest size of any food added since the store was last cleared
+	 */
+	public int getMaxSize(){
+		return maxSize;
+	}
+
+	public int getColumns(){
+		return columns;
+	}
+
+	public int getRows(){
+		return rows;
+	}
+
+	/**
+	 * @param px	X-coordinate of a point
+	 * @return	Column of the grid cell the point is in, clamped to the grid
+	 */
+	public int getColumn(double px){
+		return Math.min(columns - 1, Math.max(0, (int) Math.floor(px / CELL_SIZE)));
+	}
+
+	/**
+	 * @param py	Y-coordinate of a point
+	 * @return	Row of the grid cell the point is in, clamped to the grid
+	 */
+	public int getRow(double py){
+		return Math.min(rows - 1, Math.max(0, (int) Math.floor(py / CELL_SIZE)));
+	}
+
+	/**
+	 * @param type	0-distance; 1-energy
+	 * @param column	Column of a grid cell
+	 * @param row	Row of a grid cell
+	 * @return	Slot of the first uneaten piece of that type in the cell, or -1 if there is none
+	 */
+	public int getFirstInCell(int type, int column, int row){
+		return cellHead[type][row*columns + column];
+	}
+
+	/**
+	 * @param slot	Slot of an uneaten piece of food
+	 * @return	Slot of the next uneaten piece of the same type in the same cell, or -1 if there is none
+	 */
+	public int getNextInCell(int slot){
+		return cellNext[slot];
+	}
+
+}
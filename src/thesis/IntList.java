@@ -0,0 +1,66 @@
+package thesis;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Growable list of ints, used instead of List<Integer> so that lists of indices do not box.
+ *
+ */
+public class IntList {
+
+	private int[] values; //Backing array; only the first size entries are used
+	private int size = 0; //Number of values in the list
+
+	public IntList(){
+		this(16);
+	}
+
+	/**
+	 * Constructor
+	 * @param capacity	Initial capacity
+	 */
+	public IntList(int capacity){
+		values = new int[Math.max(capacity, 1)];
+	}
+
+	public void add(int value){
+		if (size == values.length){
+			values = Arrays.copyOf(values, size*2);
+		}
+		values[size++] = value;
+	}
+
+	public int get(int index){
+		return values[index];
+	}
+
+	public void set(int index, int value){
+		values[index] = value;
+	}
+
+	/**
+	 * Removes the value at an index, shifting later values down
+	 * @param index	Index of the value to remove
+	 */
+	public void removeAt(int index){
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+	}
+
+	public boolean contains(int value){
+		for (int i = 0; i < size; i++){
+			if (values[i] == value) return true;
+		}
+		return false;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public void clear(){
+		size = 0;
+	}
+
+}
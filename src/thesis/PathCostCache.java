@@ -0,0 +1,265 @@
+package thesis;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * The parts of an energy vehicle's path cost that depend only on the terrain and the food, not on where
+ * the vehicle is: each patch's center, radius and cost, in terrain list order, and for each piece of food,
+ * which patches contain it entirely, and a lower bound on what those patches add to the cost of reaching it.
+ * Terrain edits update only the patch that changed (a removal, which shifts later patches down the list,
+ * recomputes everything), and new or moved food only its own row.
+ * World calls the update methods; vehicles only read.
+ *
+ */
+public class PathCostCache {
+
+	private final FoodStore food; //Food of the world
+	private final List<Terrain> terrainList; //Terrain of the world
+
+	private double[] centerX = new double[0], centerY = new double[0], radius = new double[0]; //Circle of each patch
+	private int[] cost = new int[0], id = new int[0]; //Cost and id of each patch
+	private int terrainCount = 0; //Number of patches
+
+	private long[] contained = new long[0]; //Bit j of a food slot's row is set if patch j contains the food
+	private int words = 1; //Number of longs in each food slot's row
+	private double[] penalty = new double[0]; //Per food slot, a lower bound on the extra cost of the patches containing it
+	private boolean shared; //Whether the arrays are shared with a fork and must be copied before they are changed
+
+	/**
+	 * Constructor
+	 * @param food	The world's food
+	 * @param terrainList	The world's terrain list
+	 */
+	public PathCostCache(FoodStore food, List<Terrain> terrainList){
+		this.food = food;
+		this.terrainList = terrainList;
+	}
+
+	/**
+	 * Recomputes everything, e.g. after a patch was removed or a world was loaded. Only uneaten food gets a row;
+	 * a piece whose center is outside a patch's bounding box cannot be inside the patch, so each patch only looks
+	 * at the food in the grid cells under its box.
+	 */
+	public void rebuild(){
+		own();
+		int n = terrainList.size();
+		words = Math.max(1, (n + 63) >>> 6);
+		contained = new long[Math.max(16, food.getCount())*words];
+		penalty = new double[Math.max(16, food.getCount())];
+		growPatches(n);
+		for (int j = 0; j < n; j++){
+			Terrain terrain = terrainList.get(j);
+			cachePatch(j, terrain);
+			int word = j >>> 6;
+			long bit = 1L << (j & 63);
+			int lastColumn = food.getColumn(centerX[j] + radius[j]), lastRow = food.getRow(centerY[j] + radius[j]);
+			for (int column = food.getColumn(centerX[j] - radius[j]); column <= lastColumn; column++){
+				for (int row = food.getRow(centerY[j] - radius[j]); row <= lastRow; row++){
+					for (int type = 0; type < 2; type++){
+						for (int slot = food.getFirstInCell(type, column, row); slot >= 0; slot = food.getNextInCell(slot)){
+							if (containsFood(terrain, slot)) contained[slot*words + word] |= bit;
+						}
+					}
+				}
+			}
+		}
+		terrainCount = n;
+		for (int slot = 0; slot < food.getCount(); slot++){
+			if (food.isLive(slot)) updatePenalty(slot);
+		}
+	}
+
+	/**
+	 * Caches the last patch in the terrain list, which was just added
+	 */
+	public void terrainAdded(){
+		own();
+		int j = terrainCount;
+		growPatches(j + 1);
+		if (j >= words*64){
+			//rows are full: lay them out again with room for more patches
+			terrainCount = 0;
+			words *= 2;
+			contained = new long[Math.max(16, food.getCount())*words];
+			for (int k = 0; k < j; k++){
+				terrainAdded();
+			}
+		}
+		terrainCount = j + 1;
+		terrainMoved(j);
+	}
+
+	/**
+	 * Recaches a patch that moved
+	 * @param j	Index of the patch in the terrain list
+	 */
+	public void terrainMoved(int j){
+		own();
+		Terrain terrain = terrainList.get(j);
+		cachePatch(j, terrain);
+		int word = j >>> 6;
+		long bit = 1L << (j & 63);
+		for (int slot = 0; slot < food.getCount(); slot++){
+			boolean was = (contained[slot*words + word] & bit) != 0;
+			if (containsFood(terrain, slot)) contained[slot*words + word] |= bit;
+			else contained[slot*words + word] &= ~bit;
+			if (was || (contained[slot*words + word] & bit) != 0) updatePenalty(slot);
+		}
+	}
+
+	/**
+	 * Makes this cache a copy of another one, of a world this one's world was forked from (see World.fork()).
+	 * The two caches share their arrays until either one changes them.
+	 * @param source	The cache to copy
+	 */
+	void shareFrom(PathCostCache source){
+		centerX = source.centerX;
+		centerY = source.centerY;
+		radius = source.radius;
+		cost = source.cost;
+		id = source.id;
+		terrainCount = source.terrainCount;
+		contained = source.contained;
+		words = source.words;
+		penalty = source.penalty;
+		shared = source.shared = true;
+	}
+
+	/**
+	 * Copies the arrays if they are shared, so they can be changed
+	 */
+	private void own(){
+		if (!shared) return;
+		centerX = centerX.clone();
+		centerY = centerY.clone();
+		radius = radius.clone();
+		cost = cost.clone();
+		id = id.clone();
+		contained = contained.clone();
+		penalty = penalty.clone();
+		shared = false;
+	}
+
+	/**
+	 * Makes room for a number of patches
+	 */
+	private void growPatches(int patches){
+		if (patches <= centerX.length) return;
+		int capacity = Math.max(patches, Math.max(16, centerX.length*2));
+		centerX = Arrays.copyOf(centerX, capacity);
+		centerY = Arrays.copyOf(centerY, capacity);
+		radius = Arrays.copyOf(radius, capacity);
+		cost = Arrays.copyOf(cost, capacity);
+		id = Arrays.copyOf(id, capacity);
+	}
+
+	private void cachePatch(int j, Terrain terrain){
+		centerX[j] = terrain.getCenterX();
+		centerY[j] = terrain.getCenterY();
+		radius[j] = terrain.getRadius();
+		cost[j] = terrain.getTerrainCost();
+		id[j] = terrain.getId();
+	}
+
+	/**
+	 * Computes the row of a piece of food that was added or moved
+	 * @param slot	Slot of the food
+	 */
+	public void foodChanged(int slot){
+		own();
+		if ((slot + 1)*words > contained.length){
+			contained = Arrays.copyOf(contained, Math.max(contained.length*2, (slot + 1)*words));
+		}
+		if (slot >= penalty.length){
+			penalty = Arrays.copyOf(penalty, Math.max(penalty.length*2, slot + 1));
+		}
+		Arrays.fill(contained, slot*words, (slot + 1)*words, 0);
+		for (int j = 0; j < terrainCount; j++){
+			if (containsFood(terrainList.get(j), slot)) contained[slot*words + (j >>> 6)] |= 1L << (j & 63);
+		}
+		updatePenalty(slot);
+	}
+
+	/**
+	 * Recomputes the penalty of a piece of food from the patches that contain it.
+	 * A path ending at the food is at most as far from a containing patch's center as the food's center is,
+	 * so it crosses at least the chord through the food's center, and pays the patch's cost above flat ground on it.
+	 */
+	private void updatePenalty(int slot){
+		double sum = 0;
+		double foodX = food.getCenterX(slot);
+		double foodY = food.getCenterY(slot);
+		for (int w = 0; w < words; w++){
+			long bits = contained[slot*words + w];
+			while (bits != 0){
+				int j = (w << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				double dx = foodX - centerX[j];
+				double dy = foodY - centerY[j];
+				double chordLength = 2*Math.sqrt(Math.max(0, radius[j]*radius[j] - dx*dx - dy*dy));
+				sum += chordLength*Math.max(0, cost[j] - Terrain.FLAT_TERRAIN_COST);
+			}
+		}
+		penalty[slot] = sum;
+	}
+
+	/**
+	 * Empties the cache, for a cleared world
+	 */
+	public void clear(){
+		terrainCount = 0;
+		words = 1;
+		contained = new long[0];
+		penalty = new double[0];
+	}
+
+	private boolean containsFood(Terrain terrain, int slot){
+		return terrain.containsRect(food.getX(slot), food.getY(slot), food.getSize(slot), food.getSize(slot));
+	}
+
+	/**
+	 * @param slot	Slot of a piece of food
+	 * @param j	Index of a patch in the terrain list
+	 * @return	Whether the patch contains the whole piece of food
+	 */
+	public boolean contains(int slot, int j){
+		return (contained[slot*words + (j >>> 6)] & (1L << (j & 63))) != 0;
+	}
+
+	/**
+	 * @param slot	Slot of a piece of food
+	 * @return	A lower bound on the extra cost of reaching the food due to the patches it lies in, as a distance
+	 * times a cost (convert with Vehicle.calculateEnergyExpenditure(penalty, 1)). Only a bound when no patch is
+	 * cheaper than flat ground.
+	 */
+	public double getPenalty(int slot){
+		return penalty[slot];
+	}
+
+	public int getTerrainCount(){
+		return terrainCount;
+	}
+
+	public double getCenterX(int j){
+		return centerX[j];
+	}
+
+	public double getCenterY(int j){
+		return centerY[j];
+	}
+
+	public double getRadius(int j){
+		return radius[j];
+	}
+
+	public int getCost(int j){
+		return cost[j];
+	}
+
+	public int getId(int j){
+		return id[j];
+	}
+
+}
@@ -0,0 +1,43 @@
+package thesis;
+
+/**
+ *
+ * Splits the time one thread spends advancing a run of vehicles into the phases of SimMetrics. Each thread of the
+ * advance phase times its vehicles with a clock of its own and adds the totals to the shared metrics once at the end
+ * (SimMetrics.addPhases()), so timing does not make the threads contend. Clocks are reused: start() clears the
+ * totals. Reading the time for every phase of every vehicle costs about as much as a cheap step, so a clock only
+ * times the phases when told to (see SimMetrics.isTimingPhases()); it always counts the retargets.
+ *
+ */
+class PhaseClock {
+
+	final long[] nanos = new long[SimMetrics.ADVANCE_PHASES]; //Time spent in each phase of the advance phase
+	int retargets = 0; //Number of times a vehicle picked a new target
+	private boolean timing = false; //Whether the phases are being timed
+	private long last; //Time of the last mark
+
+	/**
+	 * Clears the totals and starts timing
+	 * @param timing	Whether to time the phases, or only count the retargets
+	 */
+	void start(boolean timing){
+		for (int phase = 0; phase < nanos.length; phase++){
+			nanos[phase] = 0;
+		}
+		retargets = 0;
+		this.timing = timing;
+		if (timing) last = System.nanoTime();
+	}
+
+	/**
+	 * Adds the time since the last mark (or start()) to a phase, if the phases are being timed
+	 * @param phase	SimMetrics.RETARGETING etc.
+	 */
+	void mark(int phase){
+		if (!timing) return;
+		long now = System.nanoTime();
+		nanos[phase] += now - last;
+		last = now;
+	}
+
+}
@@ -0,0 +1,272 @@
+package thesis;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ *
+ * Where the time of a running world goes, and how much happens in it: time spent in each phase of a tick and in
+ * drawing frames, and counts of ticks, frames, retargets, food eaten, deaths and spawns. A World given one with
+ * setMetrics() times its ticks; Field times its frames. The counts are atomic, so they can be added to from the
+ * ticking threads and read from anywhere, e.g. over JMX (register()) or by Field's overlay.
+ *
+ * Rates and times per tick are worked out from the counts at most once a second, as averages since the last time.
+ * Timing the phases of the advance phase is costly, so they are only timed while someone reads the phase times: from
+ * the first read until PHASES_WANTED_NANOS after the last (see isTimingPhases()). Their times per tick are averages
+ * over the ticks timed.
+ *
+ */
+public class SimMetrics implements SimMetricsMBean {
+
+	/**
+	 * Phases of a tick timed per vehicle in the advance phase (see PhaseClock), then the commit phase and drawing
+	 */
+	public final static int RETARGETING = 0, SENSING = 1, MOTION = 2, TERRAIN_COST = 3, COMMIT = 4, RENDER = 5;
+	/**
+	 * Number of phases timed by PhaseClock
+	 */
+	public final static int ADVANCE_PHASES = 4;
+	private final static int PHASES = 6;
+
+	/**
+	 * Things counted
+	 */
+	public final static int RETARGETS = 0, FOODS_EATEN = 1, DEATHS = 2, SPAWNS = 3, TICKS = 4, FRAMES = 5;
+	private final static int TIMED_TICKS = 6; //Ticks whose advance phase was timed
+	private final static int COUNTERS = 7;
+
+	/**
+	 * Name the metrics are registered under by register()
+	 */
+	public final static String OBJECT_NAME = "thesis:type=SimMetrics";
+
+	private final static long SAMPLE_NANOS = 1000000000L; //Shortest time over which rates are averaged
+	private final static long PHASES_WANTED_NANOS = 10*SAMPLE_NANOS; //How long the phases are timed after their times were read; longer than JConsole's polling interval
+
+	private final AtomicLongArray nanos = new AtomicLongArray(PHASES); //Time spent in each phase
+	private final AtomicLongArray counts = new AtomicLongArray(COUNTERS); //Number of each thing counted
+
+	private long sampleTime = System.nanoTime(); //When the rates were last worked out
+	private volatile long phasesReadTime = System.nanoTime() - PHASES_WANTED_NANOS; //When the phase times were last read; long enough ago that they are not timed yet
+	private long samples = 0; //Number of times the rates were worked out or reset
+	private final long[] sampleNanos = new long[PHASES], sampleCounts = new long[COUNTERS]; //Totals at that time
+	private double ticksPerSecond, framesPerSecond; //Rates since the sample before
+	private final double[] microsPerTick = new double[PHASES]; //Time per tick in each phase, or per frame for RENDER
+
+	/**
+	 * Adds the times and retargets measured by one thread in the advance phase
+	 * @param clock	The thread's clock
+	 */
+	public void addPhases(PhaseClock clock){
+		for (int phase = 0; phase < ADVANCE_PHASES; phase++){
+			nanos.addAndGet(phase, clock.nanos[phase]);
+		}
+		counts.addAndGet(RETARGETS, clock.retargets);
+	}
+
+	/**
+	 * Counts a tick
+	 * @param commitNanos	Time the commit phase took
+	 * @param phasesTimed	Whether its advance phase was timed
+	 */
+	public void addTick(long commitNanos, boolean phasesTimed){
+		nanos.addAndGet(COMMIT, commitNanos);
+		counts.incrementAndGet(TICKS);
+		if (phasesTimed) counts.incrementAndGet(TIMED_TICKS);
+	}
+
+	/**
+	 * @return	Whether the phases of the advance phase should be timed: only while the overlay or a JMX client is
+	 * reading their times
+	 */
+	public boolean isTimingPhases(){
+		return System.nanoTime() - phasesReadTime < PHASES_WANTED_NANOS;
+	}
+
+	/**
+	 * Counts a frame
+	 * @param renderNanos	Time drawing it took
+	 */
+	public void addFrame(long renderNanos){
+		nanos.addAndGet(RENDER, renderNanos);
+		counts.incrementAndGet(FRAMES);
+	}
+
+	/**
+	 * @param counter	FOODS_EATEN, DEATHS or SPAWNS
+	 */
+	public void count(int counter){
+		counts.incrementAndGet(counter);
+	}
+
+	/**
+	 * @param counter	RETARGETS, FOODS_EATEN etc.
+	 * @return	Number counted since the metrics were made or reset
+	 */
+	public long getCount(int counter){
+		return counts.get(counter);
+	}
+
+	/**
+	 * @param phase	RETARGETING, SENSING, MOTION, TERRAIN_COST or COMMIT
+	 * @return	Average microseconds per tick spent in that phase, summed over all threads; for RENDER, per frame
+	 */
+	public synchronized double getMicrosPerTick(int phase){
+		phasesReadTime = System.nanoTime();
+		sample();
+		return microsPerTick[phase];
+	}
+
+	/**
+	 * Works out the rates again if a second has passed since the last time
+	 */
+	private synchronized void sample(){
+		long now = System.nanoTime();
+		long elapsed = now - sampleTime;
+		if (elapsed < SAMPLE_NANOS) return;
+		long ticks = counts.get(TICKS) - sampleCounts[TICKS];
+		long frames = counts.get(FRAMES) - sampleCounts[FRAMES];
+		long timedTicks = counts.get(TIMED_TICKS) - sampleCounts[TIMED_TICKS];
+		ticksPerSecond = ticks * 1e9 / elapsed;
+		framesPerSecond = frames * 1e9 / elapsed;
+		for (int phase = 0; phase < PHASES; phase++){
+			long spent = nanos.get(phase) - sampleNanos[phase];
+			long per = phase == RENDER ? frames : phase < ADVANCE_PHASES ? timedTicks : ticks;
+			microsPerTick[phase] = per > 0 ? spent / 1000.0 / per : 0;
+			sampleNanos[phase] += spent;
+		}
+		for (int counter = 0; counter < COUNTERS; counter++){
+			sampleCounts[counter] = counts.get(counter);
+		}
+		sampleTime = now;
+		samples++;
+	}
+
+	/**
+	 * Works out the rates again if a second has passed since the last time
+	 * @return	Number of times the rates were worked out or reset; when it changes, the rates have new values
+	 */
+	public synchronized long getSamples(){
+		sample();
+		return samples;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server, so that tools such as JConsole can watch them. They are
+	 * registered under OBJECT_NAME, or under OBJECT_NAME plus ",instance=2" etc. if other metrics in the same JVM
+	 * (another simulator or applet) already have it. Where MBeans cannot be registered (e.g. no permission in a
+	 * browser), the metrics are only shown by Field's overlay.
+	 */
+	public void register(){
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			for (int instance = 1; ; instance++){
+				try {
+					server.registerMBean(this, new ObjectName(instance == 1 ? OBJECT_NAME : OBJECT_NAME + ",instance=" + instance));
+					return;
+				} catch (InstanceAlreadyExistsException e) {
+					//taken by other metrics; try the next name
+				}
+			}
+		} catch (SecurityException e) {
+			//not allowed to use JMX here
+		} catch (JMException e) {
+			//not registered; the overlay still shows the metrics
+		}
+	}
+
+	@Override
+	public synchronized void reset(){
+		for (int phase = 0; phase < PHASES; phase++){
+			nanos.set(phase, 0);
+			sampleNanos[phase] = 0;
+			microsPerTick[phase] = 0;
+		}
+		for (int counter = 0; counter < COUNTERS; counter++){
+			counts.set(counter, 0);
+			sampleCounts[counter] = 0;
+		}
+		ticksPerSecond = 0;
+		framesPerSecond = 0;
+		sampleTime = System.nanoTime();
+		samples++;
+	}
+
+	@Override
+	public long getTicks(){
+		return counts.get(TICKS);
+	}
+
+	@Override
+	public long getFrames(){
+		return counts.get(FRAMES);
+	}
+
+	@Override
+	public synchronized double getTicksPerSecond(){
+		sample();
+		return ticksPerSecond;
+	}
+
+	@Override
+	public synchronized double getFramesPerSecond(){
+		sample();
+		return framesPerSecond;
+	}
+
+	@Override
+	public double getSensingMicrosPerTick(){
+		return getMicrosPerTick(SENSING);
+	}
+
+	@Override
+	public double getRetargetingMicrosPerTick(){
+		return getMicrosPerTick(RETARGETING);
+	}
+
+	@Override
+	public double getMotionMicrosPerTick(){
+		return getMicrosPerTick(MOTION);
+	}
+
+	@Override
+	public double getTerrainCostMicrosPerTick(){
+		return getMicrosPerTick(TERRAIN_COST);
+	}
+
+	@Override
+	public double getCommitMicrosPerTick(){
+		return getMicrosPerTick(COMMIT);
+	}
+
+	@Override
+	public double getRenderMicrosPerFrame(){
+		return getMicrosPerTick(RENDER);
+	}
+
+	@Override
+	public long getRetargets(){
+		return counts.get(RETARGETS);
+	}
+
+	@Override
+	public long getFoodsEaten(){
+		return counts.get(FOODS_EATEN);
+	}
+
+	@Override
+	public long getDeaths(){
+		return counts.get(DEATHS);
+	}
+
+	@Override
+	public long getSpawns(){
+		return counts.get(SPAWNS);
+	}
+
+}
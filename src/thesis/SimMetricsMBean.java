@@ -0,0 +1,33 @@
+package thesis;
+
+/**
+ *
+ * What SimMetrics shows over JMX. Rates and per-tick times are averages over about the last second. The phases are
+ * only timed while their times are being read, so the first read after a while shows no time for them.
+ *
+ */
+public interface SimMetricsMBean {
+
+	long getTicks();
+	long getFrames();
+	double getTicksPerSecond();
+	double getFramesPerSecond();
+
+	double getSensingMicrosPerTick();
+	double getRetargetingMicrosPerTick();
+	double getMotionMicrosPerTick();
+	double getTerrainCostMicrosPerTick();
+	double getCommitMicrosPerTick();
+	double getRenderMicrosPerFrame();
+
+	long getRetargets();
+	long getFoodsEaten();
+	long getDeaths();
+	long getSpawns();
+
+	/**
+	 * Sets every count and time back to zero
+	 */
+	void reset();
+
+}
@@ -0,0 +1,67 @@
+package thesis;
+
+/**
+ *
+ * Small seedable random number generator (SplitMix64) whose whole state is one long,
+ * so a world's random streams can be reproduced, saved and restored exactly.
+ *
+ */
+public class SimRandom {
+
+	private long state; //The generator state; advanced by GOLDEN_GAMMA on every draw
+
+	private final static long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/**
+	 * Constructor
+	 * @param seed	Initial state
+	 */
+	public SimRandom(long seed){
+		this.state = seed;
+	}
+
+	/**
+	 * Derives the seed of an independent stream from a master seed
+	 * @param seed	Master seed
+	 * @param stream	Number of the stream
+	 * @return	Seed for that stream
+	 */
+	public static long streamSeed(long seed, int stream){
+		return mix(seed + (stream + 1) * GOLDEN_GAMMA);
+	}
+
+	private static long mix(long z){
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	public long nextLong(){
+		state += GOLDEN_GAMMA;
+		return mix(state);
+	}
+
+	/**
+	 * @param bound	Upper bound (exclusive); must be positive
+	 * @return	A random int from 0 to bound-1
+	 */
+	public int nextInt(int bound){
+		return (int)(((nextLong() >>> 32) * bound) >>> 32);
+	}
+
+	/**
+	 * @return	A random double from 0 (inclusive) to 1 (exclusive)
+	 */
+	public double nextDouble(){
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	public long getState() {
+		return state;
+	}
+
+	public void setState(long state) {
+		this.state = state;
+	}
+
+}
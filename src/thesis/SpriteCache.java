@@ -0,0 +1,167 @@
+package thesis;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ *
+ * The food images, decoded once and scaled once per food value, so that drawing a piece of food is a
+ * plain copy of a sprite of the right size instead of a decode and a rescale every frame.
+ * Sprites for the default food values are made up front; any other value gets its sprite the first time
+ * it is drawn. Vehicle wheels and sensors are kept as sprites too, one per diameter, and so are the circles
+ * drawn around selected things. Copying a sprite gives the same pixels whether or not it is clipped, which
+ * Field's dirty-region drawing relies on; Java2D draws ovals slightly differently when they are clipped.
+ *
+ */
+public class SpriteCache {
+
+	private final BufferedImage[] images; //Decoded image of each entry of Food.pathnames; null if it could not be read
+	private BufferedImage[][] sprites; //Sprite of each image for each food value, indexed [image][value]; null until made
+	private BufferedImage[] wheels = new BufferedImage[0]; //Wheel and sensor sprite for each diameter; null until made
+	private Map<Color, BufferedImage[]> rings = new HashMap<Color, BufferedImage[]>(); //Circle sprites of each color for each diameter
+	private BufferedImage circle; //Last circle made by getCircleSprite()
+	private double circleX, circleY, circleDiameter; //Circle that was drawn into it
+	private Color circleColor; //Color it was drawn in
+
+	/**
+	 * Constructor: reads the food images and scales them for the default food values
+	 */
+	public SpriteCache(){
+		images = new BufferedImage[Food.pathnames.length];
+		sprites = new BufferedImage[Food.pathnames.length][0];
+		for (int k = 0; k < images.length; k++){
+			images[k] = read(Food.pathnames[k]);
+		}
+		WorldConfig defaults = new WorldConfig();
+		for (int k = 0; k < images.length; k++){
+			for (int value = defaults.getMinFoodValue(); value <= defaults.getMaxFoodValue(); value++){
+				getSprite(k, value);
+			}
+		}
+	}
+
+	/**
+	 * @param image	Food.DISTANCE, Food.ENERGY, Food.DISTANCE_EATEN or Food.ENERGY_EATEN
+	 * @param value	Value of a piece of food
+	 * @return	The image scaled to the size of a piece of food of that value; null if the image could not be read
+	 */
+	public BufferedImage getSprite(int image, int value){
+		BufferedImage[] row = sprites[image];
+		if (value < row.length && row[value] != null) return row[value];
+		if (images[image] == null || value <= 0) return null;
+		if (value >= row.length){
+			row = sprites[image] = Arrays.copyOf(row, Math.max(16, value + 1));
+		}
+		int size = Food.getSize(value);
+		BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = sprite.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g2.drawImage(images[image], 0, 0, size, size, null);
+		g2.dispose();
+		row[value] = sprite;
+		return sprite;
+	}
+
+	/**
+	 * @param diameter	Diameter of a vehicle's wheel or sensor
+	 * @return	A disc of Vehicle.WHEEL_COLOR with exactly the pixels fillOval(0, 0, diameter, diameter) would fill; null if
+	 * the diameter is not positive
+	 */
+	public BufferedImage getWheelSprite(int diameter){
+		if (diameter < wheels.length && wheels[diameter] != null) return wheels[diameter];
+		if (diameter <= 0) return null;
+		if (diameter >= wheels.length){
+			wheels = Arrays.copyOf(wheels, Math.max(16, diameter + 1));
+		}
+		BufferedImage sprite = new BufferedImage(diameter, diameter, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = sprite.createGraphics();
+		g2.setColor(Vehicle.WHEEL_COLOR);
+		g2.fillOval(0, 0, diameter, diameter);
+		g2.dispose();
+		wheels[diameter] = sprite;
+		return sprite;
+	}
+
+	/**
+	 * @param diameter	Diameter of a circle
+	 * @param color	Color of the circle
+	 * @return	An image of diameter+1 pixels square with exactly the pixels drawOval(0, 0, diameter, diameter) would draw;
+	 * null if the diameter is not positive
+	 */
+	public BufferedImage getRingSprite(int diameter, Color color){
+		BufferedImage[] row = rings.get(color);
+		if (row == null){
+			row = new BufferedImage[0];
+			rings.put(color, row);
+		}
+		if (diameter < row.length && row[diameter] != null) return row[diameter];
+		if (diameter <= 0) return null;
+		if (diameter >= row.length){
+			row = Arrays.copyOf(row, Math.max(16, diameter + 1));
+			rings.put(color, row);
+		}
+		BufferedImage sprite = new BufferedImage(diameter + 1, diameter + 1, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = sprite.createGraphics();
+		g2.setColor(color);
+		g2.drawOval(0, 0, diameter, diameter);
+		g2.dispose();
+		row[diameter] = sprite;
+		return sprite;
+	}
+
+	/**
+	 * A circle at any position, such as the outline of a terrain patch. Only the last one asked for is kept.
+	 * @param x	X-coordinate of upper left corner of the circle
+	 * @param y	Y-coordinate of upper left corner of the circle
+	 * @param diameter	Diameter of the circle
+	 * @param color	Color of the circle
+	 * @return	An image to draw at (floor(x)-1, floor(y)-1) with the pixels drawing the circle as an Ellipse2D would draw
+	 */
+	public BufferedImage getCircleSprite(double x, double y, double diameter, Color color){
+		if (circle != null && x == circleX && y == circleY && diameter == circleDiameter && color.equals(circleColor)) return circle;
+		int size = (int) Math.ceil(diameter) + 3;
+		circle = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g2 = circle.createGraphics();
+		g2.setColor(color);
+		//the same position within a pixel, so that it is drawn the same way
+		g2.draw(new Ellipse2D.Double(x - Math.floor(x) + 1, y - Math.floor(y) + 1, diameter, diameter));
+		g2.dispose();
+		circleX = x;
+		circleY = y;
+		circleDiameter = diameter;
+		circleColor = color;
+		return circle;
+	}
+
+	private static BufferedImage read(String pathname){
+		InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(pathname);
+		if (in == null){
+			System.err.println("Missing image: " + pathname);
+			return null;
+		}
+		try {
+			return ImageIO.read(in);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		finally {
+			try {
+				in.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,312 @@
+package thesis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+/**
+ *
+ * Runs a parameter sweep headless: every combination of the swept values, times a number of
+ * replicates, runs as its own World on a work-stealing pool, and the results are written as CSV.
+ *
+ * The sweep is read from a properties file. Swept keys take a comma-separated list of values:
+ * foodRefillAmount, foodRefillInterval (seconds of simulated time), terrainCount, vehicles
+ * (number of vehicles of each type) and initialFood. Other keys set one value for every run:
+ * replicates, seed, maxTicks, threads, speed, initialEnergy, terrainCosts (e.g. "10 15 20"),
+ * wheelNormalizer, vehicleSize, addNewVehicles, terrainRasterCellSize. Setting telemetryTicksPerSample records
+ * telemetry of every run (see TelemetryRecorder), sampling every vehicle whose serial is a multiple of
+ * telemetryVehicleStride (default 1).
+ *
+ * Usage: SweepRunner sweep.properties outputPrefix
+ * Writes outputPrefix-runs.csv (one line per run) and outputPrefix-summary.csv (one line per configuration), and
+ * with telemetry outputPrefix-run-N.tel for the Nth run in the order of outputPrefix-runs.csv, counting from 0.
+ *
+ */
+public class SweepRunner {
+
+	private final static int DISTANCE = 0; //Constant for distance type
+	private final static int ENERGY = 1; //Constant for energy type
+
+	/**
+	 * One point of the sweep; replicates of it differ only in seed
+	 */
+	static class Setting {
+		WorldConfig config;
+		int terrainCount, vehicles, initialFood;
+		int foodRefillSeconds;
+
+		String csv(){
+			return config.getFoodRefillAmount() + "," + foodRefillSeconds + "," + terrainCount + "," + vehicles + "," + initialFood;
+		}
+	}
+
+	/**
+	 * Outcome of a single run
+	 */
+	static class Result {
+		Setting setting;
+		int replicate;
+		long seed;
+		long ticks; //Ticks run before all vehicles died or maxTicks was reached
+		boolean allDead;
+		int[] deaths = new int[2]; //Deaths by vehicle type
+		long[] extinctionTick = {-1, -1}; //Tick at which the last vehicle of each type died; -1 if some survived
+		int[] eaten = new int[2]; //Food eaten by vehicle type
+		double[] meanEnergy = new double[2]; //Mean energy of surviving vehicles of each type at the end
+
+		/**
+		 * @param type	Vehicle type
+		 * @return	Ticks the type survived; runs where it never died out count as maxTicks
+		 */
+		long survival(int type){
+			return extinctionTick[type] >= 0 ? extinctionTick[type] : ticks;
+		}
+	}
+
+	/**
+	 * Runs one world to the end
+	 */
+	static class Run implements Callable<Result> {
+		private final Setting setting;
+		private final int replicate;
+		private final long seed, maxTicks;
+		private final File telemetryFile; //Where to record telemetry; null to not record it
+		private final int ticksPerSample, vehicleStride;
+
+		Run(Setting setting, int replicate, long seed, long maxTicks, File telemetryFile, int ticksPerSample, int vehicleStride){
+			this.setting = setting;
+			this.replicate = replicate;
+			this.seed = seed;
+			this.maxTicks = maxTicks;
+			this.telemetryFile = telemetryFile;
+			this.ticksPerSample = ticksPerSample;
+			this.vehicleStride = vehicleStride;
+		}
+
+		@Override
+		public Result call() throws IOException {
+			final Result result = new Result();
+			result.setting = setting;
+			result.replicate = replicate;
+			result.seed = seed;
+
+			final World world = new World(setting.config.copy(), seed);
+			for (int i = 0; i < setting.terrainCount; i++){
+				world.addTerrain(i % 3, 0);
+			}
+			for (int i = 0; i < setting.initialFood; i++){
+				world.addFood();
+			}
+			for (int i = 0; i < setting.vehicles; i++){
+				world.generateNewVehicle(DISTANCE, world.getConfig().getVehicleSize());
+				world.generateNewVehicle(ENERGY, world.getConfig().getVehicleSize());
+			}
+			world.setListener(new WorldListener(){
+				public void vehicleDied(Vehicle vehicle) {
+					int type = vehicle.getVehicleType();
+					result.deaths[type]++;
+					if (result.deaths[type] == setting.vehicles && !world.getConfig().isAddNewVehicles()){
+						result.extinctionTick[type] = world.getTick();
+					}
+				}
+				public void allDead() {
+				}
+			});
+
+			if (telemetryFile != null){
+				TelemetryRecorder telemetry = new TelemetryRecorder(telemetryFile, ticksPerSample, vehicleStride, 1, Deflater.BEST_SPEED);
+				world.setTelemetry(telemetry);
+				try {
+					result.ticks = world.run(maxTicks);
+				} finally {
+					world.setTelemetry(null);
+					telemetry.close();
+				}
+			}
+			else {
+				result.ticks = world.run(maxTicks);
+			}
+			result.allDead = world.allDead();
+
+			result.eaten[DISTANCE] = (int) world.getEatenFood().getTotal(DISTANCE);
+			result.eaten[ENERGY] = (int) world.getEatenFood().getTotal(ENERGY);
+			int[] living = new int[2];
+			for (int i = 0; i < world.getVehicleCount(); i++){
+				Vehicle vehicle = world.getVehicle(i);
+				if (!vehicle.isDeceased()){
+					living[vehicle.getVehicleType()]++;
+					result.meanEnergy[vehicle.getVehicleType()] += vehicle.getEnergy();
+				}
+			}
+			for (int type = 0; type < 2; type++){
+				if (living[type] > 0) result.meanEnergy[type] /= living[type];
+			}
+			return result;
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+		if (args.length != 2){
+			System.err.println("Usage: SweepRunner sweep.properties outputPrefix");
+			System.exit(1);
+		}
+		Properties props = new Properties();
+		InputStream in = new FileInputStream(args[0]);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+
+		List<Setting> settings = settings(props);
+		int replicates = Integer.parseInt(props.getProperty("replicates", "1"));
+		long seed = Long.parseLong(props.getProperty("seed", "1"));
+		long maxTicks = Long.parseLong(props.getProperty("maxTicks", "10000000"));
+		int threads = Integer.parseInt(props.getProperty("threads", Integer.toString(Runtime.getRuntime().availableProcessors())));
+		int ticksPerSample = Integer.parseInt(props.getProperty("telemetryTicksPerSample", "0"));
+		int vehicleStride = Integer.parseInt(props.getProperty("telemetryVehicleStride", "1"));
+
+		//every replicate r of every setting uses the same seed, so settings are compared on the same random layouts
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for (Setting setting : settings){
+			for (int r = 0; r < replicates; r++){
+				File telemetryFile = ticksPerSample > 0 ? new File(args[1] + "-run-" + futures.size() + ".tel") : null;
+				futures.add(pool.submit(new Run(setting, r, SimRandom.streamSeed(seed, r), maxTicks, telemetryFile, ticksPerSample, vehicleStride)));
+			}
+		}
+		System.out.println("Running " + futures.size() + " worlds on " + threads + " threads");
+
+		PrintWriter runs = new PrintWriter(new FileWriter(args[1] + "-runs.csv"));
+		PrintWriter summary = new PrintWriter(new FileWriter(args[1] + "-summary.csv"));
+		try {
+			runs.println("foodRefillAmount,foodRefillInterval,terrainCount,vehicles,initialFood,replicate,seed,ticks,allDead,"
+					+ "distanceDeaths,energyDeaths,distanceSurvival,energySurvival,distanceEaten,energyEaten,distanceMeanEnergy,energyMeanEnergy");
+			summary.println("foodRefillAmount,foodRefillInterval,terrainCount,vehicles,initialFood,replicates,"
+					+ "distanceSurvivalMean,distanceSurvivalSd,energySurvivalMean,energySurvivalSd,"
+					+ "distanceEatenMean,energyEatenMean,distanceMeanEnergy,energyMeanEnergy");
+			int next = 0;
+			for (Setting setting : settings){
+				List<Result> results = new ArrayList<Result>();
+				for (int r = 0; r < replicates; r++){
+					Result result = futures.get(next++).get();
+					results.add(result);
+					runs.println(setting.csv() + "," + result.replicate + "," + result.seed + "," + result.ticks + "," + result.allDead
+							+ "," + result.deaths[DISTANCE] + "," + result.deaths[ENERGY]
+							+ "," + result.survival(DISTANCE) + "," + result.survival(ENERGY)
+							+ "," + result.eaten[DISTANCE] + "," + result.eaten[ENERGY]
+							+ "," + result.meanEnergy[DISTANCE] + "," + result.meanEnergy[ENERGY]);
+				}
+				summary.println(summarize(setting, results));
+				System.out.println("Finished " + next + "/" + futures.size());
+			}
+		} finally {
+			runs.close();
+			summary.close();
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Averages the replicates of one setting
+	 * @return	A line of the summary CSV
+	 */
+	private static String summarize(Setting setting, List<Result> results){
+		StringBuilder line = new StringBuilder(setting.csv()).append(',').append(results.size());
+		for (int type = 0; type < 2; type++){
+			double mean = 0, sq = 0;
+			for (Result result : results){
+				mean += result.survival(type);
+			}
+			mean /= results.size();
+			for (Result result : results){
+				sq += Math.pow(result.survival(type) - mean, 2);
+			}
+			double sd = results.size() > 1 ? Math.sqrt(sq / (results.size() - 1)) : 0;
+			line.append(',').append(mean).append(',').append(sd);
+		}
+		for (int type = 0; type < 2; type++){
+			double eaten = 0;
+			for (Result result : results){
+				eaten += result.eaten[type];
+			}
+			line.append(',').append(eaten / results.size());
+		}
+		for (int type = 0; type < 2; type++){
+			double energy = 0;
+			for (Result result : results){
+				energy += result.meanEnergy[type];
+			}
+			line.append(',').append(energy / results.size());
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Expands the swept values into one Setting per combination
+	 */
+	private static List<Setting> settings(Properties props){
+		WorldConfig base = new WorldConfig();
+		base.setAddNewVehicles(Boolean.parseBoolean(props.getProperty("addNewVehicles", "false")));
+		base.setEatenFoodHistory(0); //only the counts are reported
+		if (props.getProperty("speed") != null) base.setSpeed(Double.parseDouble(props.getProperty("speed")));
+		if (props.getProperty("initialEnergy") != null) base.setInitialEnergy(Integer.parseInt(props.getProperty("initialEnergy")));
+		if (props.getProperty("wheelNormalizer") != null) base.setWheelNormalizer(Double.parseDouble(props.getProperty("wheelNormalizer")));
+		if (props.getProperty("vehicleSize") != null) base.setVehicleSize(Integer.parseInt(props.getProperty("vehicleSize")));
+		if (props.getProperty("terrainRasterCellSize") != null) base.setTerrainRasterCellSize(Integer.parseInt(props.getProperty("terrainRasterCellSize")));
+		if (props.getProperty("terrainCosts") != null){
+			String[] costs = props.getProperty("terrainCosts").trim().split("\\s+");
+			int[] terrainCosts = new int[costs.length];
+			for (int i = 0; i < costs.length; i++){
+				terrainCosts[i] = Integer.parseInt(costs[i]);
+			}
+			base.setTerrainCosts(terrainCosts);
+		}
+
+		List<Setting> settings = new ArrayList<Setting>();
+		for (int amount : values(props, "foodRefillAmount", "10")){
+			for (int seconds : values(props, "foodRefillInterval", "10")){
+				for (int terrainCount : values(props, "terrainCount", "0")){
+					for (int vehicles : values(props, "vehicles", "10")){
+						for (int initialFood : values(props, "initialFood", "20")){
+							Setting setting = new Setting();
+							setting.config = base.copy();
+							setting.config.setFoodRefillAmount(amount);
+							setting.config.setFoodRefillInterval(seconds * World.TICKS_PER_SECOND);
+							setting.foodRefillSeconds = seconds;
+							setting.terrainCount = terrainCount;
+							setting.vehicles = vehicles;
+							setting.initialFood = initialFood;
+							settings.add(setting);
+						}
+					}
+				}
+			}
+		}
+		return settings;
+	}
+
+	/**
+	 * Parses a comma-separated list of ints
+	 */
+	private static int[] values(Properties props, String key, String defaultValue){
+		String[] parts = props.getProperty(key, defaultValue).split(",");
+		int[] values = new int[parts.length];
+		for (int i = 0; i < parts.length; i++){
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,443 @@
+package thesis;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ *
+ * Reads a file written by TelemetryRecorder a block at a time. next() moves to the next block, whose records are
+ * then read by index: samples of single vehicles, or aggregates of the distance and energy populations (per type, 0
+ * for distance and 1 for energy, as in Vehicle). A file that was not closed (e.g. the program was killed) reads up
+ * to its last whole block.
+ *
+ * Usage: TelemetryReader file.tel outputPrefix
+ * Writes outputPrefix-vehicles.csv (one line per sample) and outputPrefix-populations.csv (one line per aggregate).
+ *
+ */
+public class TelemetryReader implements Closeable {
+
+	private final File file;
+	private final FileChannel channel;
+	private final int ticksPerSample, vehicleStride, ticksPerAggregate; //Sampling the file was recorded with
+	private long offset; //Offset of the next block
+	private boolean ended = false; //Whether the last block has been read
+	private boolean complete = false; //Whether the file ends as a closed recording does
+	private long droppedSamples = 0, droppedAggregates = 0; //Read from the end of the file
+
+	private final Inflater inflater = new Inflater();
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 12); //Bytes read from the file
+	private byte[] raw = new byte[1 << 16]; //The block uncompressed
+
+	private int kind = TelemetryRecorder.END; //Kind of the current block
+	private int records = 0; //Number of records in it
+	private long[] tick = new long[0];
+	//samples
+	private int[] serial = new int[0];
+	private byte[] type = new byte[0];
+	private double[] energy = new double[0], traveled = new double[0], costPaid = new double[0];
+	private int[] eaten = new int[0];
+	//aggregates, at 2*i + type
+	private int[] living = new int[0], dead = new int[0];
+	private double[] totalEnergy = new double[0], totalTraveled = new double[0], totalCostPaid = new double[0];
+	private long[] totalEaten = new long[0];
+
+	/**
+	 * Opens a telemetry file
+	 * @param file	File written by TelemetryRecorder
+	 */
+	public TelemetryReader(File file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			BinaryInput in = new BinaryInput(read(0, (int) Math.min(channel.size(), 20)));
+			if (in.readInt() != TelemetryRecorder.MAGIC) throw new IOException("Not a telemetry file");
+			int version = in.readInt();
+			if (version < 1 || version > TelemetryRecorder.VERSION) throw new IOException("Telemetry file version " + version + " is not supported (up to " + TelemetryRecorder.VERSION + ")");
+			ticksPerSample = in.readInt();
+			vehicleStride = in.readInt();
+			ticksPerAggregate = in.readInt();
+			offset = in.getPosition();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves to the next block
+	 * @return	Its kind: TelemetryRecorder.SAMPLES or AGGREGATES; END if there are no more
+	 */
+	public int next() throws IOException {
+		kind = TelemetryRecorder.END;
+		records = 0;
+		if (ended) return kind;
+		long size = channel.size();
+		if (offset + 4 > size){
+			ended = true;
+			return kind;
+		}
+		int blockKind = new BinaryInput(read(offset, 4)).readInt();
+		if (blockKind == TelemetryRecorder.END){
+			ended = true;
+			if (offset + 24 == size){
+				BinaryInput in = new BinaryInput(read(offset + 4, 20));
+				droppedSamples = in.readLong();
+				droppedAggregates = in.readLong();
+				complete = in.readInt() == TelemetryRecorder.MAGIC;
+			}
+			return kind;
+		}
+		if (blockKind != TelemetryRecorder.SAMPLES && blockKind != TelemetryRecorder.AGGREGATES){
+			throw new IOException("Unknown block " + blockKind + " at byte " + offset + " of " + file);
+		}
+		if (offset + 16 > size){
+			ended = true;
+			return kind;
+		}
+		BinaryInput header = new BinaryInput(read(offset + 4, 12));
+		int n = header.readInt();
+		int length = header.readInt();
+		int compressedLength = header.readInt();
+		int recordLength = blockKind == TelemetryRecorder.SAMPLES ? 8 + 4 + 1 + 8 + 8 + 8 + 4 : 8 + 2*(4 + 4 + 8 + 8 + 8 + 8);
+		if (n < 0 || length != (long) n * recordLength || compressedLength < 0){
+			throw new IOException("Bad block at byte " + offset + " of " + file);
+		}
+		if (offset + 16 + compressedLength > size){
+			//cut short when the program was killed
+			ended = true;
+			return kind;
+		}
+		inflate(read(offset + 16, compressedLength), length);
+		offset += 16 + compressedLength;
+		ByteBuffer in = ByteBuffer.wrap(raw, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+		if (blockKind == TelemetryRecorder.SAMPLES){
+			readSamples(in, n);
+		}
+		else {
+			readAggregates(in, n);
+		}
+		kind = blockKind;
+		records = n;
+		return kind;
+	}
+
+	private void inflate(ByteBuffer compressed, int length) throws IOException {
+		if (raw.length < length) raw = new byte[Math.max(length, raw.length * 2)];
+		inflater.reset();
+		inflater.setInput(compressed.array(), 0, compressed.limit());
+		try {
+			int n = 0;
+			while (n < length && !inflater.finished()){
+				int inflated = inflater.inflate(raw, n, length - n);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+				n += inflated;
+			}
+			if (n != length) throw new IOException("Block at byte " + offset + " of " + file + " is corrupt");
+		} catch (DataFormatException e) {
+			throw new IOException("Block at byte " + offset + " of " + file + " is corrupt", e);
+		}
+	}
+
+	private void readSamples(ByteBuffer in, int n){
+		if (serial.length < n){
+			tick = new long[n];
+			serial = new int[n];
+			type = new byte[n];
+			energy = new double[n];
+			traveled = new double[n];
+			costPaid = new double[n];
+			eaten = new int[n];
+		}
+		long t = 0;
+		for (int i = 0; i < n; i++){
+			t += in.getLong();
+			tick[i] = t;
+		}
+		int s = 0;
+		for (int i = 0; i < n; i++){
+			s += in.getInt();
+			serial[i] = s;
+		}
+		in.get(type, 0, n);
+		in.asDoubleBuffer().get(energy, 0, n);
+		in.position(in.position() + 8*n);
+		in.asDoubleBuffer().get(traveled, 0, n);
+		in.position(in.position() + 8*n);
+		in.asDoubleBuffer().get(costPaid, 0, n);
+		in.position(in.position() + 8*n);
+		in.asIntBuffer().get(eaten, 0, n);
+	}
+
+	private void readAggregates(ByteBuffer in, int n){
+		if (living.length < 2*n){
+			if (tick.length < n) tick = new long[n];
+			living = new int[2*n];
+			dead = new int[2*n];
+			totalEnergy = new double[2*n];
+			totalTraveled = new double[2*n];
+			totalCostPaid = new double[2*n];
+			totalEaten = new long[2*n];
+		}
+		else if (tick.length < n){
+			tick = new long[n];
+		}
+		long t = 0;
+		for (int i = 0; i < n; i++){
+			t += in.getLong();
+			tick[i] = t;
+		}
+		for (int type = 0; type < 2; type++){
+			for (int i = 0; i < n; i++){
+				living[2*i + type] = in.getInt();
+			}
+			for (int i = 0; i < n; i++){
+				dead[2*i + type] = in.getInt();
+			}
+			for (int i = 0; i < n; i++){
+				totalEnergy[2*i + type] = in.getDouble();
+			}
+			for (int i = 0; i < n; i++){
+				totalTraveled[2*i + type] = in.getDouble();
+			}
+			for (int i = 0; i < n; i++){
+				totalCostPaid[2*i + type] = in.getDouble();
+			}
+			for (int i = 0; i < n; i++){
+				totalEaten[2*i + type] = in.getLong();
+			}
+		}
+	}
+
+	/**
+	 * Reads bytes at a position in the file
+	 * @return	A buffer holding just them, reused by the next read
+	 */
+	private ByteBuffer read(long position, int length) throws IOException {
+		if (buffer.capacity() < length){
+			buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+		}
+		buffer.clear();
+		buffer.limit(length);
+		while (buffer.hasRemaining()){
+			if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException("Unexpected end of " + file);
+		}
+		buffer.flip();
+		return buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		channel.close();
+	}
+
+	/**
+	 * @return	Kind of the current block: TelemetryRecorder.SAMPLES or AGGREGATES; END before the first block and after the last
+	 */
+	public int getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return	Number of records in the current block
+	 */
+	public int getRecords() {
+		return records;
+	}
+
+	/**
+	 * @param i	Record of the current block
+	 * @return	Tick it was taken after
+	 */
+	public long getTick(int i){
+		return tick[i];
+	}
+
+	/**
+	 * @param i	Sample of the current block
+	 * @return	Serial of the vehicle
+	 */
+	public int getSerial(int i){
+		return serial[i];
+	}
+
+	/**
+	 * @param i	Sample of the current block
+	 * @return	Type of the vehicle
+	 */
+	public int getType(int i){
+		return type[i];
+	}
+
+	/**
+	 * @param i	Sample of the current block
+	 * @return	Energy of the vehicle
+	 */
+	public double getEnergy(int i){
+		return energy[i];
+	}
+
+	/**
+	 * @param i	Sample of the current block
+	 * @return	Distance the vehicle had traveled
+	 */
+	public double getTraveled(int i){
+		return traveled[i];
+	}
+
+	/**
+	 * @param i	Sample of the current block
+	 * @return	Energy the vehicle had spent moving, terrain costs included
+	 */
+	public double getCostPaid(int i){
+		return costPaid[i];
+	}
+
+	/**
+	 * @param i	Sample of the current block
+	 * @return	Pieces of food the vehicle had eaten
+	 */
+	public int getEaten(int i){
+		return eaten[i];
+	}
+
+	/**
+	 * @param i	Aggregate of the current block
+	 * @param type	Vehicle type
+	 * @return	Number of living vehicles of the type
+	 */
+	public int getLiving(int i, int type){
+		return living[2*i + type];
+	}
+
+	/**
+	 * @param i	Aggregate of the current block
+	 * @param type	Vehicle type
+	 * @return	Number of dead vehicles of the type still in the world
+	 */
+	public int getDead(int i, int type){
+		return dead[2*i + type];
+	}
+
+	/**
+	 * @param i	Aggregate of the current block
+	 * @param type	Vehicle type
+	 * @return	Total energy of the living vehicles of the type
+	 */
+	public double getTotalEnergy(int i, int type){
+		return totalEnergy[2*i + type];
+	}
+
+	/**
+	 * @param i	Aggregate of the current block
+	 * @param type	Vehicle type
+	 * @return	Total distance traveled by the vehicles of the type, living and dead
+	 */
+	public double getTotalTraveled(int i, int type){
+		return totalTraveled[2*i + type];
+	}
+
+	/**
+	 * @param i	Aggregate of the current block
+	 * @param type	Vehicle type
+	 * @return	Total energy spent moving by the vehicles of the type, living and dead
+	 */
+	public double getTotalCostPaid(int i, int type){
+		return totalCostPaid[2*i + type];
+	}
+
+	/**
+	 * @param i	Aggregate of the current block
+	 * @param type	Vehicle type
+	 * @return	Total pieces of food eaten by the vehicles of the type, living and dead
+	 */
+	public long getTotalEaten(int i, int type){
+		return totalEaten[2*i + type];
+	}
+
+	/**
+	 * @return	Whether the end of the file has been read and it was closed properly
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/**
+	 * @return	Number of samples the recorder dropped; known once the end of a complete file has been read
+	 */
+	public long getDroppedSamples() {
+		return droppedSamples;
+	}
+
+	/**
+	 * @return	Number of aggregates the recorder dropped; known once the end of a complete file has been read
+	 */
+	public long getDroppedAggregates() {
+		return droppedAggregates;
+	}
+
+	public int getTicksPerSample() {
+		return ticksPerSample;
+	}
+
+	public int getVehicleStride() {
+		return vehicleStride;
+	}
+
+	public int getTicksPerAggregate() {
+		return ticksPerAggregate;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2){
+			System.err.println("Usage: TelemetryReader file.tel outputPrefix");
+			System.exit(1);
+		}
+		TelemetryReader reader = new TelemetryReader(new File(args[0]));
+		PrintWriter vehicles = new PrintWriter(new FileWriter(args[1] + "-vehicles.csv"));
+		PrintWriter populations = new PrintWriter(new FileWriter(args[1] + "-populations.csv"));
+		try {
+			vehicles.println("tick,serial,type,energy,traveled,costPaid,eaten");
+			populations.println("tick,distanceLiving,distanceDead,distanceEnergy,distanceTraveled,distanceCostPaid,distanceEaten,"
+					+ "energyLiving,energyDead,energyEnergy,energyTraveled,energyCostPaid,energyEaten");
+			long samples = 0, aggregates = 0;
+			while (reader.next() != TelemetryRecorder.END){
+				for (int i = 0; i < reader.getRecords(); i++){
+					if (reader.getKind() == TelemetryRecorder.SAMPLES){
+						vehicles.println(reader.getTick(i) + "," + reader.getSerial(i) + "," + reader.getType(i) + "," + reader.getEnergy(i)
+								+ "," + reader.getTraveled(i) + "," + reader.getCostPaid(i) + "," + reader.getEaten(i));
+						samples++;
+					}
+					else {
+						StringBuilder line = new StringBuilder().append(reader.getTick(i));
+						for (int type = 0; type < 2; type++){
+							line.append(',').append(reader.getLiving(i, type)).append(',').append(reader.getDead(i, type))
+									.append(',').append(reader.getTotalEnergy(i, type)).append(',').append(reader.getTotalTraveled(i, type))
+									.append(',').append(reader.getTotalCostPaid(i, type)).append(',').append(reader.getTotalEaten(i, type));
+						}
+						populations.println(line);
+						aggregates++;
+					}
+				}
+			}
+			System.out.println(samples + " samples, " + aggregates + " aggregates"
+					+ (reader.isComplete() ? ", dropped " + reader.getDroppedSamples() + " samples and " + reader.getDroppedAggregates() + " aggregates"
+							: "; the file was not closed"));
+		} finally {
+			vehicles.close();
+			populations.close();
+			reader.close();
+		}
+	}
+
+}
@@ -0,0 +1,409 @@
+package thesis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.Deflater;
+
+/**
+ *
+ * Writes time series of a running world to a file for analysis: samples of single vehicles (energy, distance
+ * traveled, cost paid getting over the ground and food eaten, the last three counted since the vehicle was added),
+ * and aggregates of the distance and energy populations (living and dead vehicles, total energy of the living, and
+ * total distance, cost and food of all of them). Vehicles are sampled every ticksPerSample ticks, and only those
+ * whose serial is a multiple of vehicleStride; aggregates are taken every ticksPerAggregate ticks.
+ *
+ * The ticking thread only copies each sample, a fixed-size record, into the next free row of a ring of columns
+ * allocated up front, and does the same for aggregates on a ring of their own. A writer thread takes the records off
+ * the rings and gathers them into blocks of up to BLOCK_RECORDS samples, or fewer aggregates. Each block is written as columns, one
+ * field after another, and compressed with Deflater, so each column is compressed with values like it. If the
+ * writer falls so far behind that a ring cannot take all of a tick's records, they are dropped and counted rather
+ * than waited for.
+ *
+ * File layout (little-endian): MAGIC, VERSION, ticksPerSample, vehicleStride, ticksPerAggregate, then blocks, each
+ * of them its kind (SAMPLES or AGGREGATES), number of records, uncompressed and compressed lengths and the
+ * compressed columns (see TelemetryReader for the columns), then END, the numbers of samples and aggregates
+ * dropped, and MAGIC again.
+ *
+ * The world calls the recorder from whichever thread ticks it; close() it once it has been taken out of the world.
+ *
+ */
+public class TelemetryRecorder implements Closeable {
+
+	/**
+	 * First (and last) four bytes of a telemetry file: "TELM"
+	 */
+	public final static int MAGIC = 0x4d4c4554;
+
+	/**
+	 * Version of the format written
+	 */
+	public final static int VERSION = 1;
+
+	/**
+	 * Kinds of block
+	 */
+	public final static int END = 0, SAMPLES = 1, AGGREGATES = 2;
+
+	/**
+	 * Ticks between samples of the vehicles by default: 100 samples per second of simulated time
+	 */
+	public final static int DEFAULT_TICKS_PER_SAMPLE = 100;
+
+	/**
+	 * Most records in one block
+	 */
+	public final static int BLOCK_RECORDS = 1 << 16;
+
+	private final static int SAMPLE_CAPACITY = 1 << 19; //Samples that can wait for the writer; a power of 2
+	private final static int AGGREGATE_CAPACITY = 1 << 14; //Aggregates that can wait for the writer; a power of 2
+	private final static int AGGREGATE_BLOCK_RECORDS = AGGREGATE_CAPACITY / 4; //Most aggregates in one block
+	private final static long WRITER_PARK_NANOS = 1000000L; //Longest the writer sleeps before looking for records again
+
+	private final int ticksPerSample; //Ticks between samples
+	private final int vehicleStride; //Vehicles sampled: those whose serial is a multiple of this
+	private final int ticksPerAggregate; //Ticks between aggregates
+
+	//ring of samples, filled by the ticking thread and emptied by the writer
+	private final long[] sampleTick = new long[SAMPLE_CAPACITY];
+	private final int[] sampleSerial = new int[SAMPLE_CAPACITY];
+	private final byte[] sampleType = new byte[SAMPLE_CAPACITY];
+	private final double[] sampleEnergy = new double[SAMPLE_CAPACITY];
+	private final double[] sampleTraveled = new double[SAMPLE_CAPACITY];
+	private final double[] sampleCostPaid = new double[SAMPLE_CAPACITY];
+	private final int[] sampleEaten = new int[SAMPLE_CAPACITY];
+	private final AtomicLong sampleHead = new AtomicLong(), sampleTail = new AtomicLong(); //Samples put on and taken off
+
+	//ring of aggregates; per type fields hold the distance population at 2*i and the energy population at 2*i+1
+	private final long[] aggregateTick = new long[AGGREGATE_CAPACITY];
+	private final int[] living = new int[2*AGGREGATE_CAPACITY], dead = new int[2*AGGREGATE_CAPACITY];
+	private final double[] energy = new double[2*AGGREGATE_CAPACITY];
+	private final double[] traveled = new double[2*AGGREGATE_CAPACITY], costPaid = new double[2*AGGREGATE_CAPACITY];
+	private final long[] eaten = new long[2*AGGREGATE_CAPACITY];
+	private final AtomicLong aggregateHead = new AtomicLong(), aggregateTail = new AtomicLong(); //Aggregates put on and taken off
+
+	private volatile long droppedSamples = 0, droppedAggregates = 0; //Records dropped because a ring was full; written by the ticking thread
+	private volatile boolean closing = false; //Whether no more records will be put on the rings
+
+	//writer thread
+	private final BinaryOutput out; //The file
+	private final Deflater deflater;
+	private ByteBuffer block = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN); //Columns of the block being written
+	private byte[] compressed = new byte[1 << 16]; //The block compressed
+	private final Thread writer;
+	private volatile IOException error; //Why the writer stopped, if it failed
+
+	/**
+	 * Constructor: samples every vehicle every DEFAULT_TICKS_PER_SAMPLE ticks, and aggregates every tick
+	 * @param file	File to write, replaced if it exists
+	 */
+	public TelemetryRecorder(File file) throws IOException {
+		this(file, DEFAULT_TICKS_PER_SAMPLE, 1, 1, Deflater.BEST_SPEED);
+	}
+
+	/**
+	 * Constructor
+	 * @param file	File to write, replaced if it exists
+	 * @param ticksPerSample	Ticks between samples of the vehicles
+	 * @param vehicleStride	Which vehicles to sample: those whose serial is a multiple of this; 1 for all
+	 * @param ticksPerAggregate	Ticks between aggregates of the populations
+	 * @param level	Compression level, 0 (none) to 9 (smallest and slowest); see Deflater
+	 */
+	public TelemetryRecorder(File file, int ticksPerSample, int vehicleStride, int ticksPerAggregate, int level) throws IOException {
+		if (ticksPerSample < 1 || vehicleStride < 1 || ticksPerAggregate < 1) throw new IllegalArgumentException("Sampling intervals must be positive");
+		this.ticksPerSample = ticksPerSample;
+		this.vehicleStride = vehicleStride;
+		this.ticksPerAggregate = ticksPerAggregate;
+		deflater = new Deflater(level);
+		out = new BinaryOutput(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(ticksPerSample);
+			out.writeInt(vehicleStride);
+			out.writeInt(ticksPerAggregate);
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+		writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "Telemetry writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Called by the world after each tick: takes the samples and aggregates that are due
+	 * @param world	The world, between ticks
+	 */
+	void tickDone(World world){
+		long tick = world.getTick();
+		if (tick % ticksPerAggregate == 0) aggregate(world, tick);
+		if (tick % ticksPerSample == 0) sample(world, tick);
+	}
+
+	private void aggregate(World world, long tick){
+		long h = aggregateHead.get();
+		if (h - aggregateTail.get() >= AGGREGATE_CAPACITY){
+			droppedAggregates++;
+			return;
+		}
+		int k = (int) (h & (AGGREGATE_CAPACITY - 1));
+		aggregateTick[k] = tick;
+		for (int t = 2*k; t < 2*k + 2; t++){
+			living[t] = 0;
+			dead[t] = 0;
+			energy[t] = 0;
+			traveled[t] = 0;
+			costPaid[t] = 0;
+			eaten[t] = 0;
+		}
+		VehicleStore vehicles = world.getVehicles();
+		for (int i = 0; i < vehicles.getCount(); i++){
+			int t = 2*k + vehicles.getType(i);
+			if (vehicles.isDeceased(i)){
+				dead[t]++;
+			}
+			else {
+				living[t]++;
+				energy[t] += vehicles.getEnergy(i);
+			}
+			traveled[t] += vehicles.getTraveled(i);
+			costPaid[t] += vehicles.getCostPaid(i);
+			eaten[t] += vehicles.getEaten(i);
+		}
+		aggregateHead.lazySet(h + 1);
+		if (h + 1 - aggregateTail.get() >= AGGREGATE_CAPACITY / 2) LockSupport.unpark(writer);
+	}
+
+	private void sample(World world, long tick){
+		VehicleStore vehicles = world.getVehicles();
+		int n = vehicles.getCount();
+		long h = sampleHead.get();
+		long waiting = h - sampleTail.get();
+		if (SAMPLE_CAPACITY - waiting < n){
+			//drop the whole tick rather than keep the vehicles that happen to come first; n bounds the samples whatever the serials
+			for (int i = 0; i < n; i++){
+				if (vehicles.getSerial(i) % vehicleStride == 0) droppedSamples++;
+			}
+			return;
+		}
+		long k = h;
+		for (int i = 0; i < n; i++){
+			int serial = vehicles.getSerial(i);
+			if (serial % vehicleStride != 0) continue;
+			int row = (int) (k & (SAMPLE_CAPACITY - 1));
+			sampleTick[row] = tick;
+			sampleSerial[row] = serial;
+			sampleType[row] = (byte) vehicles.getType(i);
+			sampleEnergy[row] = vehicles.getEnergy(i);
+			sampleTraveled[row] = vehicles.getTraveled(i);
+			sampleCostPaid[row] = vehicles.getCostPaid(i);
+			sampleEaten[row] = vehicles.getEaten(i);
+			k++;
+		}
+		sampleHead.lazySet(k);
+		if (waiting + (k - h) >= SAMPLE_CAPACITY / 2) LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Runs on the writer thread: writes full blocks as records come, and what is left once closing
+	 */
+	private void write(){
+		try {
+			while (true){
+				boolean last = closing; //read before the heads, so no record put on a ring before closing is missed
+				long samples = sampleHead.get() - sampleTail.get();
+				long aggregates = aggregateHead.get() - aggregateTail.get();
+				if (samples >= BLOCK_RECORDS || (last && samples > 0)){
+					writeSamples((int) Math.min(samples, BLOCK_RECORDS));
+				}
+				else if (aggregates >= AGGREGATE_BLOCK_RECORDS || (last && aggregates > 0)){
+					writeAggregates((int) Math.min(aggregates, AGGREGATE_BLOCK_RECORDS));
+				}
+				else if (last){
+					break;
+				}
+				else {
+					LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+				}
+			}
+			out.writeInt(END);
+			out.writeLong(droppedSamples);
+			out.writeLong(droppedAggregates);
+			out.writeInt(MAGIC);
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			deflater.end();
+			try {
+				out.close();
+			} catch (IOException e) {
+				if (error == null) error = e;
+			}
+		}
+	}
+
+	/**
+	 * Takes samples off the ring and writes them as a block: tick (as the change from the record before), serial
+	 * (likewise), type, energy, distance traveled, cost paid, food eaten
+	 */
+	private void writeSamples(int n) throws IOException {
+		long t = sampleTail.get();
+		startBlock(n * (8 + 4 + 1 + 8 + 8 + 8 + 4));
+		long tick = 0;
+		int serial = 0;
+		for (int i = 0; i < n; i++){
+			int row = (int) ((t + i) & (SAMPLE_CAPACITY - 1));
+			block.putLong(sampleTick[row] - tick);
+			tick = sampleTick[row];
+		}
+		for (int i = 0; i < n; i++){
+			int row = (int) ((t + i) & (SAMPLE_CAPACITY - 1));
+			block.putInt(sampleSerial[row] - serial);
+			serial = sampleSerial[row];
+		}
+		for (int i = 0; i < n; i++){
+			block.put(sampleType[(int) ((t + i) & (SAMPLE_CAPACITY - 1))]);
+		}
+		for (int i = 0; i < n; i++){
+			block.putDouble(sampleEnergy[(int) ((t + i) & (SAMPLE_CAPACITY - 1))]);
+		}
+		for (int i = 0; i < n; i++){
+			block.putDouble(sampleTraveled[(int) ((t + i) & (SAMPLE_CAPACITY - 1))]);
+		}
+		for (int i = 0; i < n; i++){
+			block.putDouble(sampleCostPaid[(int) ((t + i) & (SAMPLE_CAPACITY - 1))]);
+		}
+		for (int i = 0; i < n; i++){
+			block.putInt(sampleEaten[(int) ((t + i) & (SAMPLE_CAPACITY - 1))]);
+		}
+		sampleTail.lazySet(t + n);
+		finishBlock(SAMPLES, n);
+	}
+
+	/**
+	 * Takes aggregates off the ring and writes them as a block: tick (as the change from the record before), then
+	 * for the distance population and then the energy population: living, dead, energy of the living, distance
+	 * traveled, cost paid, food eaten
+	 */
+	private void writeAggregates(int n) throws IOException {
+		long t = aggregateTail.get();
+		startBlock(n * (8 + 2*(4 + 4 + 8 + 8 + 8 + 8)));
+		long tick = 0;
+		for (int i = 0; i < n; i++){
+			int row = (int) ((t + i) & (AGGREGATE_CAPACITY - 1));
+			block.putLong(aggregateTick[row] - tick);
+			tick = aggregateTick[row];
+		}
+		for (int type = 0; type < 2; type++){
+			for (int i = 0; i < n; i++){
+				block.putInt(living[2*(int) ((t + i) & (AGGREGATE_CAPACITY - 1)) + type]);
+			}
+			for (int i = 0; i < n; i++){
+				block.putInt(dead[2*(int) ((t + i) & (AGGREGATE_CAPACITY - 1)) + type]);
+			}
+			for (int i = 0; i < n; i++){
+				block.putDouble(energy[2*(int) ((t + i) & (AGGREGATE_CAPACITY - 1)) + type]);
+			}
+			for (int i = 0; i < n; i++){
+				block.putDouble(traveled[2*(int) ((t + i) & (AGGREGATE_CAPACITY - 1)) + type]);
+			}
+			for (int i = 0; i < n; i++){
+				block.putDouble(costPaid[2*(int) ((t + i) & (AGGREGATE_CAPACITY - 1)) + type]);
+			}
+			for (int i = 0; i < n; i++){
+				block.putLong(eaten[2*(int) ((t + i) & (AGGREGATE_CAPACITY - 1)) + type]);
+			}
+		}
+		aggregateTail.lazySet(t + n);
+		finishBlock(AGGREGATES, n);
+	}
+
+	private void startBlock(int length){
+		if (block.capacity() < length){
+			block = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		block.clear();
+	}
+
+	/**
+	 * Compresses the block and writes it out
+	 */
+	private void finishBlock(int kind, int records) throws IOException {
+		int length = block.position();
+		deflater.reset();
+		deflater.setInput(block.array(), 0, length);
+		deflater.finish();
+		int size = 0;
+		while (!deflater.finished()){
+			if (size == compressed.length){
+				byte[] larger = new byte[compressed.length * 2];
+				System.arraycopy(compressed, 0, larger, 0, size);
+				compressed = larger;
+			}
+			size += deflater.deflate(compressed, size, compressed.length - size);
+		}
+		out.writeInt(kind);
+		out.writeInt(records);
+		out.writeInt(length);
+		out.writeInt(size);
+		out.writeBytes(compressed, size);
+	}
+
+	/**
+	 * Writes the records still on the rings and the end of the file, and closes it. The recorder must have been
+	 * taken out of the world first.
+	 * @throws IOException	If writing failed, now or earlier
+	 */
+	@Override
+	public void close() throws IOException {
+		closing = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while finishing the telemetry");
+		}
+		if (error != null) throw error;
+	}
+
+	/**
+	 * @return	Number of vehicle samples dropped so far because the writer could not keep up
+	 */
+	public long getDroppedSamples() {
+		return droppedSamples;
+	}
+
+	/**
+	 * @return	Number of aggregates dropped so far because the writer could not keep up
+	 */
+	public long getDroppedAggregates() {
+		return droppedAggregates;
+	}
+
+	public int getTicksPerSample() {
+		return ticksPerSample;
+	}
+
+	public int getVehicleStride() {
+		return vehicleStride;
+	}
+
+	public int getTicksPerAggregate() {
+		return ticksPerAggregate;
+	}
+
+}
@@ -0,0 +1,149 @@
+package thesis;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A uniform grid over a world's terrain, so that the terrain at or near a point can be found by looking at
+ * one cell instead of every patch. Each patch is listed in every cell its bounding box (grown by one pixel,
+ * the range of the terrain sensor) overlaps, and each cell keeps its patches in the order they were added,
+ * which is also their order in the world's terrain list. Points outside the world's bounds fall into the
+ * nearest edge cell.
+ *
+ */
+public class TerrainIndex implements TerrainLookup {
+
+	private final int columns, rows; //Size of the grid in cells
+	private Terrain[][] cells; //Patches overlapping each cell, in id order
+	private int[] cellCount; //Number of patches in each cell
+
+	/**
+	 * Width and height of a grid cell in pixels
+	 */
+	public final static int CELL_SIZE = 64;
+
+	/**
+	 * Distance around a patch that is listed with it; the terrain sensor reacts within one pixel of the edge
+	 */
+	private final static double MARGIN = 1;
+
+	/**
+	 * Constructor
+	 * @param width	Width of the world
+	 * @param height	Height of the world
+	 */
+	public TerrainIndex(int width, int height){
+		columns = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+		rows = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+		cells = new Terrain[columns*rows][];
+		cellCount = new int[columns*rows];
+		Arrays.fill(cells, new Terrain[0]);
+	}
+
+	/**
+	 * Lists a patch in the cells it overlaps. Its id must already be set.
+	 * @param terrain	The patch
+	 */
+	public void add(Terrain terrain){
+		int fromColumn = getColumn(terrain.getCenterX() - terrain.getRadius() - MARGIN);
+		int toColumn = getColumn(terrain.getCenterX() + terrain.getRadius() + MARGIN);
+		int fromRow = getRow(terrain.getCenterY() - terrain.getRadius() - MARGIN);
+		int toRow = getRow(terrain.getCenterY() + terrain.getRadius() + MARGIN);
+		for (int row = fromRow; row <= toRow; row++){
+			for (int column = fromColumn; column <= toColumn; column++){
+				int c = row*columns + column;
+				if (cellCount[c] == cells[c].length){
+					cells[c] = Arrays.copyOf(cells[c], Math.max(4, cellCount[c]*2));
+				}
+				//patches are usually added in id order, but one that moved goes back in its place
+				int pos = cellCount[c];
+				while (pos > 0 && cells[c][pos-1].getId() > terrain.getId()){
+					cells[c][pos] = cells[c][pos-1];
+					pos--;
+				}
+				cells[c][pos] = terrain;
+				cellCount[c]++;
+			}
+		}
+	}
+
+	/**
+	 * Takes a patch out of the cells it overlaps. Must be called before the patch moves, not after.
+	 * @param terrain	The patch
+	 */
+	public void remove(Terrain terrain){
+		int fromColumn = getColumn(terrain.getCenterX() - terrain.getRadius() - MARGIN);
+		int toColumn = getColumn(terrain.getCenterX() + terrain.getRadius() + MARGIN);
+		int fromRow = getRow(terrain.getCenterY() - terrain.getRadius() - MARGIN);
+		int toRow = getRow(terrain.getCenterY() + terrain.getRadius() + MARGIN);
+		for (int row = fromRow; row <= toRow; row++){
+			for (int column = fromColumn; column <= toColumn; column++){
+				int c = row*columns + column;
+				for (int k = 0; k < cellCount[c]; k++){
+					if (cells[c][k] == terrain){
+						System.arraycopy(cells[c], k+1, cells[c], k, cellCount[c] - k - 1);
+						cells[c][--cellCount[c]] = null;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes all patches
+	 */
+	public void clear(){
+		for (int c = 0; c < cells.length; c++){
+			Arrays.fill(cells[c], 0, cellCount[c], null);
+			cellCount[c] = 0;
+		}
+	}
+
+	@Override
+	public Terrain findFirst(double px, double py, Terrain earliest){
+		int c = getCell(px, py);
+		Terrain[] cell = cells[c];
+		for (int k = 0; k < cellCount[c]; k++){
+			Terrain terrain = cell[k];
+			if (earliest != null && terrain.getId() >= earliest.getId()) break;
+			if (terrain.contains(px, py)) return terrain;
+		}
+		return earliest;
+	}
+
+	/**
+	 * @param px	X-coordinate of a point
+	 * @param py	Y-coordinate of a point
+	 * @return	Index of the cell the point is in, for getCount() and get()
+	 */
+	public int getCell(double px, double py){
+		return getRow(py)*columns + getColumn(px);
+	}
+
+	/**
+	 * @param cell	Index of a cell
+	 * @return	Number of patches within a pixel of the cell
+	 */
+	public int getCount(int cell){
+		return cellCount[cell];
+	}
+
+	/**
+	 * @param cell	Index of a cell
+	 * @param k	Position in the cell, 0 to getCount(cell)-1; patches are in terrain list order
+	 * @return	The patch
+	 */
+	public Terrain get(int cell, int k){
+		return cells[cell][k];
+	}
+
+	private int getColumn(double px){
+		return Math.min(columns - 1, Math.max(0, (int) Math.floor(px / CELL_SIZE)));
+	}
+
+	private int getRow(double py){
+		return Math.min(rows - 1, Math.max(0, (int) Math.floor(py / CELL_SIZE)));
+	}
+
+}
@@ -0,0 +1,54 @@
+package thesis;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ *
+ * The background and terrain of a world, drawn into an image that is kept until the terrain changes, so that
+ * each frame costs one image copy however many patches there are. World.getTerrainVersion() tells when the
+ * terrain was added to, moved, removed or cleared.
+ *
+ */
+public class TerrainLayer {
+
+	private BufferedImage image; //The background with the terrain drawn on it
+	private Graphics2D imageG; //Graphics of the image, kept as long as the image
+	private int version = -1; //World.getTerrainVersion() when the image was last drawn
+
+	/**
+	 * Redraws the image if the terrain or the size changed since the last call
+	 * @param world	The world whose terrain to draw
+	 * @param width	Width of the area drawn on
+	 * @param height	Height of the area drawn on
+	 * @return	Whether the image was redrawn
+	 */
+	public boolean update(World world, int width, int height){
+		if (image == null || image.getWidth() != width || image.getHeight() != height){
+			if (imageG != null) imageG.dispose();
+			image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+			imageG = image.createGraphics();
+			version = -1;
+		}
+		if (version == world.getTerrainVersion()) return false;
+		imageG.setColor(Simulator.WINDOW_COLOR);
+		imageG.fillRect(0, 0, image.getWidth(), image.getHeight());
+		List<Terrain> terrainList = world.getTerrainList();
+		for (int i = 0; i < terrainList.size(); i++){
+			terrainList.get(i).paint(imageG);
+		}
+		version = world.getTerrainVersion();
+		return true;
+	}
+
+	/**
+	 * Draws the image as last updated
+	 * @param g	Graphics to draw on
+	 */
+	public void paint(Graphics g){
+		g.drawImage(image, 0, 0, null);
+	}
+
+}
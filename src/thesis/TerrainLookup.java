@@ -0,0 +1,20 @@
+package thesis;
+
+/**
+ *
+ * Finds which terrain patch a point is on, for the cost of moving over it.
+ * Implemented exactly by TerrainIndex and approximately by TerrainRaster.
+ *
+ */
+public interface TerrainLookup {
+
+	/**
+	 * Finds the first patch in terrain list order that a point is on, looking only at patches ahead of another one
+	 * @param px	X-coordinate of the point
+	 * @param py	Y-coordinate of the point
+	 * @param earliest	The first patch found so far (e.g. for another point), or null
+	 * @return	The first patch the point is on if it comes before earliest, otherwise earliest
+	 */
+	public Terrain findFirst(double px, double py, Terrain earliest);
+
+}
@@ -0,0 +1,81 @@
+package thesis;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A raster of which terrain patch covers each square cell of the world, so that the terrain under a point
+ * is a single array read. Each cell holds the first patch (in terrain list order) that contains the cell's
+ * center, and only the cells under a patch are recomputed when it is added, moved or removed.
+ *
+ * Error bound: a point within the world gets the patch of the center of its cell, which is at most
+ * cellSize*sqrt(2)/2 pixels away, so the raster can only disagree with the exact circle tests for points
+ * closer than that to the edge of a patch. Points outside the world get the patch of the nearest edge cell.
+ *
+ */
+public class TerrainRaster implements TerrainLookup {
+
+	private final int cellSize; //Width and height of a cell in pixels
+	private final int columns, rows; //Size of the raster in cells
+	private final Terrain[] cells; //First patch containing the center of each cell; null for flat ground
+	private final TerrainIndex index; //Exact lookups used to fill in cells
+
+	/**
+	 * Constructor: an empty raster, for a world without terrain
+	 * @param width	Width of the world
+	 * @param height	Height of the world
+	 * @param cellSize	Width and height of a cell in pixels
+	 * @param index	The world's terrain index, used to find the patch at each cell center
+	 */
+	public TerrainRaster(int width, int height, int cellSize, TerrainIndex index){
+		this.cellSize = cellSize;
+		this.index = index;
+		columns = Math.max(1, (width + cellSize - 1) / cellSize);
+		rows = Math.max(1, (height + cellSize - 1) / cellSize);
+		cells = new Terrain[columns*rows];
+	}
+
+	/**
+	 * Recomputes the cells under a patch, after it was added to or removed from the terrain index.
+	 * A patch that moves is updated once before it moves (once it is out of the index) and once after.
+	 * @param terrain	The patch
+	 */
+	public void update(Terrain terrain){
+		int fromColumn = getColumn(terrain.getCenterX() - terrain.getRadius());
+		int toColumn = getColumn(terrain.getCenterX() + terrain.getRadius());
+		int fromRow = getRow(terrain.getCenterY() - terrain.getRadius());
+		int toRow = getRow(terrain.getCenterY() + terrain.getRadius());
+		for (int row = fromRow; row <= toRow; row++){
+			for (int column = fromColumn; column <= toColumn; column++){
+				cells[row*columns + column] = index.findFirst((column + 0.5)*cellSize, (row + 0.5)*cellSize, null);
+			}
+		}
+	}
+
+	/**
+	 * Sets every cell to flat ground
+	 */
+	public void clear(){
+		Arrays.fill(cells, null);
+	}
+
+	@Override
+	public Terrain findFirst(double px, double py, Terrain earliest){
+		Terrain terrain = cells[getRow(py)*columns + getColumn(px)];
+		if (terrain != null && (earliest == null || terrain.getId() < earliest.getId())) return terrain;
+		return earliest;
+	}
+
+	public int getCellSize(){
+		return cellSize;
+	}
+
+	private int getColumn(double px){
+		return Math.min(columns - 1, Math.max(0, (int) Math.floor(px / cellSize)));
+	}
+
+	private int getRow(double py){
+		return Math.min(rows - 1, Math.max(0, (int) Math.floor(py / cellSize)));
+	}
+
+}
@@ -0,0 +1,72 @@
+package thesis;
+
+/**
+ *
+ * Keeps a world's ticks in step with the wall clock at a chosen speed: at 1x, World.TICKS_PER_SECOND ticks are run
+ * per second, at 10x ten times as many, and at speed 0 as many as the machine can. The thread running the world
+ * asks getWait() before each tick and sleeps for as long as it says. If the world falls far behind (more ticks
+ * asked for than the machine can run), the schedule starts over from where it is instead of trying to catch up; so
+ * does it if the world's clock jumps back or far ahead (reset, loaded or replayed), instead of waiting for the wall
+ * clock to reach the new tick.
+ *
+ */
+public class TickPacer {
+
+	private volatile double speed = 1; //Multiple of real time; 0 for as fast as possible
+	private double scheduleSpeed = -1; //Speed the schedule was started at; -1 if it has to start over
+	private long startNanos, startTick; //Time and tick the schedule started at
+
+	private final static long MAX_LAG_NANOS = 250000000L; //How far behind or ahead of schedule the world may be before the schedule starts over
+
+	/**
+	 * @param speed	Multiple of real time to run at; 0 for as fast as possible
+	 */
+	public void setSpeed(double speed){
+		this.speed = Math.max(0, speed);
+	}
+
+	/**
+	 * @return	Multiple of real time to run at; 0 for as fast as possible
+	 */
+	public double getSpeed(){
+		return speed;
+	}
+
+	/**
+	 * Starts the schedule over at the next tick, e.g. after the world was paused
+	 */
+	public void restart(){
+		scheduleSpeed = -1;
+	}
+
+	/**
+	 * @param tick	Number of ticks the world has run
+	 * @param nanoTime	The current System.nanoTime()
+	 * @return	Nanoseconds to wait before the next tick is due; 0 to run it now
+	 */
+	public long getWait(long tick, long nanoTime){
+		double speed = this.speed;
+		if (speed <= 0) return 0;
+		if (speed != scheduleSpeed){
+			start(speed, tick, nanoTime);
+			return 0;
+		}
+		if (tick < startTick){
+			start(speed, tick, nanoTime);
+			return 0;
+		}
+		long due = startNanos + (long) ((tick - startTick) * 1e9 / (speed * World.TICKS_PER_SECOND));
+		if (nanoTime - due > MAX_LAG_NANOS || due - nanoTime > MAX_LAG_NANOS){
+			start(speed, tick, nanoTime);
+			return 0;
+		}
+		return Math.max(0, due - nanoTime);
+	}
+
+	private void start(double speed, long tick, long nanoTime){
+		scheduleSpeed = speed;
+		startTick = tick;
+		startNanos = nanoTime;
+	}
+
+}
@@ -0,0 +1,111 @@
+package thesis;
+
+import java.awt.AlphaComposite;
+import java.awt.Composite;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ *
+ * The paths of a world's vehicles, drawn into an image that is kept between frames. Each frame only the
+ * segments recorded since the last one are added; the image is redrawn from the stored paths only when that
+ * cannot work (a vehicle was removed, the world was cleared, the size changed, or paths were hidden for a while).
+ * Points that have dropped off the end of a vehicle's stored path stay visible until the next redraw.
+ *
+ */
+public class TrailLayer {
+
+	private BufferedImage image; //The drawn paths; transparent elsewhere
+	private Graphics2D imageG; //Graphics of the image, kept as long as the image
+	private int removals = -1; //VehicleStore.getRemovals() when the image was last redrawn
+	private int[] drawnSerial = new int[0]; //Path serial of each vehicle when it was last drawn; 0 if never
+	private int[] drawnAdded = new int[0]; //Number of points added to each vehicle's path when it was last drawn
+	private float[] drawnX = new float[0], drawnY = new float[0]; //Last point drawn of each vehicle's path
+	private int drawnCount = 0; //Number of vehicles drawn
+
+	/**
+	 * Brings the image up to date with the world's paths
+	 * @param world	The world whose paths to draw
+	 * @param width	Width of the area drawn on
+	 * @param height	Height of the area drawn on
+	 * @param dirty	Where the image changed is marked on it
+	 */
+	public void update(World world, int width, int height, DirtyRegion dirty){
+		VehicleStore store = world.getVehicles();
+		if (image == null || image.getWidth() != width || image.getHeight() != height){
+			if (imageG != null) imageG.dispose();
+			image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_ARGB);
+			imageG = image.createGraphics();
+			invalidate();
+		}
+		if (removals != store.getRemovals()){
+			clearImage();
+			removals = store.getRemovals();
+			drawnCount = 0;
+			dirty.markAll();
+		}
+
+		int count = store.getCount();
+		if (count > drawnSerial.length){
+			int capacity = Math.max(16, Math.max(count, drawnSerial.length*2));
+			drawnSerial = Arrays.copyOf(drawnSerial, capacity);
+			drawnAdded = Arrays.copyOf(drawnAdded, capacity);
+			drawnX = Arrays.copyOf(drawnX, capacity);
+			drawnY = Arrays.copyOf(drawnY, capacity);
+		}
+		for (int i = drawnCount; i < count; i++){
+			drawnSerial[i] = 0;
+			drawnAdded[i] = 0;
+		}
+		drawnCount = count;
+
+		Graphics2D g2 = imageG;
+		for (int i = 0; i < count; i++){
+			int serial = store.getPathSerial(i);
+			if (serial == drawnSerial[i]) continue;
+			int n = store.getPathCount(i);
+			//continue from the last point drawn through the point that was newest then (it may have moved since) and every point added after it
+			int from = drawnSerial[i] == 0 ? 0 : Math.max(0, n - (store.getPathAdded(i) - drawnAdded[i]) - 1);
+			g2.setColor(Vehicle.VEHICLE_COLOR[store.getType(i)]);
+			float x = drawnSerial[i] == 0 ? store.getPathX(i, 0) : drawnX[i];
+			float y = drawnSerial[i] == 0 ? store.getPathY(i, 0) : drawnY[i];
+			for (int k = from; k < n; k++){
+				float nextX = store.getPathX(i, k);
+				float nextY = store.getPathY(i, k);
+				g2.drawLine(Math.round(x), Math.round(y), Math.round(nextX), Math.round(nextY));
+				dirty.markChanged(Math.min(x, nextX) - 1, Math.min(y, nextY) - 1, Math.abs(nextX - x) + 2, Math.abs(nextY - y) + 2);
+				x = nextX;
+				y = nextY;
+			}
+			drawnX[i] = x;
+			drawnY[i] = y;
+			drawnSerial[i] = serial;
+			drawnAdded[i] = store.getPathAdded(i);
+		}
+	}
+
+	/**
+	 * Draws the image as last updated
+	 * @param g	Graphics to draw on
+	 */
+	public void paint(Graphics g){
+		g.drawImage(image, 0, 0, null);
+	}
+
+	/**
+	 * Makes the next paint() redraw every path from scratch, e.g. after paths were hidden
+	 */
+	public void invalidate(){
+		removals = -1;
+	}
+
+	private void clearImage(){
+		Composite composite = imageG.getComposite();
+		imageG.setComposite(AlphaComposite.Clear);
+		imageG.fillRect(0, 0, image.getWidth(), image.getHeight());
+		imageG.setComposite(composite);
+	}
+
+}
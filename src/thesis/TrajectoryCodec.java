@@ -0,0 +1,315 @@
+package thesis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ *
+ * Turns frames of a trajectory into bytes and back. A keyframe holds every value outright; any other frame holds,
+ * for each vehicle that was in the frame before, how much each quantized value changed since then, so a vehicle
+ * that moved a pixel costs a few bytes. Vehicles added since the frame before are appended outright. Numbers are
+ * written as variable-length integers, seven bits per byte, with signed ones zig-zag encoded so small changes
+ * either way stay short.
+ *
+ * A codec remembers the last frame it encoded or decoded, so one codec must see every frame from a keyframe on, in
+ * order. Frame layout: keyframe flag, tick, dead vehicle count, vehicle count, vehicles, events, then for a
+ * keyframe the food and the terrain.
+ *
+ */
+class TrajectoryCodec {
+
+	private int count = 0; //Number of vehicles in the last frame
+	private int[] x = new int[0], y = new int[0], orient = new int[0], energy = new int[0], target = new int[0]; //Values in the last frame
+
+	private byte[] bytes = new byte[1 << 12]; //Last frame encoded
+	private int length = 0; //Number of bytes of it
+
+	/**
+	 * Encodes a frame after the last one encoded
+	 * @param frame	The frame; a keyframe if it is the first one or has fewer vehicles than the frame before
+	 * @return	Number of bytes, which are at the start of getBytes()
+	 */
+	int encode(TrajectoryFrame frame){
+		length = 0;
+		writeByte(frame.keyframe ? 1 : 0);
+		writeVarLong(frame.tick);
+		writeVarLong(frame.deadVehicleCount);
+		writeVarLong(frame.count);
+
+		int unchanged = frame.keyframe ? 0 : count; //Rows written as changes
+		if (frame.count < unchanged) throw new IllegalStateException("Vehicles were removed since the last keyframe");
+		for (int i = 0; i < unchanged; i++){
+			writeSigned(frame.x[i] - x[i]);
+			writeSigned(frame.y[i] - y[i]);
+			writeSigned(orientChange(frame.orient[i] - orient[i]));
+			writeSigned(frame.energy[i] - energy[i]);
+			writeSigned(frame.target[i] - target[i]);
+		}
+		for (int i = unchanged; i < frame.count; i++){
+			writeSigned(frame.serial[i] - (i > 0 ? frame.serial[i-1] : 0));
+			writeByte(frame.type[i]);
+			writeVarLong(frame.size[i]);
+			writeSigned(frame.x[i]);
+			writeSigned(frame.y[i]);
+			writeVarLong(frame.orient[i]);
+			writeSigned(frame.energy[i]);
+			writeSigned(frame.target[i]);
+			writeByte(frame.deceased[i] ? 1 : 0);
+		}
+		remember(frame);
+
+		writeVarLong(frame.eventCount);
+		for (int i = 0; i < frame.eventCount; i++){
+			int type = frame.eventType[i];
+			writeByte(type);
+			switch (type){
+			case TrajectoryFrame.FOOD_ADDED:
+				writeSigned(frame.eventA[i]);
+				writeVarLong(frame.eventB[i]);
+				writeByte(frame.eventC[i]);
+				writeSigned(frame.eventX[i]);
+				writeSigned(frame.eventY[i]);
+				break;
+			case TrajectoryFrame.FOOD_EATEN:
+				writeSigned(frame.eventA[i]);
+				writeSigned(frame.eventB[i]);
+				break;
+			case TrajectoryFrame.FOOD_MOVED:
+				writeSigned(frame.eventA[i]);
+				writeSigned(frame.eventX[i]);
+				writeSigned(frame.eventY[i]);
+				break;
+			case TrajectoryFrame.VEHICLE_SPAWNED:
+				writeSigned(frame.eventA[i]);
+				writeByte(frame.eventB[i]);
+				break;
+			case TrajectoryFrame.FOOD_REMOVED:
+			case TrajectoryFrame.VEHICLE_DIED:
+				writeSigned(frame.eventA[i]);
+				break;
+			default:
+				break;
+			}
+		}
+
+		if (frame.keyframe){
+			writeVarLong(frame.foodCount);
+			for (int i = 0; i < frame.foodCount; i++){
+				writeSigned(frame.foodSerial[i] - (i > 0 ? frame.foodSerial[i-1] : 0));
+				writeVarLong(frame.foodValue[i]);
+				writeByte(frame.foodType[i]);
+				writeSigned(frame.foodX[i]);
+				writeSigned(frame.foodY[i]);
+			}
+			writeVarLong(frame.terrainCount);
+			for (int i = 0; i < frame.terrainCount; i++){
+				writeDouble(frame.terrainX[i]);
+				writeDouble(frame.terrainY[i]);
+				writeDouble(frame.terrainRadius[i]);
+				writeByte(frame.terrainType[i]);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @return	The bytes of the last frame encoded
+	 */
+	byte[] getBytes(){
+		return bytes;
+	}
+
+	/**
+	 * Decodes a frame after the last one decoded into the frame that holds the state so far. The vehicles are
+	 * replaced or updated, the events replaced, and for a keyframe the food and terrain replaced; the food of other
+	 * frames is left for the caller to update from the events.
+	 * @param in	The bytes of the frame, from the current position on
+	 * @param state	The state after the frame before; for a keyframe, anything
+	 */
+	void decode(ByteBuffer in, TrajectoryFrame state) throws IOException {
+		try {
+			in.order(ByteOrder.LITTLE_ENDIAN);
+			state.keyframe = in.get() != 0;
+			state.tick = readVarLong(in);
+			state.deadVehicleCount = readLength(in);
+			int n = readLength(in);
+			int unchanged = state.keyframe ? 0 : count;
+			if (n < unchanged) throw new IOException("Frame at tick " + state.tick + " has fewer vehicles than the one before");
+			state.setCount(n);
+			for (int i = 0; i < unchanged; i++){
+				state.x[i] += readSigned(in);
+				state.y[i] += readSigned(in);
+				state.orient[i] = (state.orient[i] + readSigned(in)) & (TrajectoryFrame.ORIENT_STEPS - 1);
+				state.energy[i] += readSigned(in);
+				state.target[i] += readSigned(in);
+			}
+			for (int i = unchanged; i < n; i++){
+				state.serial[i] = readSigned(in) + (i > 0 ? state.serial[i-1] : 0);
+				state.type[i] = in.get();
+				state.size[i] = readLength(in);
+				state.x[i] = readSigned(in);
+				state.y[i] = readSigned(in);
+				state.orient[i] = readLength(in) & (TrajectoryFrame.ORIENT_STEPS - 1);
+				state.energy[i] = readSigned(in);
+				state.target[i] = readSigned(in);
+				state.deceased[i] = in.get() != 0;
+			}
+			remember(state);
+
+			int events = readLength(in);
+			state.eventCount = 0;
+			for (int i = 0; i < events; i++){
+				int type = in.get();
+				int a = 0, b = 0, c = 0, x = 0, y = 0;
+				switch (type){
+				case TrajectoryFrame.FOOD_ADDED:
+					a = readSigned(in);
+					b = readLength(in);
+					c = in.get();
+					x = readSigned(in);
+					y = readSigned(in);
+					break;
+				case TrajectoryFrame.FOOD_EATEN:
+					a = readSigned(in);
+					b = readSigned(in);
+					break;
+				case TrajectoryFrame.FOOD_MOVED:
+					a = readSigned(in);
+					x = readSigned(in);
+					y = readSigned(in);
+					break;
+				case TrajectoryFrame.VEHICLE_SPAWNED:
+					a = readSigned(in);
+					b = in.get();
+					break;
+				case TrajectoryFrame.FOOD_REMOVED:
+				case TrajectoryFrame.VEHICLE_DIED:
+					a = readSigned(in);
+					break;
+				case TrajectoryFrame.FOOD_DROPPED:
+					break;
+				default:
+					throw new IOException("Unknown event " + type + " at tick " + state.tick);
+				}
+				state.addEvent(type, a, b, c, x, y);
+			}
+
+			if (state.keyframe){
+				state.setFoodCount(readLength(in));
+				for (int i = 0; i < state.foodCount; i++){
+					state.foodSerial[i] = readSigned(in) + (i > 0 ? state.foodSerial[i-1] : 0);
+					state.foodValue[i] = readLength(in);
+					state.foodType[i] = in.get();
+					state.foodX[i] = readSigned(in);
+					state.foodY[i] = readSigned(in);
+				}
+				state.setTerrainCount(readLength(in));
+				for (int i = 0; i < state.terrainCount; i++){
+					state.terrainX[i] = in.getDouble();
+					state.terrainY[i] = in.getDouble();
+					state.terrainRadius[i] = in.getDouble();
+					state.terrainType[i] = in.get();
+				}
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Trajectory frame is corrupt", e);
+		}
+	}
+
+	/**
+	 * Reads the start of a frame without decoding it
+	 * @param in	The bytes of the frame, from the current position on; the position is left alone
+	 * @return	{1 for a keyframe or 0, tick}
+	 */
+	static long[] readHeader(ByteBuffer in) throws IOException {
+		ByteBuffer header = in.duplicate();
+		try {
+			return new long[] {header.get(), readVarLong(header)};
+		} catch (RuntimeException e) {
+			throw new IOException("Trajectory frame is corrupt", e);
+		}
+	}
+
+	/**
+	 * Keeps the vehicles' values, which the next frame is encoded or decoded against
+	 */
+	private void remember(TrajectoryFrame frame){
+		count = frame.count;
+		if (count > x.length){
+			int capacity = Math.max(count, x.length * 3 / 2 + 16);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			orient = Arrays.copyOf(orient, capacity);
+			energy = Arrays.copyOf(energy, capacity);
+			target = Arrays.copyOf(target, capacity);
+		}
+		System.arraycopy(frame.x, 0, x, 0, count);
+		System.arraycopy(frame.y, 0, y, 0, count);
+		System.arraycopy(frame.orient, 0, orient, 0, count);
+		System.arraycopy(frame.energy, 0, energy, 0, count);
+		System.arraycopy(frame.target, 0, target, 0, count);
+	}
+
+	/**
+	 * @return	A change of orientation the short way round, e.g. a little less than a full turn as a little turn back
+	 */
+	private static int orientChange(int change){
+		return (change << 16) >> 16;
+	}
+
+	private void ensure(int n){
+		if (length + n > bytes.length){
+			bytes = Arrays.copyOf(bytes, Math.max(length + n, bytes.length * 2));
+		}
+	}
+
+	private void writeByte(int value){
+		ensure(1);
+		bytes[length++] = (byte) value;
+	}
+
+	private void writeVarLong(long value){
+		ensure(10);
+		while ((value & ~0x7FL) != 0){
+			bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+
+	private void writeSigned(int value){
+		writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+	}
+
+	private void writeDouble(double value){
+		long bits = Double.doubleToLongBits(value);
+		ensure(8);
+		for (int i = 0; i < 8; i++){
+			bytes[length++] = (byte) (bits >>> (8*i));
+		}
+	}
+
+	private static long readVarLong(ByteBuffer in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7){
+			int b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new IOException("Bad number at byte " + in.position());
+	}
+
+	private static int readSigned(ByteBuffer in) throws IOException {
+		int zigzag = (int) readVarLong(in);
+		return (zigzag >>> 1) ^ -(zigzag & 1);
+	}
+
+	private static int readLength(ByteBuffer in) throws IOException {
+		long n = readVarLong(in);
+		if (n < 0 || n > Integer.MAX_VALUE) throw new IOException("Bad length " + n + " at byte " + in.position());
+		return (int) n;
+	}
+
+}
@@ -0,0 +1,220 @@
+package thesis;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * One recorded tick of a world: every vehicle's position, orientation, energy, target and whether it is dead, what
+ * happened since the frame before (the events), and for a keyframe the live food and the terrain as well.
+ * TrajectoryRecorder fills frames on the ticking thread and hands them to its writer thread; TrajectoryReplay
+ * decodes a recording into one frame that it keeps up to date as it seeks.
+ *
+ * Values are kept quantized, as they are recorded: positions in 1/POSITION_SCALE pixels, orientations in
+ * 1/ORIENT_SCALE radians from 0 up to a full turn, and energies in 1/ENERGY_SCALE units. Targets are kept as the
+ * serial of the food, or -1, since slots are reused. Arrays grow as needed and are reused from frame to frame.
+ *
+ */
+class TrajectoryFrame {
+
+	final static double POSITION_SCALE = 64; //Steps per pixel
+	final static int ORIENT_STEPS = 1 << 16; //Steps per turn
+	final static double ORIENT_SCALE = ORIENT_STEPS / (2*Math.PI); //Steps per radian
+	final static double ENERGY_SCALE = 256; //Steps per unit of energy
+
+	//Events, with what their fields hold
+	final static int FOOD_ADDED = 1; //a: food serial, b: value, c: type, x and y: position
+	final static int FOOD_EATEN = 2; //a: food serial, b: serial of the vehicle that ate it
+	final static int FOOD_REMOVED = 3; //a: food serial
+	final static int FOOD_MOVED = 4; //a: food serial, x and y: new position
+	final static int VEHICLE_SPAWNED = 5; //a: vehicle serial, b: type
+	final static int VEHICLE_DIED = 6; //a: vehicle serial
+	final static int FOOD_DROPPED = 7; //no fields
+
+	long tick; //Tick the frame was recorded after
+	boolean keyframe; //Whether the frame holds the food and terrain, and its vehicles do not depend on the frame before
+	int deadVehicleCount; //Number of dead vehicles in the world
+
+	int count = 0; //Number of vehicles, in the world's order, so sorted by serial
+	int[] serial = new int[0];
+	byte[] type = new byte[0];
+	int[] size = new int[0];
+	int[] x = new int[0], y = new int[0]; //Left sensor
+	int[] orient = new int[0];
+	int[] energy = new int[0];
+	int[] target = new int[0]; //Serial of the targeted food; -1 if none
+	boolean[] deceased = new boolean[0];
+
+	int eventCount = 0; //Number of events since the frame before
+	byte[] eventType = new byte[0];
+	int[] eventA = new int[0], eventB = new int[0], eventC = new int[0];
+	int[] eventX = new int[0], eventY = new int[0];
+
+	int foodCount = 0; //Number of pieces of live food; set in keyframes only
+	int[] foodSerial = new int[0], foodValue = new int[0];
+	byte[] foodType = new byte[0];
+	int[] foodX = new int[0], foodY = new int[0]; //Upper left-hand corner
+
+	int terrainCount = 0; //Number of terrain patches; set in keyframes only
+	double[] terrainX = new double[0], terrainY = new double[0], terrainRadius = new double[0]; //Upper left corner of the circle, and radius
+	byte[] terrainType = new byte[0];
+
+	static int quantizePosition(double position){
+		return (int) Math.round(position * POSITION_SCALE);
+	}
+
+	static int quantizeOrient(double orient){
+		return (int) Math.round(orient * ORIENT_SCALE) & (ORIENT_STEPS - 1);
+	}
+
+	static int quantizeEnergy(double energy){
+		return (int) Math.round(energy * ENERGY_SCALE);
+	}
+
+	/**
+	 * Sets the number of vehicles, keeping the values of those already there
+	 */
+	void setCount(int n){
+		if (n > serial.length){
+			int capacity = Math.max(n, serial.length * 3 / 2 + 16);
+			serial = Arrays.copyOf(serial, capacity);
+			type = Arrays.copyOf(type, capacity);
+			size = Arrays.copyOf(size, capacity);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			orient = Arrays.copyOf(orient, capacity);
+			energy = Arrays.copyOf(energy, capacity);
+			target = Arrays.copyOf(target, capacity);
+			deceased = Arrays.copyOf(deceased, capacity);
+		}
+		count = n;
+	}
+
+	/**
+	 * Sets the number of pieces of food, keeping the values of those already there
+	 */
+	void setFoodCount(int n){
+		if (n > foodSerial.length){
+			int capacity = Math.max(n, foodSerial.length * 3 / 2 + 16);
+			foodSerial = Arrays.copyOf(foodSerial, capacity);
+			foodValue = Arrays.copyOf(foodValue, capacity);
+			foodType = Arrays.copyOf(foodType, capacity);
+			foodX = Arrays.copyOf(foodX, capacity);
+			foodY = Arrays.copyOf(foodY, capacity);
+		}
+		foodCount = n;
+	}
+
+	/**
+	 * Sets the number of terrain patches, keeping the values of those already there
+	 */
+	void setTerrainCount(int n){
+		if (n > terrainX.length){
+			int capacity = Math.max(n, terrainX.length * 3 / 2 + 4);
+			terrainX = Arrays.copyOf(terrainX, capacity);
+			terrainY = Arrays.copyOf(terrainY, capacity);
+			terrainRadius = Arrays.copyOf(terrainRadius, capacity);
+			terrainType = Arrays.copyOf(terrainType, capacity);
+		}
+		terrainCount = n;
+	}
+
+	/**
+	 * Appends an event; see the event types for what the fields hold
+	 */
+	void addEvent(int type, int a, int b, int c, int x, int y){
+		int i = eventCount;
+		if (i == eventType.length){
+			int capacity = eventType.length * 3 / 2 + 16;
+			eventType = Arrays.copyOf(eventType, capacity);
+			eventA = Arrays.copyOf(eventA, capacity);
+			eventB = Arrays.copyOf(eventB, capacity);
+			eventC = Arrays.copyOf(eventC, capacity);
+			eventX = Arrays.copyOf(eventX, capacity);
+			eventY = Arrays.copyOf(eventY, capacity);
+		}
+		eventType[i] = (byte) type;
+		eventA[i] = a;
+		eventB[i] = b;
+		eventC[i] = c;
+		eventX[i] = x;
+		eventY[i] = y;
+		eventCount++;
+	}
+
+	/**
+	 * Replaces the events with those of another frame
+	 */
+	void copyEvents(TrajectoryFrame source){
+		eventCount = 0;
+		for (int i = 0; i < source.eventCount; i++){
+			addEvent(source.eventType[i], source.eventA[i], source.eventB[i], source.eventC[i], source.eventX[i], source.eventY[i]);
+		}
+	}
+
+	/**
+	 * Records the vehicles of a world
+	 * @param world	The world, between ticks
+	 */
+	void captureVehicles(World world){
+		VehicleStore store = world.getVehicles();
+		FoodStore food = world.getFood();
+		int n = store.getCount();
+		setCount(n);
+		for (int i = 0; i < n; i++){
+			serial[i] = store.getSerial(i);
+			type[i] = (byte) store.getType(i);
+			size[i] = store.getSize(i);
+			x[i] = quantizePosition(store.getX(i));
+			y[i] = quantizePosition(store.getY(i));
+			orient[i] = quantizeOrient(store.getOrient(i));
+			energy[i] = quantizeEnergy(store.getEnergy(i));
+			int slot = store.getTarget(i);
+			target[i] = slot >= 0 && food.isLive(slot) ? food.getSerial(slot) : -1;
+			deceased[i] = store.isDeceased(i);
+		}
+	}
+
+	/**
+	 * Records the live food of a world
+	 */
+	void captureFood(FoodStore food){
+		setFoodCount(food.getLiveCount(Food.DISTANCE) + food.getLiveCount(Food.ENERGY));
+		int k = 0;
+		for (int type = Food.DISTANCE; type <= Food.ENERGY; type++){
+			for (int i = 0; i < food.getLiveCount(type); i++){
+				int slot = food.getLiveSlot(type, i);
+				foodSerial[k] = food.getSerial(slot);
+				foodValue[k] = food.getValue(slot);
+				foodType[k] = (byte) type;
+				foodX[k] = quantizePosition(food.getX(slot));
+				foodY[k] = quantizePosition(food.getY(slot));
+				k++;
+			}
+		}
+	}
+
+	/**
+	 * Records the terrain of a world
+	 */
+	void captureTerrain(List<Terrain> terrainList){
+		setTerrainCount(terrainList.size());
+		for (int i = 0; i < terrainCount; i++){
+			Terrain terrain = terrainList.get(i);
+			terrainX[i] = terrain.getCircle().getX();
+			terrainY[i] = terrain.getCircle().getY();
+			terrainRadius[i] = terrain.getRadius();
+			terrainType[i] = (byte) terrain.getTerrainType();
+		}
+	}
+
+	/**
+	 * @param serial	Serial of a vehicle
+	 * @return	Its index; -1 if it is not in the frame
+	 */
+	int indexOf(int serial){
+		int k = Arrays.binarySearch(this.serial, 0, count, serial);
+		return k >= 0 ? k : -1;
+	}
+
+}
@@ -0,0 +1,292 @@
+package thesis;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * Records the trajectory of a running world to a file, for TrajectoryReplay to scrub through later: every
+ * ticksPerFrame ticks, each vehicle's position, orientation, energy and target, and what happened in between (food
+ * added, eaten, moved or removed, food drops, vehicles spawned and deaths). Every framesPerKeyframe frames, and
+ * whenever vehicles were removed or the terrain changed, a keyframe also holds the live food and the terrain, so a
+ * replay can start from any keyframe; other frames hold only the changes since the frame before (see
+ * TrajectoryCodec). An index of the keyframes at the end of the file lets a replay seek straight to one.
+ *
+ * Recording never holds up the tick. The ticking thread only copies the vehicles' quantized values into the next
+ * free slot of a ring of frames; a writer thread takes frames off the ring in order, encodes them and streams them
+ * to the file. If the writer falls so far behind that the ring is full, the frame is dropped instead of waiting for
+ * it, and the next one recorded is a keyframe.
+ *
+ * File layout (little-endian): MAGIC, VERSION, ticksPerFrame, framesPerKeyframe, the world's settings as WorldFile
+ * writes them, then each frame as its length and its bytes, then the index: the number of keyframes, their ticks,
+ * their offsets in the file, the tick of the last frame, the number of frames dropped, the offset of the index and
+ * MAGIC again. A recording whose index is missing (e.g. the program was killed) can still be replayed. Ticks in
+ * the file keep rising when the world is reset or an earlier world is loaded while recording, so that they can be
+ * searched.
+ *
+ * The world calls the recorder from whichever thread ticks or edits it; close() it once it has been taken out of
+ * the world.
+ *
+ */
+public class TrajectoryRecorder implements Closeable {
+
+	/**
+	 * First (and last) four bytes of a trajectory file: "TRAJ"
+	 */
+	public final static int MAGIC = 0x4a415254;
+
+	/**
+	 * Version of the format written
+	 */
+	public final static int VERSION = 1;
+
+	/**
+	 * Ticks between frames by default: 100 frames per second of simulated time
+	 */
+	public final static int DEFAULT_TICKS_PER_FRAME = 100;
+
+	/**
+	 * Frames between keyframes by default
+	 */
+	public final static int DEFAULT_FRAMES_PER_KEYFRAME = 100;
+
+	private final static int RING_SIZE = 16; //Frames that can wait for the writer
+	private final static long WRITER_PARK_NANOS = 1000000L; //Longest the writer sleeps before looking for frames again
+
+	private final int ticksPerFrame; //Ticks between frames
+	private final int framesPerKeyframe; //Frames between keyframes
+
+	//ticking thread
+	private final TrajectoryFrame pending = new TrajectoryFrame(); //Events since the last frame
+	private boolean keyframeNeeded = true; //Whether the next frame must be a keyframe
+	private int framesSinceKeyframe = 0;
+	private int removals, terrainVersion; //Removals and terrain version of the world at the last frame
+	private long lastFrameTick = -1; //Tick of the last frame put on the ring
+	private long tickOffset = 0; //Added to the world's clock, so ticks go on rising after the world is reset or loaded
+	private volatile long droppedFrames = 0; //Frames dropped because the ring was full
+
+	//handed from the ticking thread to the writer
+	private final TrajectoryFrame[] ring = new TrajectoryFrame[RING_SIZE];
+	private final AtomicLong head = new AtomicLong(); //Number of frames put on the ring
+	private final AtomicLong tail = new AtomicLong(); //Number of frames taken off it
+	private volatile boolean closing = false; //Whether no more frames will be put on the ring
+
+	//writer thread
+	private final BinaryOutput out; //The file
+	private final TrajectoryCodec codec = new TrajectoryCodec();
+	private long[] keyframeTicks = new long[16], keyframeOffsets = new long[16]; //Index of the keyframes written
+	private int keyframeCount = 0;
+	private long lastTick = -1; //Tick of the last frame written
+	private final Thread writer;
+	private volatile IOException error; //Why the writer stopped, if it failed
+
+	/**
+	 * Constructor: records a frame every DEFAULT_TICKS_PER_FRAME ticks, with a keyframe every DEFAULT_FRAMES_PER_KEYFRAME
+	 * @param file	File to record to, replaced if it exists
+	 * @param config	Settings of the world to be recorded
+	 */
+	public TrajectoryRecorder(File file, WorldConfig config) throws IOException {
+		this(file, config, DEFAULT_TICKS_PER_FRAME, DEFAULT_FRAMES_PER_KEYFRAME);
+	}
+
+	/**
+	 * Constructor
+	 * @param file	File to record to, replaced if it exists
+	 * @param config	Settings of the world to be recorded
+	 * @param ticksPerFrame	Ticks between frames; 1 to record every tick
+	 * @param framesPerKeyframe	Frames between keyframes: fewer make seeking faster and the file larger
+	 */
+	public TrajectoryRecorder(File file, WorldConfig config, int ticksPerFrame, int framesPerKeyframe) throws IOException {
+		if (ticksPerFrame < 1 || framesPerKeyframe < 1) throw new IllegalArgumentException("Ticks per frame and frames per keyframe must be positive");
+		this.ticksPerFrame = ticksPerFrame;
+		this.framesPerKeyframe = framesPerKeyframe;
+		for (int i = 0; i < RING_SIZE; i++){
+			ring[i] = new TrajectoryFrame();
+		}
+		out = new BinaryOutput(FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(ticksPerFrame);
+			out.writeInt(framesPerKeyframe);
+			WorldFile.writeConfig(config, out);
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+		writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "Trajectory writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Called by the world after each tick: records a frame if one is due
+	 * @param world	The world, between ticks
+	 */
+	void tickDone(World world){
+		if (world.getTick() % ticksPerFrame != 0) return;
+		long h = head.get();
+		long waiting = h - tail.get();
+		if (waiting >= RING_SIZE){
+			//the events are lost with the frame, so the next frame must not depend on this one
+			droppedFrames++;
+			pending.eventCount = 0;
+			keyframeNeeded = true;
+			return;
+		}
+
+		long tick = world.getTick() + tickOffset;
+		if (tick <= lastFrameTick){
+			tickOffset += lastFrameTick - tick + ticksPerFrame;
+			tick = lastFrameTick + ticksPerFrame;
+		}
+		VehicleStore vehicles = world.getVehicles();
+		boolean keyframe = keyframeNeeded || ++framesSinceKeyframe >= framesPerKeyframe
+				|| vehicles.getRemovals() != removals || world.getTerrainVersion() != terrainVersion;
+		TrajectoryFrame frame = ring[(int) (h % RING_SIZE)];
+		frame.tick = tick;
+		frame.keyframe = keyframe;
+		frame.deadVehicleCount = world.getDeadVehicleCount();
+		frame.captureVehicles(world);
+		frame.copyEvents(pending);
+		if (keyframe){
+			frame.captureFood(world.getFood());
+			frame.captureTerrain(world.getTerrainList());
+			keyframeNeeded = false;
+			framesSinceKeyframe = 0;
+			removals = vehicles.getRemovals();
+			terrainVersion = world.getTerrainVersion();
+		}
+		pending.eventCount = 0;
+		lastFrameTick = tick;
+		head.lazySet(h + 1);
+		if (waiting + 1 >= RING_SIZE / 2) LockSupport.unpark(writer);
+	}
+
+	void foodAdded(int serial, double x, double y, int value, int type){
+		pending.addEvent(TrajectoryFrame.FOOD_ADDED, serial, value, type,
+				TrajectoryFrame.quantizePosition(x), TrajectoryFrame.quantizePosition(y));
+	}
+
+	void foodEaten(int serial, int vehicleSerial){
+		pending.addEvent(TrajectoryFrame.FOOD_EATEN, serial, vehicleSerial, 0, 0, 0);
+	}
+
+	void foodRemoved(int serial){
+		pending.addEvent(TrajectoryFrame.FOOD_REMOVED, serial, 0, 0, 0, 0);
+	}
+
+	void foodMoved(int serial, double x, double y){
+		pending.addEvent(TrajectoryFrame.FOOD_MOVED, serial, 0, 0,
+				TrajectoryFrame.quantizePosition(x), TrajectoryFrame.quantizePosition(y));
+	}
+
+	void foodDropped(){
+		pending.addEvent(TrajectoryFrame.FOOD_DROPPED, 0, 0, 0, 0, 0);
+	}
+
+	void vehicleSpawned(int serial, int type){
+		pending.addEvent(TrajectoryFrame.VEHICLE_SPAWNED, serial, type, 0, 0, 0);
+	}
+
+	void vehicleDied(int serial){
+		pending.addEvent(TrajectoryFrame.VEHICLE_DIED, serial, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Runs on the writer thread: writes frames as they come, then the index once closing
+	 */
+	private void write(){
+		try {
+			while (true){
+				boolean last = closing; //read before the head, so no frame put on the ring before closing is missed
+				long t = tail.get();
+				if (t == head.get()){
+					if (last) break;
+					LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+					continue;
+				}
+				writeFrame(ring[(int) (t % RING_SIZE)]);
+				tail.lazySet(t + 1);
+			}
+			long indexOffset = out.getPosition();
+			out.writeInt(keyframeCount);
+			out.writeLongs(keyframeTicks, keyframeCount);
+			out.writeLongs(keyframeOffsets, keyframeCount);
+			out.writeLong(lastTick);
+			out.writeLong(droppedFrames);
+			out.writeLong(indexOffset);
+			out.writeInt(MAGIC);
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+				if (error == null) error = e;
+			}
+		}
+	}
+
+	private void writeFrame(TrajectoryFrame frame) throws IOException {
+		int length = codec.encode(frame);
+		if (frame.keyframe){
+			if (keyframeCount == keyframeTicks.length){
+				keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+				keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+			}
+			keyframeTicks[keyframeCount] = frame.tick;
+			keyframeOffsets[keyframeCount] = out.getPosition();
+			keyframeCount++;
+		}
+		out.writeInt(length);
+		out.writeBytes(codec.getBytes(), length);
+		lastTick = frame.tick;
+	}
+
+	/**
+	 * Writes the frames still on the ring and the index, and closes the file. The recorder must have been taken out
+	 * of the world first.
+	 * @throws IOException	If writing failed, now or earlier
+	 */
+	@Override
+	public void close() throws IOException {
+		closing = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while finishing the recording");
+		}
+		if (error != null) throw error;
+	}
+
+	/**
+	 * @return	Number of frames dropped so far because the writer could not keep up
+	 */
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	public int getTicksPerFrame() {
+		return ticksPerFrame;
+	}
+
+	public int getFramesPerKeyframe() {
+		return framesPerKeyframe;
+	}
+
+}
@@ -0,0 +1,402 @@
+package thesis;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * Plays back a file written by TrajectoryRecorder. seek() goes to any tick by decoding from the last keyframe at or
+ * before it, found in the file's index, so scrubbing through a run of any length only ever decodes up to
+ * framesPerKeyframe frames; moving forward from the tick shown carries on from there instead. A replay shows the
+ * last frame recorded at or before the tick asked for.
+ *
+ * What a frame holds is put into a world of its own (getWorld()) for Field to draw: terrain, food and vehicles
+ * with their energy, dead or alive. Paths and eaten food are not recorded, and the world must not be ticked or
+ * edited. The frame's values themselves, e.g. targets and events, can be read through the getters.
+ *
+ */
+public class TrajectoryReplay implements Closeable {
+
+	private final File file;
+	private final FileChannel channel; //The file, read a frame at a time
+	private final WorldConfig config; //Settings of the world recorded
+	private final int ticksPerFrame, framesPerKeyframe;
+	private final long dataStart, dataEnd; //Offsets of the first frame and of the end of the last one
+	private long[] keyframeTicks, keyframeOffsets; //Index of the keyframes
+	private int keyframeCount;
+	private long firstTick, lastTick; //Ticks of the first and last frames
+	private long droppedFrames; //Frames the recorder dropped; 0 if the file has no index
+
+	private final TrajectoryCodec codec = new TrajectoryCodec();
+	private final TrajectoryFrame state = new TrajectoryFrame(); //Last frame decoded, with the food and terrain at it
+	private final Map<Integer, Integer> foodIndex = new HashMap<Integer, Integer>(); //Serial of each piece of food in the state to its index there
+	private long nextOffset = -1; //Offset of the frame after the state; -1 if nothing is decoded
+	private ByteBuffer buffer = ByteBuffer.allocate(1 << 12); //Bytes of the frame being read
+	private final World world; //The state, for drawing
+
+	/**
+	 * Opens a recording and shows its first frame
+	 * @param file	File written by TrajectoryRecorder
+	 */
+	public TrajectoryReplay(File file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			ByteBuffer header = read(0, (int) Math.min(size, 1 << 12));
+			BinaryInput in = new BinaryInput(header);
+			if (size < 16 || in.readInt() != TrajectoryRecorder.MAGIC) throw new IOException("Not a trajectory file");
+			int version = in.readInt();
+			if (version < 1 || version > TrajectoryRecorder.VERSION) throw new IOException("Trajectory file version " + version + " is not supported (up to " + TrajectoryRecorder.VERSION + ")");
+			ticksPerFrame = in.readInt();
+			framesPerKeyframe = in.readInt();
+			config = WorldFile.readConfig(in);
+			dataStart = in.getPosition();
+			long indexOffset = readIndex(size);
+			dataEnd = indexOffset >= 0 ? indexOffset : scan(size);
+			if (keyframeCount == 0) throw new IOException("Trajectory file " + file + " has no frames");
+			world = new World(config.copy(), 0);
+			seek(firstTick);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		} catch (RuntimeException e) {
+			channel.close();
+			throw new IOException("Trajectory file is corrupt", e);
+		}
+	}
+
+	/**
+	 * Reads the index at the end of the file, if there is a whole one
+	 * @return	Offset of the index, which is where the frames end; -1 if there is none
+	 */
+	private long readIndex(long size) throws IOException {
+		long indexOffset = findIndexOffset(size);
+		if (indexOffset < 0) return -1;
+		BinaryInput in = new BinaryInput(read(indexOffset, (int) (size - indexOffset)));
+		int n = in.readInt();
+		if (n < 0 || indexOffset + 4 + 16L*n + 28 != size) return -1;
+		keyframeCount = n;
+		keyframeTicks = new long[n];
+		keyframeOffsets = new long[n];
+		in.readLongs(keyframeTicks, n);
+		in.readLongs(keyframeOffsets, n);
+		lastTick = in.readLong();
+		droppedFrames = in.readLong();
+		firstTick = n > 0 ? keyframeTicks[0] : 0;
+		return indexOffset;
+	}
+
+	/**
+	 * @return	Offset of the index written at the end of the file; -1 if the file does not end with one
+	 */
+	private long findIndexOffset(long size) throws IOException {
+		if (size < dataStart + 12) return -1;
+		BinaryInput in = new BinaryInput(read(size - 12, 12));
+		long indexOffset = in.readLong();
+		if (in.readInt() != TrajectoryRecorder.MAGIC || indexOffset < dataStart || indexOffset > size - 12) return -1;
+		return indexOffset;
+	}
+
+	/**
+	 * Builds the index by reading through the frames, for a file that was not closed; a frame cut short ends it
+	 * @return	Offset of the end of the last whole frame
+	 */
+	private long scan(long size) throws IOException {
+		keyframeTicks = new long[16];
+		keyframeOffsets = new long[16];
+		keyframeCount = 0;
+		long offset = dataStart;
+		while (offset + 4 <= size){
+			int length = new BinaryInput(read(offset, 4)).readInt();
+			if (length <= 0 || offset + 4 + length > size) break;
+			long[] header = TrajectoryCodec.readHeader(read(offset + 4, Math.min(length, 16)));
+			if (header[0] != 0){
+				if (keyframeCount == 0) firstTick = header[1];
+				if (keyframeCount == keyframeTicks.length){
+					keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+					keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+				}
+				keyframeTicks[keyframeCount] = header[1];
+				keyframeOffsets[keyframeCount] = offset;
+				keyframeCount++;
+			}
+			lastTick = header[1];
+			offset += 4 + length;
+		}
+		return offset;
+	}
+
+	/**
+	 * Reads bytes of the file into the frame buffer
+	 * @return	The buffer, holding just those bytes
+	 */
+	private ByteBuffer read(long offset, int length) throws IOException {
+		if (buffer.capacity() < length){
+			buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+		}
+		buffer.clear();
+		buffer.limit(length);
+		while (buffer.hasRemaining()){
+			if (channel.read(buffer, offset + buffer.position()) < 0) throw new EOFException("Unexpected end of " + file);
+		}
+		buffer.flip();
+		return buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Shows the last frame recorded at or before a tick
+	 * @param tick	The tick; before the first frame shows the first frame
+	 */
+	public void seek(long tick) throws IOException {
+		int k = Arrays.binarySearch(keyframeTicks, 0, keyframeCount, tick);
+		if (k < 0) k = Math.max(-k - 2, 0);
+		//go on from the frame shown if no keyframe is in the way; otherwise start at the keyframe
+		long offset;
+		if (nextOffset >= 0 && state.tick <= tick && state.tick >= keyframeTicks[k]){
+			offset = nextOffset;
+		}
+		else {
+			offset = decode(keyframeOffsets[k]);
+		}
+		while (offset < dataEnd && frameTick(offset) <= tick){
+			offset = decode(offset);
+		}
+		nextOffset = offset;
+		fillWorld();
+	}
+
+	/**
+	 * Goes to the frame after the one shown, if there is one
+	 * @return	Whether there was
+	 */
+	public boolean next() throws IOException {
+		if (nextOffset >= dataEnd) return false;
+		seek(frameTick(nextOffset));
+		return true;
+	}
+
+	/**
+	 * @param offset	Offset of a frame
+	 * @return	Its tick
+	 */
+	private long frameTick(long offset) throws IOException {
+		int length = new BinaryInput(read(offset, 4)).readInt();
+		return TrajectoryCodec.readHeader(read(offset + 4, Math.min(length, 16)))[1];
+	}
+
+	/**
+	 * Decodes a frame into the state
+	 * @param offset	Offset of the frame
+	 * @return	Offset of the frame after it
+	 */
+	private long decode(long offset) throws IOException {
+		int length = new BinaryInput(read(offset, 4)).readInt();
+		if (length <= 0 || offset + 4 + length > dataEnd) throw new IOException("Trajectory file is corrupt at byte " + offset);
+		codec.decode(read(offset + 4, length), state);
+		if (state.keyframe){
+			indexFood();
+		}
+		else {
+			applyEvents();
+		}
+		return offset + 4 + length;
+	}
+
+	private void indexFood(){
+		foodIndex.clear();
+		for (int i = 0; i < state.foodCount; i++){
+			foodIndex.put(state.foodSerial[i], i);
+		}
+	}
+
+	/**
+	 * Brings the food and deaths of the state up to date with the events of the frame just decoded
+	 */
+	private void applyEvents(){
+		for (int e = 0; e < state.eventCount; e++){
+			int serial = state.eventA[e];
+			switch (state.eventType[e]){
+			case TrajectoryFrame.FOOD_ADDED:
+				int i = state.foodCount;
+				state.setFoodCount(i + 1);
+				state.foodSerial[i] = serial;
+				state.foodValue[i] = state.eventB[e];
+				state.foodType[i] = (byte) state.eventC[e];
+				state.foodX[i] = state.eventX[e];
+				state.foodY[i] = state.eventY[e];
+				foodIndex.put(serial, i);
+				break;
+			case TrajectoryFrame.FOOD_EATEN:
+			case TrajectoryFrame.FOOD_REMOVED:
+				Integer removed = foodIndex.remove(serial);
+				if (removed != null){
+					//move the last piece into the hole
+					int last = state.foodCount - 1;
+					int j = removed;
+					if (j != last){
+						state.foodSerial[j] = state.foodSerial[last];
+						state.foodValue[j] = state.foodValue[last];
+						state.foodType[j] = state.foodType[last];
+						state.foodX[j] = state.foodX[last];
+						state.foodY[j] = state.foodY[last];
+						foodIndex.put(state.foodSerial[j], j);
+					}
+					state.foodCount = last;
+				}
+				break;
+			case TrajectoryFrame.FOOD_MOVED:
+				Integer moved = foodIndex.get(serial);
+				if (moved != null){
+					state.foodX[moved] = state.eventX[e];
+					state.foodY[moved] = state.eventY[e];
+				}
+				break;
+			case TrajectoryFrame.VEHICLE_DIED:
+				int v = state.indexOf(serial);
+				if (v >= 0) state.deceased[v] = true;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Puts the state into the world to draw
+	 */
+	private void fillWorld(){
+		world.clear();
+		for (int i = 0; i < state.terrainCount; i++){
+			world.addTerrain(state.terrainX[i], state.terrainY[i], state.terrainRadius[i], state.terrainType[i]);
+		}
+		for (int i = 0; i < state.foodCount; i++){
+			world.addFood(state.foodX[i] / TrajectoryFrame.POSITION_SCALE, state.foodY[i] / TrajectoryFrame.POSITION_SCALE,
+					state.foodValue[i], state.foodType[i]);
+		}
+		for (int i = 0; i < state.count; i++){
+			Vehicle vehicle = world.addVehicle(getX(i), getY(i), getOrient(i), state.type[i], state.size[i]);
+			vehicle.setEnergy(getEnergy(i));
+			if (state.deceased[i]) world.getVehicles().setDeceased(i, true);
+		}
+		world.setDeadVehicleCount(state.deadVehicleCount);
+	}
+
+	/**
+	 * Closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * @return	The frame shown, as a world to draw; it must not be ticked or edited
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	public WorldConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * @return	Tick of the frame shown
+	 */
+	public long getTick() {
+		return state.tick;
+	}
+
+	public long getFirstTick() {
+		return firstTick;
+	}
+
+	public long getLastTick() {
+		return lastTick;
+	}
+
+	public int getTicksPerFrame() {
+		return ticksPerFrame;
+	}
+
+	public int getFramesPerKeyframe() {
+		return framesPerKeyframe;
+	}
+
+	public int getKeyframeCount() {
+		return keyframeCount;
+	}
+
+	public long getDroppedFrames() {
+		return droppedFrames;
+	}
+
+	/**
+	 * @return	Number of vehicles in the frame shown, dead or alive
+	 */
+	public int getVehicleCount() {
+		return state.count;
+	}
+
+	/**
+	 * @return	Serial of a vehicle, as in the world recorded
+	 */
+	public int getSerial(int i) {
+		return state.serial[i];
+	}
+
+	/**
+	 * @return	x-coordinate of the left sensor, to within 1/POSITION_SCALE pixels
+	 */
+	public double getX(int i) {
+		return state.x[i] / TrajectoryFrame.POSITION_SCALE;
+	}
+
+	public double getY(int i) {
+		return state.y[i] / TrajectoryFrame.POSITION_SCALE;
+	}
+
+	/**
+	 * @return	Orientation in radians, from 0 up to a full turn
+	 */
+	public double getOrient(int i) {
+		return state.orient[i] / TrajectoryFrame.ORIENT_SCALE;
+	}
+
+	public double getEnergy(int i) {
+		return state.energy[i] / TrajectoryFrame.ENERGY_SCALE;
+	}
+
+	/**
+	 * @return	Serial of the food the vehicle was heading for; -1 if none
+	 */
+	public int getTargetSerial(int i) {
+		return state.target[i];
+	}
+
+	public boolean isDeceased(int i) {
+		return state.deceased[i];
+	}
+
+	/**
+	 * @return	Number of pieces of food eaten between the frame before and the frame shown
+	 */
+	public int getFoodEatenCount() {
+		int n = 0;
+		for (int e = 0; e < state.eventCount; e++){
+			if (state.eventType[e] == TrajectoryFrame.FOOD_EATEN) n++;
+		}
+		return n;
+	}
+
+}
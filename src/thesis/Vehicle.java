@@ -1,633 +1,795 @@
-package thesis;
-
-import java.awt.*;
-import java.awt.geom.*;
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * 
- * @author Karina Kinaman
- *
- * Vehicle objects displayed on Field.
- */
-public class Vehicle{
-	
-	private Field field; //Instance of the field on which the vehicle exists
-	
-	private Polygon body = new Polygon(); //Vehicle body--Polygon type because it needs to be a rectangle that can be drawn at any rotation
-	private double centerX, centerY; //Coordinates of center of vehicle body
-	private double positionX, positionY, orientInRadians; //Position of left sensor and orientation of vehicle--used for positioning
-	private int bodyWidth, bodyHeight, wheelWidth, wheelHeight, sensorDiam; //Vehicle proportions
-	private double speed, energy; //Vehicle speed and energy level
-	private int vehicleType; //Type of vehicle: 0-distance, 1-energy
-	private int vehicleSize; //Relative size of vehicle
-	
-	private List<QuadCurve2D> connections = new ArrayList<QuadCurve2D>();  //Vehicle sensor-wheel connections
-	private Point2D[] sensorPositions = new Point2D[2]; //Center points of left (0) and right (1) sensors
-	private Point2D[] wheelPositions = new Point2D[2]; //Center points of left (0) and right (1) wheels
-	private Point2D[] bodyCorners = new Point2D[4]; //Corner points of rectangle body (top-left(0), top-right(1), bottom-right(2), bottom_left(3))
-	private EnergyBar energyBar; //Progress bar showing vehicle's energy level
-	
-	private Food targetFood; //The targeted piece of food
-	private boolean deceased = false; //Whether a vehicle has died
-	private List<Terrain> terrainToCross = new ArrayList<Terrain>(); //List of which terrains the vehicle plans to cross
-	
-	private final static int FOOD_CONN_LEFT = 0;
-	private final static int FOOD_CONN_RIGHT = 1;
-	private final static int TERR_CONN_LEFT = 2;
-	private final static int TERR_CONN_RIGHT = 3;
-	
-	private final static int LEFT = 0; //Constant for the index of the left component
-	private final static int RIGHT = 1; //Constant for the index of the left component
-	
-	private final static Color[] VEHICLE_COLOR = {Color.orange, Color.blue}; //Color of vehicle body: distance-orange, energy-blue
-	private final static Color WHEEL_COLOR = Color.darkGray; //Color of vehicle wheels, sensors, and connections
-	private final static double DEFAULT_SPEED = 0.05; //Default speed - relative to how far (pixels) the vehicle moves per step
-	private final static int INITIAL_ENERGY = 50; //Amount of energy the vehicle starts with (0-100)
-	private final static int PATH_POINT_INTERVAL = 100; //record the point the vehicle is at every 100th step
-	
-	private List<Point2D> pathPoints = new ArrayList<Point2D>();
-	private int stepCounter = 0;
-	private boolean recordPoint = false;
-	
-	private final static int DISTANCE = 0; //Constant for distance type
-	private final static int ENERGY = 1; //Constant for energy type
-
-		
-	/**
-	 * Constructor: Sets proportions of vehicle elements
-	 * @param x	x-coordinate of center of left sensor
-	 * @param y	y-coordinate of center of left sensor
-	 * @param orient	orientation of vehicle
-	 * @param vehicleType	type of vehicle: 0-distance, 1-energy
-	 * @param field	instance of the playing field
-	 * @param size	size of the vehicle
-	 */
-	public Vehicle(double x, double y, double orient, int vehicleType, Field field, int size){
-		this.positionX = x;
-		this.positionY = y;
-		this.orientInRadians = orient;
-		this.vehicleType = vehicleType;
-		this.field = field;
-		this.vehicleSize = size;
-		setConnections();
-		
-		speed = DEFAULT_SPEED;
-		energy = INITIAL_ENERGY;
-		//float the energy bar slightly above the left corner of the vehicle
-		energyBar = new EnergyBar(positionX - vehicleSize/3, positionY - vehicleSize/3, energy);
-		
-		//set dimensions of vehicle parts relative to size
-		bodyWidth = (int)(vehicleSize*.5);
-		bodyHeight = (int)(vehicleSize*.75);
-		wheelWidth = (int)(vehicleSize*.2);
-		wheelHeight = (int)(vehicleSize*.2);
-		sensorDiam = (int)(vehicleSize*.1);
-		
-		//update positions of vehicle parts
-		updateSensors();
-		updateWheels();
-		updateBody();
-		updateConnections();
-	}
-	
-	/**
-	 * Sets connections depending on vehicle type
-	 */
-	private void setConnections(){
-		connections.add(new QuadCurve2D.Double());
-		connections.add(new QuadCurve2D.Double());
-		if (vehicleType==1) { //energy vehicles have an extra set of connections for detecting terrain
-			connections.add(new QuadCurve2D.Double());
-			connections.add(new QuadCurve2D.Double());
-		}
-	}
-
-	public void paint(Graphics g){
-		Graphics2D g2 = (Graphics2D) g;
-		
-		if (field.getSimulator().showPaths()){
-			g2.setColor(VEHICLE_COLOR[vehicleType]);
-			//draw path traveled
-			drawPaths(g2);
-		}
-		
-		//Only want to draw vehicles who are still living
-		if (!deceased){ 
-			//draw body of vehicle: make arrays of x- and y- coords for Polygon type
-			int[] bodyX = new int[4];
-			int[] bodyY = new int[4];
-			for (int i = 0; i < bodyCorners.length; i++){
-				bodyX[i] = (int)bodyCorners[i].getX();
-				bodyY[i] = (int)bodyCorners[i].getY();
-			}
-			g2.setColor(VEHICLE_COLOR[vehicleType]);
-			body = new Polygon(bodyX, bodyY, 4);
-			g2.fill(body);			
-	
-			//draw wheels
-			g2.setColor(WHEEL_COLOR);
-			g.fillOval((int)wheelPositions[LEFT].getX() - wheelWidth/2, (int)wheelPositions[LEFT].getY() - wheelHeight/2, wheelWidth, wheelHeight);
-			g.fillOval((int)wheelPositions[RIGHT].getX() - wheelWidth/2, (int)wheelPositions[RIGHT].getY() - wheelHeight/2, wheelWidth, wheelHeight);
-	
-			//draw sensors
-			g.fillOval((int)sensorPositions[LEFT].getX() - sensorDiam/2, (int)sensorPositions[LEFT].getY() - sensorDiam/2, sensorDiam, sensorDiam);
-			g.fillOval((int)sensorPositions[RIGHT].getX() - sensorDiam/2, (int)sensorPositions[RIGHT].getY() - sensorDiam/2, sensorDiam, sensorDiam);
-	
-			//draw connections
-			for (int i = 0; i < connections.size(); i++){
-				g2.draw(connections.get(i));
-			}
-	
-			//reset position of progress bar
-			energyBar.setPos(positionX - vehicleSize/3, positionY - vehicleSize/3);
-			energyBar.paint(g);
-		}
-	}
-	
-	/**
-	 * Updates a vehicle's sensors
-	 */
-	public void updateSensors(){
-		sensorPositions[LEFT] = new Point2D.Double(positionX, positionY);
-		sensorPositions[RIGHT] = new Point2D.Double(positionX + bodyWidth*Math.cos(orientInRadians), positionY - bodyWidth*Math.sin(orientInRadians));
-	}
-	
-	/**
-	 * Updates a vehicle's wheels
-	 */
-	public void updateWheels(){
-		wheelPositions[LEFT] = new Point2D.Double((sensorPositions[LEFT].getX() + bodyHeight*Math.sin(orientInRadians)), sensorPositions[LEFT].getY() + bodyHeight*Math.cos(orientInRadians));
-		wheelPositions[RIGHT] = new Point2D.Double(wheelPositions[LEFT].getX() + bodyWidth*Math.cos(orientInRadians), wheelPositions[LEFT].getY() - bodyWidth*Math.sin(orientInRadians));
-	}
-	
-	/**
-	 * Updates the position of the vehicle body
-	 */
-	public void updateBody(){
-		bodyCorners[0] = new Point2D.Double(sensorPositions[LEFT].getX(), sensorPositions[LEFT].getY());
-		bodyCorners[1] = new Point2D.Double(sensorPositions[RIGHT].getX(), sensorPositions[RIGHT].getY());
-		bodyCorners[2] = new Point2D.Double(wheelPositions[RIGHT].getX(), wheelPositions[RIGHT].getY());
-		bodyCorners[3] = new Point2D.Double(wheelPositions[LEFT].getX(), wheelPositions[LEFT].getY());
-	}
-	
-	/**
-	 * Updates the sensor-wheel connections
-	 */
-	public void updateConnections(){
-		centerX = (((bodyCorners[0].getX()+bodyCorners[3].getX())/2) + ((bodyCorners[1].getX()+bodyCorners[2].getX())/2))/2;
-		centerY = (((bodyCorners[0].getY()+bodyCorners[3].getY())/2) + ((bodyCorners[1].getY()+bodyCorners[2].getY())/2))/2;
-		//connect left sensor to left wheel
-		connections.get(FOOD_CONN_LEFT).setCurve(sensorPositions[LEFT].getX(), sensorPositions[LEFT].getY(),
-				centerX, centerY, wheelPositions[LEFT].getX(), wheelPositions[LEFT].getY());
-		//connect right sensor to right wheel
-		connections.get(FOOD_CONN_RIGHT).setCurve(sensorPositions[RIGHT].getX(), sensorPositions[RIGHT].getY(),
-				centerX, centerY, wheelPositions[RIGHT].getX(), wheelPositions[RIGHT].getY());
-		if (vehicleType==1){ //if an energy robot, update terrain connections as well
-			//connect left sensor to right wheel
-			connections.get(TERR_CONN_LEFT).setCurve(sensorPositions[LEFT].getX(), sensorPositions[LEFT].getY(), 
-					centerX, centerY, wheelPositions[RIGHT].getX(), wheelPositions[RIGHT].getY());
-			//connect right sensor to left wheel
-			connections.get(TERR_CONN_RIGHT).setCurve(sensorPositions[RIGHT].getX(), sensorPositions[RIGHT].getY(), 
-					centerX, centerY, wheelPositions[LEFT].getX(), wheelPositions[LEFT].getY());
-		}
-	}
-	
-	private void drawPaths(Graphics2D g2){
-		if (pathPoints.size()>=2){ //need at least two points to draw a line
-			for (int i = 0; i < pathPoints.size()-1; i++){
-					g2.draw(new Line2D.Double(pathPoints.get(i).getX(), pathPoints.get(i).getY(), 
-							pathPoints.get(i+1).getX(), pathPoints.get(i+1).getY()));
-			}
-		}
-	}
-	
-	/**
-	 * Steps the vehicle forward one step
-	 */
-	public void step(){
-		
-		//if the vehicle has not died, continue
-		if (!checkForDeath()){
-			//update position from last step
-			updateSensors();
-			updateWheels();
-			updateBody();
-			updateConnections();
-	
-			//if the vehicle has intersected its target food, eat it
-			if (targetFood!=null){
-				if (body.intersects(targetFood.getArea())) eat(targetFood);
-			}	
-	
-			//if the target food has not been chosen or has been eaten, pick a piece of food
-			if (targetFood == null || field.getEatenFoodList().contains(targetFood)){
-				setTargetFood();
-			}
-						
-			//determine the speed of the wheels
-			double lspeed = calculateLeftWheelSpeed(); 
-			double rspeed = calculateRightWheelSpeed();
-	
-			//variables to track changes in position
-			double dx = 0;
-			double dy = 0;
-			double ds, dorient;
-			double orientInDegrees = Math.toDegrees(orientInRadians);
-	
-			/*Step the vehicle forward 'speed' pixels and update positions
-				Direction of movement depends on the vehicle's orientation */
-			if((orientInDegrees%360)<=90){ //facing top right
-				dx = Math.cos(Math.toRadians(90-orientInDegrees))*((lspeed+rspeed)/2)*speed;
-				dy = Math.sin(Math.toRadians(90-orientInDegrees))*((lspeed+rspeed)/2)*speed;
-				positionX = positionX - dx;
-				positionY = positionY - dy;
-			}
-			else if ((orientInDegrees%360)>90 && (orientInDegrees%360)<=180){ //facing top left
-				dx = Math.cos(Math.toRadians(90-(180-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
-				dy = Math.sin(Math.toRadians(90-(180-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
-				positionX = positionX - dx;
-				positionY = positionY + dy;
-			}
-			else if ((orientInDegrees%360)>180 && (orientInDegrees%360)<=270){ //facing bottom left
-				dx = Math.cos(Math.toRadians(360-(orientInDegrees+90)))*((lspeed+rspeed)/2)*speed;
-				dy = Math.sin(Math.toRadians(360-(orientInDegrees+90)))*((lspeed+rspeed)/2)*speed;
-				positionX = positionX + dx;
-				positionY = positionY + dy;
-			}
-			else if ((orientInDegrees%360)>270 && (orientInDegrees%360)<=360){ //facing bottom right
-				dx = Math.cos(Math.toRadians(90-(360-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
-				dy = Math.sin(Math.toRadians(90-(360-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
-				positionX = positionX + dx;
-				positionY = positionY - dy;
-			}
-			
-			//Too many points to record every step; only record every 100th
-			stepCounter++;
-			if (stepCounter>=PATH_POINT_INTERVAL){
-				stepCounter = 0;
-				recordPoint = true;
-			}
-			if (recordPoint){
-				//add new location to drawn path
-				pathPoints.add(new Point2D.Double(positionX, positionY));
-				recordPoint = false;
-			}
-			
-			//determine how much to rotate vehicle based on differences of two wheel speeds
-			//triple to increase turning radius
-			ds = Math.abs(lspeed-rspeed)*speed;
-			dorient = Math.atan(ds/bodyWidth)*3; 
-	
-			//reorient the vehicle
-			if (rspeed > lspeed){
-				orientInRadians = orientInRadians + dorient;
-			}
-			else if (lspeed > rspeed){
-				orientInRadians = orientInRadians - dorient;
-			}
-			
-			//if the robot goes out of bounds, face it back into the field
-			if (!body.intersects(new Rectangle2D.Double(0,0,Simulator.WINDOW_WIDTH, Simulator.WINDOW_HEIGHT))){
-	
-				if (positionX <= 0){
-					positionX = 0;
-					orientInRadians = (3*Math.PI)/2;
-				}
-				if (positionX >= Simulator.WINDOW_WIDTH){
-					positionX = Simulator.WINDOW_WIDTH;
-					orientInRadians = Math.PI/2;
-				}
-				if (positionY <= 0){
-					positionY = 0;
-					orientInRadians = Math.PI;
-				}
-				if (positionY >= Simulator.WINDOW_HEIGHT){
-					positionY = Simulator.WINDOW_HEIGHT;
-					orientInRadians = 0;
-				}
-			}
-			
-			//decrease vehicle's energy level
-			double distanceTraveled = Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
-			if (distanceTraveled==0){
-				//When moving, the vehicles tend to use anywhere from 1e-6 to 9e-5 units of energy every step
-				//So when idle, the vehicles will use 5e-6 units per step
-				energy -= 0.000005;
-				energyBar.setValue((int) energy); //reset energy bar
-			}
-			else{
-				List<Terrain> terrainList = field.getTerrainList();
-				int terrainCost = 1;
-				//if they are over a terrain patch, set the terrain cost appropriately
-				outerloop: for (int i = 0; i < terrainList.size(); i++){
-					Ellipse2D terrain = terrainList.get(i).getCircle();
-					for (int j = 0; j < bodyCorners.length; j++){
-						if (terrain.contains(bodyCorners[j].getX(), bodyCorners[j].getY())){
-							terrainCost = terrainList.get(i).getTerrainCost();
-							break outerloop;
-						}
-					}
-				}
-				energy -= calculateEnergyExpenditure(distanceTraveled, terrainCost); //decrement energy spent
-				energyBar.setValue((int) energy); //update energy bar
-			}
-		}
-	}
-	
-	/**
-	 * Checks if the vehicle has died and handles death procedure
-	 * @return True if vehicle has died, False if it is still living
-	 */
-	private boolean checkForDeath(){
-		if (energy <= 0){ //if vehicle has died
-			speed = 0;
-			deceased = true;
-			field.setDeadVehicleCount(field.getDeadVehicleCount()+1); //increment the count of dead vehicles
-			
-			//add vehicle to cemetery
-			if (vehicleType==DISTANCE) { //if distance
-				field.getSimulator().addDistanceToCemetery();
-			}
-			if (vehicleType==ENERGY) { //if energy
-				field.getSimulator().addEnergyToCemetery();
-			}
-			
-			//if box is checked to automatically add a new vehicle upon death, add one
-			if (field.getSimulator().isAddNewVehicles()){ 
-				field.getVehicleList().add(field.getSimulator().generateNewVehicle(vehicleType, field, vehicleSize));
-				field.repaint();
-			}
-			
-			//if all vehicles have died, pause the simulator
-			if (field.allDead()){
-				field.getSimulator().allDeadPause();
-			}
-			
-			return true;
-		}
-		else return false;
-	}
-	
-	
-	/**
-	 * Based on the type of vehicle, finds the food of lowest cost and sets it as target
-	 */
-	public void setTargetFood(){
-		Food target = null;
-		double netGain = 0;
-		double largestGain = 0;
-		List<Food> foodList = new ArrayList<Food>();
-		List<Terrain> terrainList = field.getTerrainList();
-		
-		//Distance-scaling: find the food closest to the robot (highest net gain of value of food - distance to travel)
-		if (vehicleType == DISTANCE){
-			foodList = field.getDistanceFoodList();
-			for(int i = 0; i < foodList.size(); i++){ 
-				Food curFood = foodList.get(i);
-				Point2D vehicleLoc = new Point2D.Double(centerX, centerY);
-				Point2D foodLoc = new Point2D.Double(curFood.getX(), curFood.getY());
-				double distVehicleToFood = vehicleLoc.distance(foodLoc);
-				//calculate net gain, note that distance vehicles always assume flat ground
-				netGain = curFood.getValue() - calculateEnergyExpenditure(distVehicleToFood, Terrain.FLAT_TERRAIN_COST);
-				if (netGain > largestGain){ 
-					largestGain = netGain;
-					target = curFood;
-				}
-			}
-		}
-		//Bioenergetic-scaling: find food that will take minimum energy to get to (highest net gain of value of food - energy spent)
-		else if (vehicleType == ENERGY){
-			foodList = field.getEnergyFoodList();
-			for(int i = 0; i < foodList.size(); i++){
-				Food curFood = foodList.get(i);
-				List<Terrain> tempTerrainToCross = new ArrayList<Terrain>();
-				Point2D vehicleLoc = new Point2D.Double(centerX, centerY);
-				Point2D foodLoc = new Point2D.Double(curFood.getCenterX(), curFood.getCenterY());
-				double straightPathDistance = vehicleLoc.distance(foodLoc);
-				double pathDistance = straightPathDistance; //initialize pathDistance to the straight-line distance to the food
-				double pathCost = calculateEnergyExpenditure(pathDistance, Terrain.FLAT_TERRAIN_COST); //initialize pathCost to the cost of traveling the straight path if there were no terrain
-				Line2D straightPathLine = new Line2D.Double(vehicleLoc.getX(), vehicleLoc.getY(), foodLoc.getX(), foodLoc.getY());
-				for (int j = 0; j < terrainList.size(); j++){
-					Terrain curTerr = terrainList.get(j);
-					double distStraightPathToTerrain = straightPathLine.ptSegDist(curTerr.getCircle().getCenterX(), curTerr.getCircle().getCenterY());
-					double r = curTerr.getRadius();
-					if (distStraightPathToTerrain < r) { //if the straight path intersects the terrain
-						
-						double chordLength = 2*Math.sqrt(Math.pow(r, 2) - Math.pow(distStraightPathToTerrain, 2));
-						double theta = 2 * Math.asin(chordLength/(2*r));
-						double arcLength = r * theta;
-						int terrainCost = curTerr.getTerrainCost();
-						if (curTerr.contains(curFood)){ //if the terrain contains the food, they will have to cross it
-							pathCost -= calculateEnergyExpenditure(chordLength, Terrain.FLAT_TERRAIN_COST); //subtract assumed cost of crossing terrain
-							pathCost += calculateEnergyExpenditure(chordLength, terrainCost); //add the real cost of crossing the terrain
-							tempTerrainToCross.add(curTerr);
-						}
-						else{
-							//if it costs more energy to cross the terrain than go around it, then plan to go around
-							if (calculateEnergyExpenditure(chordLength, terrainCost) > calculateEnergyExpenditure(arcLength, Terrain.FLAT_TERRAIN_COST)){
-								pathDistance -= chordLength; //subtract assumed distance to cross terrain
-								pathDistance += arcLength; //add distance to go around terrain
-								pathCost -= calculateEnergyExpenditure(chordLength, Terrain.FLAT_TERRAIN_COST); //subtract assumed cost of crossing terrain
-								pathCost += calculateEnergyExpenditure(arcLength, Terrain.FLAT_TERRAIN_COST); //add the cost of going around terrain (flat ground)
-							}		
-							else{ //else, plan on crossing it
-								//don't need to change pathDistance because we already assumed we'd take the straight line path
-								pathCost -= calculateEnergyExpenditure(chordLength, Terrain.FLAT_TERRAIN_COST); //subtract assumed cost of crossing terrain
-								pathCost += calculateEnergyExpenditure(chordLength, terrainCost); //add the real cost of crossing the terrain
-								tempTerrainToCross.add(curTerr);
-							}
-						}
-					}
-				}
-				netGain = curFood.getValue() - pathCost;
-				if (netGain > largestGain){
-					largestGain = netGain;
-					target = curFood;
-					terrainToCross = tempTerrainToCross;
-				}
-			}
-		}
-		targetFood = target;
-	}
-	
-	/**
-	 * Calculates how much energy is spent going some distance over some terrain
-	 * @param distance	The distance traveled
-	 * @param terrainCost	The cost of the terrain crossed
-	 * @return	Amount of energy spent
-	 */
-	public double calculateEnergyExpenditure(double distance, int terrainCost){
-		//divide distance value by 200 to keep energy spent comparable to the amount of energy food contains
-		return (distance/200)*terrainCost;
-	}
-	
-	/**
-	 * Calculates the speed of the left wheel based on the reading from the corresponding sensor(s)
-	 * @return	speed to set wheel to
-	 */
-	public double calculateLeftWheelSpeed(){
-		double leftSpeed = 0;
-		//Distance-scaling: Wheels get input from same-side food sensor
-		if (this.vehicleType==DISTANCE){ 
-			double leftFoodReading = getFoodSensorReading(sensorPositions[LEFT]);
-			leftSpeed = leftFoodReading/750; //divide by 750 to normalize to a small number of pixels
-		}
-		//Energy-scaling: Wheels get input from same-side food sensor and opposite-side terrain sensor
-		else if (this.vehicleType==ENERGY){ 
-			double leftFoodReading = getFoodSensorReading(sensorPositions[LEFT]);
-			double rightTerrainReading = getTerrainSensorReading(sensorPositions[RIGHT]);
-			leftSpeed = (leftFoodReading + rightTerrainReading) / 750; //divide by 750 to normalize to a small number of pixels
-		}
-		return leftSpeed;
-	}
-	
-	/**
-	 * Calculates the speed of the right wheel based on the reading from the corresponding sensor(s)
-	 * @return	speed to set wheel to
-	 */
-	public double calculateRightWheelSpeed(){
-		double rightSpeed = 0;
-		//Distance-scaling: Wheels get input from same-side food sensor
-		if (this.vehicleType==DISTANCE){ 
-			double rightFoodReading = getFoodSensorReading(sensorPositions[RIGHT]);
-			rightSpeed = rightFoodReading/750; //divide by 750 to normalize to a small number of pixels
-		}
-		//Energy-scaling: Wheels get input from same-side food sensor and opposite-side terrain sensor
-		else if (this.vehicleType==ENERGY){ 
-			double rightFoodReading = getFoodSensorReading(sensorPositions[RIGHT]);
-			double leftTerrainReading = getTerrainSensorReading(sensorPositions[LEFT]);
-			rightSpeed = (leftTerrainReading + rightFoodReading)/750; //divide by 750 to normalize to a small number of pixels
-		}
-		return rightSpeed;
-	}
-	
-	/**
-	 * Gets a reading from the food sensor
-	 * @param sensorPos	The position of the sensor getting the reading
-	 * @return	The reading from the sensor of the target food (the distance to the food)
-	 */
-	public double getFoodSensorReading(Point2D sensorPos){
-		double distSensorToFood = 0;
-		if (targetFood != null) {
-			distSensorToFood = sensorPos.distance(targetFood.getX() ,targetFood.getY());
-		}
-		return distSensorToFood;
-	}
-	
-	/**
-	 * Gets a reading from the terrain sensor
-	 * @param sensorPos	The position of the sensor getting the reading
-	 * @return
-	 */
-	public double getTerrainSensorReading(Point2D sensorPos){
-		double reading = 0;
-		double distance = 0;
-		List<Terrain> terrainList = field.getTerrainList();
-		for (int i = 0; i < terrainList.size(); i++){
-			Terrain curTerr = terrainList.get(i);
-			if (!terrainToCross.contains(curTerr)){ //if the terrain is one that it won't cross
-				distance = sensorPos.distance(curTerr.getCenterX(), curTerr.getCenterY()) - curTerr.getRadius();
-				if (distance < 1) { //if the vehicle is close to the terrain
-					reading = distance * 2.5; //double the reading so that it gets a strong reading
-					break;
-				}
-			}
-		}	
-		return reading; //will return 0 if the vehicle wasn't close to any terrain
-	}
-	
-	/**
-	 * When a vehicle intersects a piece of food, it will consume it
-	 * @param food	The piece of food that the vehicle will eat
-	 */
-	public void eat(Food food){
-		speed = 0; //stop the vehicle
-		
-		//add the energy from the food to the vehicle's energy bar
-		energy += food.getValue();
-		energyBar.setValue(energy);
-
-		field.getEatenFoodList().add(food); //add the food to the list of eaten food
-		
-		//remove the food from the list of uneaten food
-		if (vehicleType==DISTANCE) {
-			field.getDistanceFoodList().remove(food);
-		}
-		else {
-			field.getEnergyFoodList().remove(food);
-		}
-				
-		field.repaint();
-		
-		speed = DEFAULT_SPEED; //restart the vehicle
-	}
-	
-	public void resetPos(double x, double y){
-		setPosx(x);
-		setPosy(y);
-		updateSensors();
-		updateWheels();
-		updateBody();
-		updateConnections();
-	}
-	
-	public double getPosx() {
-		return positionX;
-	}
-
-	private void setPosx(double posx) {
-		this.positionX = posx;
-	}
-
-	public double getPosy() {
-		return positionY;
-	}
-
-	private void setPosy(double posy) {
-		this.positionY = posy;
-	}
-
-	public Polygon getBody() {
-		return body;
-	}
-
-	public double getCenterX() {
-		return centerX;
-	}
-
-	public double getCenterY() {
-		return centerY;
-	}
-
-	public int getBodyWidth() {
-		return bodyWidth;
-	}
-
-	public int getBodyHeight() {
-		return bodyHeight;
-	}
-
-	public double getEnergy() {
-		return energy;
-	}
-
-	public void setEnergy(double energy) {
-		this.energy = energy;
-	}
-
-	public int getVehicleType() {
-		return vehicleType;
-	}
-
-	public int getVehicleSize() {
-		return vehicleSize;
-	}
-
-	public boolean isDeceased() {
-		return deceased;
-	}
-
-
-}
+package thesis;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.BufferedImage;
+
+/**
+ *
+ * @author Karina Kinaman
+ *
+ * Vehicle objects displayed on Field.
+ * A Vehicle is a handle onto one row of its world's VehicleStore, which holds the actual state;
+ * the shapes used for drawing are derived from that state in paint().
+ */
+public class Vehicle{
+
+	private World world; //Instance of the world in which the vehicle exists
+	private VehicleStore store; //The world's vehicle state
+	private int index; //Row of this vehicle in the store
+	private EnergyBar energyBar; //Drawn above the vehicle; null until first painted
+	private int[] bodyX, bodyY; //Corners of the body, reused each paint
+	private int[] curveX, curveY; //Points of a connection flattened into a polyline, reused for each connection drawn
+
+	final static Color[] VEHICLE_COLOR = {Color.orange, Color.blue}; //Color of vehicle body and path: distance-orange, energy-blue
+	final static Color WHEEL_COLOR = Color.darkGray; //Color of vehicle wheels, sensors, and connections
+	private final static int CURVE_SEGMENTS = 8; //Number of straight segments each connection is drawn with
+	private final static int PATH_POINT_INTERVAL = 100; //record the point the vehicle is at every 100th step
+
+	private final static int DISTANCE = 0; //Constant for distance type
+	private final static int ENERGY = 1; //Constant for energy type
+	private final static double GAIN_TOLERANCE = 1e-9; //Slack for rounding when a bound on a candidate's gain is compared with an exact gain
+	
+	//Per-thread buffers for setTargetFood(): the best candidate's terrain crossings so far (0), the current candidate's (1),
+	//and the terrain near the part of the world searched so far (2).
+	//Kept per thread rather than per call so that stepping allocates nothing once the buffers are big enough.
+	private final static ThreadLocal<int[][]> CROSSING_BUFFERS = new ThreadLocal<int[][]>(){
+		@Override
+		protected int[][] initialValue() {
+			return new int[][] {new int[16], new int[16], new int[16]};
+		}
+	};
+	//Per-thread outline for bodyIntersects(), so the eating and bounds checks allocate nothing
+	private final static ThreadLocal<BodyOutline> OUTLINES = new ThreadLocal<BodyOutline>(){
+		@Override
+		protected BodyOutline initialValue() {
+			return new BodyOutline();
+		}
+	};
+
+
+	/**
+	 * Constructor: creates the handle for an existing row. Use World.addVehicle() to add a vehicle.
+	 * @param world	instance of the world the vehicle lives in
+	 * @param index	row of the vehicle in the world's VehicleStore
+	 */
+	Vehicle(World world, int index){
+		this.world = world;
+		this.store = world.getVehicles();
+		this.index = index;
+	}
+
+	/**
+	 * Draws the vehicle (its path is drawn by TrailLayer)
+	 * @param g	Graphics to draw on
+	 * @param sprites	Sprites for the wheels and sensors
+	 */
+	public void paint(Graphics g, SpriteCache sprites){
+		Graphics2D g2 = (Graphics2D) g;
+		int vehicleType = getVehicleType();
+
+		//Only want to draw vehicles who are still living
+		if (!isDeceased()){
+			int i = index;
+			int wheelWidth = (int)(getVehicleSize()*.2);
+			int wheelHeight = (int)(getVehicleSize()*.2);
+			int sensorDiam = (int)(getVehicleSize()*.1);
+
+			//shapes are kept between paints so that drawing allocates nothing
+			if (energyBar == null){
+				energyBar = new EnergyBar(0, 0, 0);
+				bodyX = new int[4];
+				bodyY = new int[4];
+				curveX = new int[CURVE_SEGMENTS + 1];
+				curveY = new int[CURVE_SEGMENTS + 1];
+			}
+
+			//draw body of vehicle
+			bodyX[0] = (int)store.getX(i);
+			bodyX[1] = (int)store.getRightSensorX(i);
+			bodyX[2] = (int)store.getRightWheelX(i);
+			bodyX[3] = (int)store.getLeftWheelX(i);
+			bodyY[0] = (int)store.getY(i);
+			bodyY[1] = (int)store.getRightSensorY(i);
+			bodyY[2] = (int)store.getRightWheelY(i);
+			bodyY[3] = (int)store.getLeftWheelY(i);
+			g2.setColor(VEHICLE_COLOR[vehicleType]);
+			g2.fillPolygon(bodyX, bodyY, 4);
+
+			//draw wheels (the same pixels as fillOval, but copied from a sprite)
+			BufferedImage wheel = sprites.getWheelSprite(wheelWidth);
+			if (wheel != null){
+				g.drawImage(wheel, (int)store.getLeftWheelX(i) - wheelWidth/2, (int)store.getLeftWheelY(i) - wheelHeight/2, null);
+				g.drawImage(wheel, (int)store.getRightWheelX(i) - wheelWidth/2, (int)store.getRightWheelY(i) - wheelHeight/2, null);
+			}
+
+			//draw sensors
+			BufferedImage sensor = sprites.getWheelSprite(sensorDiam);
+			if (sensor != null){
+				g.drawImage(sensor, (int)store.getX(i) - sensorDiam/2, (int)store.getY(i) - sensorDiam/2, null);
+				g.drawImage(sensor, (int)store.getRightSensorX(i) - sensorDiam/2, (int)store.getRightSensorY(i) - sensorDiam/2, null);
+			}
+
+			//draw connections
+			g2.setColor(WHEEL_COLOR);
+			double centerX = getCenterX();
+			double centerY = getCenterY();
+			//connect left sensor to left wheel
+			drawConnection(g, store.getX(i), store.getY(i), centerX, centerY, store.getLeftWheelX(i), store.getLeftWheelY(i));
+			//connect right sensor to right wheel
+			drawConnection(g, store.getRightSensorX(i), store.getRightSensorY(i), centerX, centerY, store.getRightWheelX(i), store.getRightWheelY(i));
+			if (vehicleType==ENERGY){ //energy vehicles have an extra set of connections for detecting terrain
+				//connect left sensor to right wheel
+				drawConnection(g, store.getX(i), store.getY(i), centerX, centerY, store.getRightWheelX(i), store.getRightWheelY(i));
+				//connect right sensor to left wheel
+				drawConnection(g, store.getRightSensorX(i), store.getRightSensorY(i), centerX, centerY, store.getLeftWheelX(i), store.getLeftWheelY(i));
+			}
+
+			//float the energy bar slightly above the left corner of the vehicle
+			energyBar.setPos(getEnergyBarX(), getEnergyBarY());
+			energyBar.setValue(getEnergy());
+			energyBar.paint(g);
+		}
+	}
+
+	/**
+	 * Marks the area paint() draws on: the body, wheels and sensors, and the energy bar
+	 * @param dirty	Region to mark the area on
+	 */
+	public void markBounds(DirtyRegion dirty){
+		if (isDeceased()) return;
+		double margin = getVehicleSize()*.1 + 1; //half a wheel, and a pixel for rounding
+		dirty.markDrawn(getMinCornerX() - margin, getMinCornerY() - margin,
+				getMaxCornerX() - getMinCornerX() + 2*margin, getMaxCornerY() - getMinCornerY() + 2*margin);
+		dirty.markDrawn(getEnergyBarX() - 1, getEnergyBarY() - 1, EnergyBar.WIDTH + 2, EnergyBar.HEIGHT + 2);
+	}
+
+	/**
+	 * @return	Whether paint() may draw within the rectangle: the same area markBounds() marks
+	 */
+	public boolean paintsWithin(double x, double y, double width, double height){
+		if (isDeceased()) return false;
+		double margin = getVehicleSize()*.1 + 1;
+		if (getMinCornerX() - margin < x + width && getMaxCornerX() + margin > x
+				&& getMinCornerY() - margin < y + height && getMaxCornerY() + margin > y) return true;
+		return getEnergyBarX() - 1 < x + width && getEnergyBarX() + EnergyBar.WIDTH + 1 > x
+				&& getEnergyBarY() - 1 < y + height && getEnergyBarY() + EnergyBar.HEIGHT + 1 > y;
+	}
+
+	//Bounds of the corners of the body (the sensors and wheels)
+	private double getMinCornerX(){
+		int i = index;
+		return Math.min(Math.min(store.getX(i), store.getRightSensorX(i)), Math.min(store.getLeftWheelX(i), store.getRightWheelX(i)));
+	}
+
+	private double getMaxCornerX(){
+		int i = index;
+		return Math.max(Math.max(store.getX(i), store.getRightSensorX(i)), Math.max(store.getLeftWheelX(i), store.getRightWheelX(i)));
+	}
+
+	private double getMinCornerY(){
+		int i = index;
+		return Math.min(Math.min(store.getY(i), store.getRightSensorY(i)), Math.min(store.getLeftWheelY(i), store.getRightWheelY(i)));
+	}
+
+	private double getMaxCornerY(){
+		int i = index;
+		return Math.max(Math.max(store.getY(i), store.getRightSensorY(i)), Math.max(store.getLeftWheelY(i), store.getRightWheelY(i)));
+	}
+
+	//Upper left-hand corner of the energy bar, which floats slightly above the left corner of the vehicle
+	private double getEnergyBarX(){
+		return store.getX(index) - getVehicleSize()/3;
+	}
+
+	private double getEnergyBarY(){
+		return store.getY(index) - getVehicleSize()/3;
+	}
+
+	/**
+	 * Draws a connection as a quadratic curve, flattened into a polyline so that no shape has to be built
+	 * @param g	Graphics to draw on
+	 * @param x1	X-coordinate of the start
+	 * @param y1	Y-coordinate of the start
+	 * @param ctrlX	X-coordinate of the control point
+	 * @param ctrlY	Y-coordinate of the control point
+	 * @param x2	X-coordinate of the end
+	 * @param y2	Y-coordinate of the end
+	 */
+	private void drawConnection(Graphics g, double x1, double y1, double ctrlX, double ctrlY, double x2, double y2){
+		for (int k = 0; k <= CURVE_SEGMENTS; k++){
+			double t = (double) k / CURVE_SEGMENTS;
+			double u = 1 - t;
+			curveX[k] = (int) Math.round(u*u*x1 + 2*u*t*ctrlX + t*t*x2);
+			curveY[k] = (int) Math.round(u*u*y1 + 2*u*t*ctrlY + t*t*y2);
+		}
+		g.drawPolyline(curveX, curveY, CURVE_SEGMENTS + 1);
+	}
+
+	/**
+	 * Updates the positions of the right sensor and the wheels (and so the body corners) from the position
+	 * of the left sensor and the orientation
+	 */
+	public void updateGeometry(){
+		int i = index;
+		double orientInRadians = store.getOrient(i);
+		double cos = Math.cos(orientInRadians);
+		double sin = Math.sin(orientInRadians);
+		int bodyWidth = getBodyWidth();
+		int bodyHeight = getBodyHeight();
+
+		//sensors
+		double leftSensorX = store.getX(i);
+		double leftSensorY = store.getY(i);
+		double rightSensorX = leftSensorX + bodyWidth*cos;
+		double rightSensorY = leftSensorY - bodyWidth*sin;
+		//wheels
+		double leftWheelX = leftSensorX + bodyHeight*sin;
+		double leftWheelY = leftSensorY + bodyHeight*cos;
+		double rightWheelX = leftWheelX + bodyWidth*cos;
+		double rightWheelY = leftWheelY - bodyWidth*sin;
+
+		store.setGeometry(i, rightSensorX, rightSensorY, leftWheelX, leftWheelY, rightWheelX, rightWheelY);
+	}
+
+	/**
+	 * Steps the vehicle forward one step
+	 * World.tick() instead runs advance() for every vehicle before running commit() for any
+	 */
+	public void step(){
+		advance(null);
+		commit();
+	}
+
+	/**
+	 * First phase of a step: senses, picks a target and moves the vehicle.
+	 * Only changes this vehicle, so advance() can run for many vehicles at once.
+	 * @param clock	Clock of the calling thread to time the parts of the step with; null to not time them
+	 */
+	void advance(PhaseClock clock){
+		int i = index;
+
+		//if the vehicle has not died, continue
+		if (!store.isDeceased(i)){
+			//update position from last step
+			updateGeometry();
+
+			//if the vehicle has intersected its target food, claim it; it is eaten in commit()
+			FoodStore food = world.getFood();
+			int targetFood = store.getTarget(i);
+			if (targetFood >= 0 && !store.isRetarget(i)){
+				if (bodyIntersects(food.getX(targetFood), food.getY(targetFood), food.getSize(targetFood), food.getSize(targetFood))){
+					store.setClaimed(i, targetFood);
+				}
+			}
+			if (clock != null) clock.mark(SimMetrics.MOTION); //the body and whether it reached its food follow from the last move
+
+			//if the target food has not been chosen or has been eaten, pick a piece of food
+			if (targetFood < 0 || store.isRetarget(i)){
+				setTargetFood();
+				if (clock != null) clock.retargets++;
+			}
+			if (clock != null) clock.mark(SimMetrics.RETARGETING);
+
+			//determine the speed of the wheels
+			double lspeed = calculateLeftWheelSpeed();
+			double rspeed = calculateRightWheelSpeed();
+			if (clock != null) clock.mark(SimMetrics.SENSING);
+
+			//variables to track changes in position
+			double dx = 0;
+			double dy = 0;
+			double ds, dorient;
+			double speed = store.getSpeed(i);
+			double positionX = store.getX(i);
+			double positionY = store.getY(i);
+			double orientInRadians = store.getOrient(i);
+			double orientInDegrees = Math.toDegrees(orientInRadians);
+
+			/*Step the vehicle forward 'speed' pixels and update positions
+				Direction of movement depends on the vehicle's orientation */
+			if((orientInDegrees%360)<=90){ //facing top right
+				dx = Math.cos(Math.toRadians(90-orientInDegrees))*((lspeed+rspeed)/2)*speed;
+				dy = Math.sin(Math.toRadians(90-orientInDegrees))*((lspeed+rspeed)/2)*speed;
+				positionX = positionX - dx;
+				positionY = positionY - dy;
+			}
+			else if ((orientInDegrees%360)>90 && (orientInDegrees%360)<=180){ //facing top left
+				dx = Math.cos(Math.toRadians(90-(180-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
+				dy = Math.sin(Math.toRadians(90-(180-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
+				positionX = positionX - dx;
+				positionY = positionY + dy;
+			}
+			else if ((orientInDegrees%360)>180 && (orientInDegrees%360)<=270){ //facing bottom left
+				dx = Math.cos(Math.toRadians(360-(orientInDegrees+90)))*((lspeed+rspeed)/2)*speed;
+				dy = Math.sin(Math.toRadians(360-(orientInDegrees+90)))*((lspeed+rspeed)/2)*speed;
+				positionX = positionX + dx;
+				positionY = positionY + dy;
+			}
+			else if ((orientInDegrees%360)>270 && (orientInDegrees%360)<=360){ //facing bottom right
+				dx = Math.cos(Math.toRadians(90-(360-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
+				dy = Math.sin(Math.toRadians(90-(360-orientInDegrees)))*((lspeed+rspeed)/2)*speed;
+				positionX = positionX + dx;
+				positionY = positionY - dy;
+			}
+
+			//Too many points to record every step; only record every 100th
+			int stepCounter = store.getStepCounter(i) + 1;
+			if (stepCounter>=PATH_POINT_INTERVAL){
+				stepCounter = 0;
+				//add new location to drawn path
+				store.addPathPoint(i, positionX, positionY, world.getConfig().getTrailCapacity(), world.getConfig().getTrailMinDistance());
+			}
+			store.setStepCounter(i, stepCounter);
+
+			//determine how much to rotate vehicle based on differences of two wheel speeds
+			//triple to increase turning radius
+			ds = Math.abs(lspeed-rspeed)*speed;
+			dorient = Math.atan(ds/getBodyWidth())*3;
+
+			//reorient the vehicle
+			if (rspeed > lspeed){
+				orientInRadians = orientInRadians + dorient;
+			}
+			else if (lspeed > rspeed){
+				orientInRadians = orientInRadians - dorient;
+			}
+
+			//if the robot goes out of bounds, face it back into the field
+			int worldWidth = world.getConfig().getWidth();
+			int worldHeight = world.getConfig().getHeight();
+			if (!bodyIntersects(0, 0, worldWidth, worldHeight)){
+
+				if (positionX <= 0){
+					positionX = 0;
+					orientInRadians = (3*Math.PI)/2;
+				}
+				if (positionX >= worldWidth){
+					positionX = worldWidth;
+					orientInRadians = Math.PI/2;
+				}
+				if (positionY <= 0){
+					positionY = 0;
+					orientInRadians = Math.PI;
+				}
+				if (positionY >= worldHeight){
+					positionY = worldHeight;
+					orientInRadians = 0;
+				}
+			}
+			if (clock != null) clock.mark(SimMetrics.MOTION);
+
+			//decrease vehicle's energy level
+			double distanceTraveled = Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
+			if (distanceTraveled==0){
+				//When moving, the vehicles tend to use anywhere from 1e-6 to 9e-5 units of energy every step
+				//So when idle, the vehicles will use 5e-6 units per step
+				store.setEnergy(i, store.getEnergy(i) - 0.000005);
+			}
+			else{
+				TerrainLookup terrainLookup = world.getTerrainLookup();
+				int terrainCost = 1;
+				//if they are over a terrain patch, set the terrain cost appropriately
+				//check the corners of the body (left sensor, right sensor, right wheel, left wheel) where it started the step,
+				//which the store still holds; the first patch in the terrain list wins
+				Terrain terrain = terrainLookup.findFirst(store.getX(i), store.getY(i), null);
+				terrain = terrainLookup.findFirst(store.getRightSensorX(i), store.getRightSensorY(i), terrain);
+				terrain = terrainLookup.findFirst(store.getRightWheelX(i), store.getRightWheelY(i), terrain);
+				terrain = terrainLookup.findFirst(store.getLeftWheelX(i), store.getLeftWheelY(i), terrain);
+				if (terrain != null){
+					terrainCost = terrain.getTerrainCost();
+				}
+				double cost = calculateEnergyExpenditure(distanceTraveled, terrainCost);
+				store.setEnergy(i, store.getEnergy(i) - cost); //decrement energy spent
+				store.setTraveled(i, store.getTraveled(i) + distanceTraveled);
+				store.setCostPaid(i, store.getCostPaid(i) + cost);
+			}
+			store.setX(i, positionX);
+			store.setY(i, positionY);
+			store.setOrient(i, orientInRadians);
+			if (clock != null) clock.mark(SimMetrics.TERRAIN_COST);
+		}
+	}
+
+	/**
+	 * Second phase of a step: eats claimed food and handles death.
+	 * Changes the world's food and vehicle lists, so World runs it for one vehicle at a time, in list order.
+	 */
+	void commit(){
+		int i = index;
+		if (store.isDeceased(i)) return;
+		FoodStore food = world.getFood();
+
+		//list the vehicle under the food it picked, to be told when that is eaten. A vehicle earlier in the list may already
+		//have eaten it; then the vehicle must not be listed, since the slot's list is for whatever food reuses it next.
+		int targetFood = store.getTarget(i);
+		if (targetFood >= 0 && !food.isLive(targetFood)){
+			store.unlistTarget(i);
+			store.setRetarget(i, true);
+		}
+		else {
+			store.syncTarget(i);
+		}
+
+		int claimedFood = store.getClaimed(i);
+		if (claimedFood >= 0){
+			//a vehicle earlier in the list may have eaten it this tick
+			if (food.isLive(claimedFood)) eat(claimedFood);
+			store.setClaimed(i, -1);
+		}
+		if (checkForDeath()){
+			store.unlistTarget(i);
+		}
+	}
+
+	/**
+	 * Checks if the vehicle has died and handles death procedure
+	 * @return True if vehicle has died, False if it is still living
+	 */
+	private boolean checkForDeath(){
+		if (store.getEnergy(index) <= 0){ //if vehicle has died
+			store.setSpeed(index, 0);
+			store.setDeceased(index, true);
+
+			//count the death, add the vehicle to the cemetery and respawn if set to
+			world.vehicleDied(this);
+
+			return true;
+		}
+		else return false;
+	}
+
+
+	/**
+	 * Based on the type of vehicle, finds the food of lowest cost and sets it as target.
+	 * Food is searched in rings of grid cells outward from the vehicle, and the search stops once no food
+	 * in the next ring could give a larger net gain than the best found so far, since a piece is worth at most
+	 * the largest food value and getting to it costs at least the flat cost of the straight-line distance.
+	 * Of equally good pieces the one in the lowest slot is chosen, so the target does not depend on search order.
+	 */
+	public void setTargetFood(){
+		int i = index;
+		int type = getVehicleType();
+		int target = -1;
+		double netGain = 0;
+		double largestGain = 0;
+		FoodStore food = world.getFood();
+		PathCostCache terrain = world.getPathCostCache();
+		double centerX = getCenterX();
+		double centerY = getCenterY();
+
+		int[][] buffers = CROSSING_BUFFERS.get();
+		if (buffers[0].length < terrain.getTerrainCount()){
+			buffers[0] = new int[terrain.getTerrainCount()];
+			buffers[1] = new int[terrain.getTerrainCount()];
+			buffers[2] = new int[terrain.getTerrainCount()];
+		}
+		int[] terrainToCross = buffers[0];
+		int[] tempTerrainToCross = buffers[1];
+		int terrainToCrossCount = 0;
+		int[] nearTerrain = buffers[2]; //Indices in the terrain list of the patches that overlap the rings searched so far
+		int nearTerrainCount = 0;
+
+		//the cheapest any path can be per unit of distance; with a terrain cheaper than flat ground there is no useful bound
+		int minCost = Terrain.FLAT_TERRAIN_COST;
+		if (type == ENERGY){
+			for (int j = 0; j < terrain.getTerrainCount(); j++){
+				minCost = Math.min(minCost, terrain.getCost(j));
+			}
+		}
+		boolean bounded = minCost == Terrain.FLAT_TERRAIN_COST;
+
+		int col = food.getColumn(centerX);
+		int row = food.getRow(centerY);
+		int maxRing = Math.max(food.getColumns(), food.getRows());
+		for (int ring = 0; ring <= maxRing; ring++){
+			if (bounded && ring > 1){
+				//food in this ring is at least (ring-1) cells away, less the offset between a piece's corner and its center
+				double minDistance = Math.max(0, (ring-1)*FoodStore.CELL_SIZE - food.getMaxSize());
+				double maxGain = food.getMaxValue() - calculateEnergyExpenditure(minDistance, minCost);
+				if (target < 0 ? maxGain <= 0 : maxGain < largestGain) break;
+			}
+			if (type == ENERGY){
+				//a path from the vehicle to food in these rings stays inside their square (unbounded past the edge cells),
+				//so only patches overlapping the square can be on it; they are kept in terrain list order
+				double minX = col - ring <= 0 ? Double.NEGATIVE_INFINITY : (col - ring)*FoodStore.CELL_SIZE;
+				double maxX = col + ring >= food.getColumns() - 1 ? Double.POSITIVE_INFINITY : (col + ring + 1)*FoodStore.CELL_SIZE;
+				double minY = row - ring <= 0 ? Double.NEGATIVE_INFINITY : (row - ring)*FoodStore.CELL_SIZE;
+				double maxY = row + ring >= food.getRows() - 1 ? Double.POSITIVE_INFINITY : (row + ring + 1)*FoodStore.CELL_SIZE;
+				nearTerrainCount = 0;
+				for (int j = 0; j < terrain.getTerrainCount(); j++){
+					double r = terrain.getRadius(j);
+					if (terrain.getCenterX(j) + r > minX && terrain.getCenterX(j) - r < maxX
+							&& terrain.getCenterY(j) + r > minY && terrain.getCenterY(j) - r < maxY){
+						nearTerrain[nearTerrainCount++] = j;
+					}
+				}
+			}
+			for (int cellRow = Math.max(0, row - ring); cellRow <= Math.min(food.getRows() - 1, row + ring); cellRow++){
+				//whole rows at the top and bottom of the ring, just the two ends in between
+				int step = (cellRow == row - ring || cellRow == row + ring) ? 1 : 2*ring;
+				for (int cellColumn = col - ring; cellColumn <= col + ring; cellColumn += step){
+					if (cellColumn < 0 || cellColumn >= food.getColumns()) continue;
+					for (int curFood = food.getFirstInCell(type, cellColumn, cellRow); curFood >= 0; curFood = food.getNextInCell(curFood)){
+						int tempCount = 0;
+						//Distance-scaling: find the food closest to the robot (highest net gain of value of food - distance to travel)
+						if (type == DISTANCE){
+							double distVehicleToFood = Point2D.distance(centerX, centerY, food.getX(curFood), food.getY(curFood));
+							//calculate net gain, note that distance vehicles always assume flat ground
+							netGain = food.getValue(curFood) - calculateEnergyExpenditure(distVehicleToFood, Terrain.FLAT_TERRAIN_COST);
+						}
+						//Bioenergetic-scaling: find food that will take minimum energy to get to (highest net gain of value of food - energy spent)
+						else {
+							double foodX = food.getCenterX(curFood);
+							double foodY = food.getCenterY(curFood);
+							double straightPathDistance = Point2D.distance(centerX, centerY, foodX, foodY);
+							if (bounded){
+								//skip the terrain if even the straight path plus the least the food's own patches can add is not good enough
+								double maxGain = food.getValue(curFood) - calculateEnergyExpenditure(straightPathDistance, Terrain.FLAT_TERRAIN_COST)
+										- calculateEnergyExpenditure(terrain.getPenalty(curFood), 1);
+								if (maxGain < (target < 0 ? 0 : largestGain) - GAIN_TOLERANCE) continue;
+							}
+							double pathDistance = straightPathDistance; //initialize pathDistance to the straight-line distance to the food
+							double pathCost = calculateEnergyExpenditure(pathDistance, Terrain.FLAT_TERRAIN_COST); //initialize pathCost to the cost of traveling the straight path if there were no terrain
+							for (int n = 0; n < nearTerrainCount; n++){
+								int j = nearTerrain[n];
+								double distStraightPathToTerrain = Line2D.ptSegDist(centerX, centerY, foodX, foodY, terrain.getCenterX(j), terrain.getCenterY(j));
+								double r = terrain.getRadius(j);
+								if (distStraightPathToTerrain < r) { //if the straight path intersects the terrain
+
+									double chordLength = 2*Math.sqrt(Math.pow(r, 2) - Math.pow(distStraightPathToTerrain, 2));
+									double theta = 2 * Math.asin(chordLength/(2*r));
+									double arcLength = r * theta;
+									int terrainCost = terrain.getCost(j);
+									if (terrain.contains(curFood, j)){ //if the terrain contains the food, they will have to cross it
+										pathCost -= calculateEnergyExpenditure(chordLength, Terrain.FLAT_TERRAIN_COST); //subtract assumed cost of crossing terrain
+										pathCost += calculateEnergyExpenditure(chordLength, terrainCost); //add the real cost of crossing the terrain
+										tempTerrainToCross[tempCount++] = terrain.getId(j);
+									}
+									else{
+										//if it costs more energy to cross the terrain than go around it, then plan to go around
+										if (calculateEnergyExpenditure(chordLength, terrainCost) > calculateEnergyExpenditure(arcLength, Terrain.FLAT_TERRAIN_COST)){
+											pathDistance -= chordLength; //subtract assumed distance to cross terrain
+											pathDistance += arcLength; //add distance to go around terrain
+											pathCost -= calculateEnergyExpenditure(chordLength, Terrain.FLAT_TERRAIN_COST); //subtract assumed cost of crossing terrain
+											pathCost += calculateEnergyExpenditure(arcLength, Terrain.FLAT_TERRAIN_COST); //add the cost of going around terrain (flat ground)
+										}
+										else{ //else, plan on crossing it
+											//don't need to change pathDistance because we already assumed we'd take the straight line path
+											pathCost -= calculateEnergyExpenditure(chordLength, Terrain.FLAT_TERRAIN_COST); //subtract assumed cost of crossing terrain
+											pathCost += calculateEnergyExpenditure(chordLength, terrainCost); //add the real cost of crossing the terrain
+											tempTerrainToCross[tempCount++] = terrain.getId(j);
+										}
+									}
+								}
+							}
+							netGain = food.getValue(curFood) - pathCost;
+						}
+						if (netGain > largestGain || (netGain == largestGain && target > curFood)){
+							largestGain = netGain;
+							target = curFood;
+							//keep this candidate's crossings; reuse the old array for the next candidate
+							int[] swap = terrainToCross;
+							terrainToCross = tempTerrainToCross;
+							tempTerrainToCross = swap;
+							terrainToCrossCount = tempCount;
+						}
+					}
+				}
+			}
+		}
+		if (type == ENERGY && target >= 0) store.setCrossing(i, terrainToCross, terrainToCrossCount);
+		store.setTarget(i, target);
+		store.setRetarget(i, false);
+	}
+
+	/**
+	 * Calculates how much energy is spent going some distance over some terrain
+	 * @param distance	The distance traveled
+	 * @param terrainCost	The cost of the terrain crossed
+	 * @return	Amount of energy spent
+	 */
+	public double calculateEnergyExpenditure(double distance, int terrainCost){
+		//divide distance value by 200 to keep energy spent comparable to the amount of energy food contains
+		return (distance/200)*terrainCost;
+	}
+
+	/**
+	 * Calculates the speed of the left wheel based on the reading from the corresponding sensor(s)
+	 * @return	speed to set wheel to
+	 */
+	public double calculateLeftWheelSpeed(){
+		double leftSpeed = 0;
+		//Distance-scaling: Wheels get input from same-side food sensor
+		if (getVehicleType()==DISTANCE){
+			double leftFoodReading = getFoodSensorReading(store.getX(index), store.getY(index));
+			leftSpeed = leftFoodReading/world.getConfig().getWheelNormalizer(); //divide by 750 (by default) to normalize to a small number of pixels
+		}
+		//Energy-scaling: Wheels get input from same-side food sensor and opposite-side terrain sensor
+		else if (getVehicleType()==ENERGY){
+			double leftFoodReading = getFoodSensorReading(store.getX(index), store.getY(index));
+			double rightTerrainReading = getTerrainSensorReading(store.getRightSensorX(index), store.getRightSensorY(index));
+			leftSpeed = (leftFoodReading + rightTerrainReading) / world.getConfig().getWheelNormalizer(); //divide by 750 (by default) to normalize to a small number of pixels
+		}
+		return leftSpeed;
+	}
+
+	/**
+	 * Calculates the speed of the right wheel based on the reading from the corresponding sensor(s)
+	 * @return	speed to set wheel to
+	 */
+	public double calculateRightWheelSpeed(){
+		double rightSpeed = 0;
+		//Distance-scaling: Wheels get input from same-side food sensor
+		if (getVehicleType()==DISTANCE){
+			double rightFoodReading = getFoodSensorReading(store.getRightSensorX(index), store.getRightSensorY(index));
+			rightSpeed = rightFoodReading/world.getConfig().getWheelNormalizer(); //divide by 750 (by default) to normalize to a small number of pixels
+		}
+		//Energy-scaling: Wheels get input from same-side food sensor and opposite-side terrain sensor
+		else if (getVehicleType()==ENERGY){
+			double rightFoodReading = getFoodSensorReading(store.getRightSensorX(index), store.getRightSensorY(index));
+			double leftTerrainReading = getTerrainSensorReading(store.getX(index), store.getY(index));
+			rightSpeed = (leftTerrainReading + rightFoodReading)/world.getConfig().getWheelNormalizer(); //divide by 750 (by default) to normalize to a small number of pixels
+		}
+		return rightSpeed;
+	}
+
+	/**
+	 * Gets a reading from the food sensor
+	 * @param sensorX	X-coordinate of the sensor getting the reading
+	 * @param sensorY	Y-coordinate of the sensor getting the reading
+	 * @return	The reading from the sensor of the target food (the distance to the food)
+	 */
+	public double getFoodSensorReading(double sensorX, double sensorY){
+		double distSensorToFood = 0;
+		int targetFood = store.getTarget(index);
+		if (targetFood >= 0) {
+			FoodStore food = world.getFood();
+			distSensorToFood = Point2D.distance(sensorX, sensorY, food.getX(targetFood), food.getY(targetFood));
+		}
+		return distSensorToFood;
+	}
+
+	/**
+	 * Gets a reading from the terrain sensor
+	 * @param sensorX	X-coordinate of the sensor getting the reading
+	 * @param sensorY	Y-coordinate of the sensor getting the reading
+	 * @return
+	 */
+	public double getTerrainSensorReading(double sensorX, double sensorY){
+		double reading = 0;
+		double distance = 0;
+		TerrainIndex terrainIndex = world.getTerrainIndex();
+		int cell = terrainIndex.getCell(sensorX, sensorY); //only terrain listed in the sensor's cell can be within a pixel of it
+		for (int t = 0; t < terrainIndex.getCount(cell); t++){
+			Terrain curTerr = terrainIndex.get(cell, t);
+			if (!store.isCrossing(index, curTerr.getId())){ //if the terrain is one that it won't cross
+				distance = Point2D.distance(sensorX, sensorY, curTerr.getCenterX(), curTerr.getCenterY()) - curTerr.getRadius();
+				if (distance < 1) { //if the vehicle is close to the terrain
+					reading = distance * 2.5; //double the reading so that it gets a strong reading
+					break;
+				}
+			}
+		}
+		return reading; //will return 0 if the vehicle wasn't close to any terrain
+	}
+
+	/**
+	 * When a vehicle intersects a piece of food, it will consume it
+	 * @param food	Slot of the piece of food that the vehicle will eat
+	 */
+	public void eat(int food){
+		//add the energy from the food to the vehicle's energy bar
+		store.setEnergy(index, store.getEnergy(index) + world.getFood().getValue(food));
+		store.setEaten(index, store.getEaten(index) + 1);
+
+		//add the food to the eaten food, remove it from the uneaten food, and have every vehicle after it pick another
+		world.eatFood(food, store.getSerial(index));
+	}
+
+	/**
+	 * Tests whether the vehicle body overlaps a rectangle
+	 * The body is tested as the polygon it is drawn as, with its corners truncated to whole pixels (see BodyOutline)
+	 */
+	public boolean bodyIntersects(double rx, double ry, double rw, double rh){
+		int i = index;
+		BodyOutline outline = OUTLINES.get();
+		outline.set(store.getX(i), store.getY(i), store.getRightSensorX(i), store.getRightSensorY(i),
+				store.getRightWheelX(i), store.getRightWheelY(i), store.getLeftWheelX(i), store.getLeftWheelY(i));
+		return outline.intersects(rx, ry, rw, rh);
+	}
+
+	/**
+	 * @return	Whether the point (px, py) is on the vehicle body
+	 */
+	public boolean bodyContains(double px, double py){
+		double orient = store.getOrient(index);
+		double dx = px - store.getX(index);
+		double dy = py - store.getY(index);
+		double along = dx*Math.cos(orient) - dy*Math.sin(orient);
+		double side = dx*Math.sin(orient) + dy*Math.cos(orient);
+		return along >= 0 && along <= getBodyWidth() && side >= 0 && side <= getBodyHeight();
+	}
+
+	public void resetPos(double x, double y){
+		store.setX(index, x);
+		store.setY(index, y);
+		updateGeometry();
+	}
+
+	public double getPosx() {
+		return store.getX(index);
+	}
+
+	public double getPosy() {
+		return store.getY(index);
+	}
+
+	public double getCenterX() {
+		int i = index;
+		return (((store.getX(i)+store.getLeftWheelX(i))/2) + ((store.getRightSensorX(i)+store.getRightWheelX(i))/2))/2;
+	}
+
+	public double getCenterY() {
+		int i = index;
+		return (((store.getY(i)+store.getLeftWheelY(i))/2) + ((store.getRightSensorY(i)+store.getRightWheelY(i))/2))/2;
+	}
+
+	public int getBodyWidth() {
+		return (int)(getVehicleSize()*.5);
+	}
+
+	public int getBodyHeight() {
+		return (int)(getVehicleSize()*.75);
+	}
+
+	public double getEnergy() {
+		return store.getEnergy(index);
+	}
+
+	public void setEnergy(double energy) {
+		store.setEnergy(index, energy);
+	}
+
+	/**
+	 * @return	Distance traveled since the vehicle was added
+	 */
+	public double getDistanceTraveled() {
+		return store.getTraveled(index);
+	}
+
+	/**
+	 * @return	Energy spent getting over the ground since the vehicle was added, including the extra cost of terrain
+	 */
+	public double getCostPaid() {
+		return store.getCostPaid(index);
+	}
+
+	/**
+	 * @return	Pieces of food eaten since the vehicle was added
+	 */
+	public int getFoodsEaten() {
+		return store.getEaten(index);
+	}
+
+	public int getVehicleType() {
+		return store.getType(index);
+	}
+
+	public int getVehicleSize() {
+		return store.getSize(index);
+	}
+
+	public boolean isDeceased() {
+		return store.isDeceased(index);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
+}
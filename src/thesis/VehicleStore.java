@@ -0,0 +1,818 @@
+package thesis;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ *
+ * The state of all of a world's vehicles, stored as parallel primitive arrays (one entry per vehicle)
+ * rather than as one object graph per vehicle. Vehicle objects are just handles onto a row of this store;
+ * shapes for drawing are derived from the row when painting.
+ *
+ * Each piece of food also has a list of the vehicles after it (linked through the vehicles' rows), so that when
+ * it is eaten only those vehicles are told to pick a new target. A vehicle's target is chosen in the parallel
+ * phase of a tick but listed in the serial one (syncTarget()), so the lists are only ever changed by one thread.
+ *
+ */
+public class VehicleStore {
+
+	private double[] x = new double[0], y = new double[0]; //Position of left sensor
+	private double[] orient = new double[0]; //Orientation in radians
+	private double[] rightSensorX = new double[0], rightSensorY = new double[0]; //Center of right sensor
+	private double[] leftWheelX = new double[0], leftWheelY = new double[0]; //Center of left wheel
+	private double[] rightWheelX = new double[0], rightWheelY = new double[0]; //Center of right wheel
+	private double[] energy = new double[0], speed = new double[0];
+	private byte[] type = new byte[0]; //0-distance; 1-energy
+	private int[] size = new int[0]; //Relative size of vehicle
+	private int[] target = new int[0]; //Food slot of the targeted piece of food; -1 for none
+	private int[] claimed = new int[0]; //Food slot reached during advance(), to be eaten in commit(); -1 for none
+	private boolean[] retarget = new boolean[0]; //Whether the target food is gone and a new one must be picked
+	private int[] listedTarget = new int[0]; //Food slot whose list of targeting vehicles the vehicle is in; -1 for none
+	private int[] targetNext = new int[0], targetPrev = new int[0]; //Neighbours in that list; -1 at the ends
+	private int[] targetersHead = new int[0]; //Per food slot, the first vehicle in its list; -1 for none
+	private boolean[] deceased = new boolean[0];
+	private int[] stepCounter = new int[0]; //Steps since the last path point was recorded
+	private double[] traveled = new double[0]; //Distance traveled since the vehicle was added
+	private double[] costPaid = new double[0]; //Energy spent getting over the ground, terrain costs included, since the vehicle was added
+	private int[] eaten = new int[0]; //Pieces of food eaten since the vehicle was added
+	private int[][] crossing = new int[0][]; //Ids of the terrains the vehicle plans to cross
+	private int[] crossingCount = new int[0]; //Number of ids used in each crossing array
+	private boolean[] crossingShared = new boolean[0]; //Whether the crossing array is shared with a fork and must be copied before it is changed
+	private float[][] path = new float[0][]; //Ring of recorded path points, as x0, y0, x1, y1, ...
+	private int[] pathStart = new int[0]; //Position in the ring of the oldest point kept
+	private int[] pathCount = new int[0]; //Number of points kept
+	private int[] pathSerial = new int[0]; //Number of times a point was added or the newest one moved
+	private int[] pathAdded = new int[0]; //Number of points ever added, including ones since dropped
+	private float[] pathKeyX = new float[0], pathKeyY = new float[0]; //Where the newest point was first recorded, before it was moved
+	private boolean[] pathShared = new boolean[0]; //Whether the path ring is shared with a fork and must be copied before it is changed
+	private int[] serial = new int[0]; //Number identifying each vehicle for as long as the store exists, whatever its row
+	private int nextSerial = 0; //Serial of the next vehicle added
+	private int removals = 0; //Number of vehicles removed (and stores cleared), so views know when rows shifted
+	private Vehicle[] handles = new Vehicle[0]; //Handle objects, created on first use
+	private int count = 0; //Number of vehicles
+
+	private final static int[] NO_TERRAIN = new int[0];
+	private final static float[] NO_POINTS = new float[0];
+	private final static double PATH_TOLERANCE = 0.5; //A path point this close to the line through its neighbours is dropped
+
+	/**
+	 * Adds a vehicle
+	 * @return	Index of the new vehicle
+	 */
+	public int add(double x, double y, double orient, int type, int size, double energy, double speed){
+		if (count == this.x.length){
+			grow(Math.max(16, count*2));
+		}
+		int i = count++;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.orient[i] = orient;
+		this.type[i] = (byte) type;
+		this.size[i] = size;
+		this.energy[i] = energy;
+		this.speed[i] = speed;
+		serial[i] = nextSerial++;
+		target[i] = -1;
+		claimed[i] = -1;
+		retarget[i] = false;
+		listedTarget[i] = -1;
+		targetNext[i] = -1;
+		targetPrev[i] = -1;
+		deceased[i] = false;
+		stepCounter[i] = 0;
+		traveled[i] = 0;
+		costPaid[i] = 0;
+		eaten[i] = 0;
+		crossing[i] = NO_TERRAIN;
+		crossingCount[i] = 0;
+		crossingShared[i] = false;
+		path[i] = NO_POINTS;
+		pathShared[i] = false;
+		pathStart[i] = 0;
+		pathCount[i] = 0;
+		pathSerial[i] = 0;
+		pathAdded[i] = 0;
+		handles[i] = null;
+		return i;
+	}
+
+	private void grow(int capacity){
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		orient = Arrays.copyOf(orient, capacity);
+		rightSensorX = Arrays.copyOf(rightSensorX, capacity);
+		rightSensorY = Arrays.copyOf(rightSensorY, capacity);
+		leftWheelX = Arrays.copyOf(leftWheelX, capacity);
+		leftWheelY = Arrays.copyOf(leftWheelY, capacity);
+		rightWheelX = Arrays.copyOf(rightWheelX, capacity);
+		rightWheelY = Arrays.copyOf(rightWheelY, capacity);
+		energy = Arrays.copyOf(energy, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+		serial = Arrays.copyOf(serial, capacity);
+		type = Arrays.copyOf(type, capacity);
+		size = Arrays.copyOf(size, capacity);
+		target = Arrays.copyOf(target, capacity);
+		claimed = Arrays.copyOf(claimed, capacity);
+		retarget = Arrays.copyOf(retarget, capacity);
+		listedTarget = Arrays.copyOf(listedTarget, capacity);
+		targetNext = Arrays.copyOf(targetNext, capacity);
+		targetPrev = Arrays.copyOf(targetPrev, capacity);
+		deceased = Arrays.copyOf(deceased, capacity);
+		stepCounter = Arrays.copyOf(stepCounter, capacity);
+		traveled = Arrays.copyOf(traveled, capacity);
+		costPaid = Arrays.copyOf(costPaid, capacity);
+		eaten = Arrays.copyOf(eaten, capacity);
+		crossing = Arrays.copyOf(crossing, capacity);
+		crossingCount = Arrays.copyOf(crossingCount, capacity);
+		crossingShared = Arrays.copyOf(crossingShared, capacity);
+		path = Arrays.copyOf(path, capacity);
+		pathStart = Arrays.copyOf(pathStart, capacity);
+		pathCount = Arrays.copyOf(pathCount, capacity);
+		pathSerial = Arrays.copyOf(pathSerial, capacity);
+		pathAdded = Arrays.copyOf(pathAdded, capacity);
+		pathKeyX = Arrays.copyOf(pathKeyX, capacity);
+		pathKeyY = Arrays.copyOf(pathKeyY, capacity);
+		pathShared = Arrays.copyOf(pathShared, capacity);
+		handles = Arrays.copyOf(handles, capacity);
+	}
+
+	/**
+	 * Removes a vehicle; later vehicles move down one index
+	 * @param i	Index of the vehicle
+	 */
+	public void remove(int i){
+		unlistTarget(i);
+		int n = count - i - 1;
+		System.arraycopy(x, i+1, x, i, n);
+		System.arraycopy(y, i+1, y, i, n);
+		System.arraycopy(orient, i+1, orient, i, n);
+		System.arraycopy(rightSensorX, i+1, rightSensorX, i, n);
+		System.arraycopy(rightSensorY, i+1, rightSensorY, i, n);
+		System.arraycopy(leftWheelX, i+1, leftWheelX, i, n);
+		System.arraycopy(leftWheelY, i+1, leftWheelY, i, n);
+		System.arraycopy(rightWheelX, i+1, rightWheelX, i, n);
+		System.arraycopy(rightWheelY, i+1, rightWheelY, i, n);
+		System.arraycopy(energy, i+1, energy, i, n);
+		System.arraycopy(speed, i+1, speed, i, n);
+		System.arraycopy(serial, i+1, serial, i, n);
+		System.arraycopy(type, i+1, type, i, n);
+		System.arraycopy(size, i+1, size, i, n);
+		System.arraycopy(target, i+1, target, i, n);
+		System.arraycopy(claimed, i+1, claimed, i, n);
+		System.arraycopy(retarget, i+1, retarget, i, n);
+		System.arraycopy(listedTarget, i+1, listedTarget, i, n);
+		System.arraycopy(targetNext, i+1, targetNext, i, n);
+		System.arraycopy(targetPrev, i+1, targetPrev, i, n);
+		System.arraycopy(deceased, i+1, deceased, i, n);
+		System.arraycopy(stepCounter, i+1, stepCounter, i, n);
+		System.arraycopy(traveled, i+1, traveled, i, n);
+		System.arraycopy(costPaid, i+1, costPaid, i, n);
+		System.arraycopy(eaten, i+1, eaten, i, n);
+		System.arraycopy(crossing, i+1, crossing, i, n);
+		System.arraycopy(crossingCount, i+1, crossingCount, i, n);
+		System.arraycopy(crossingShared, i+1, crossingShared, i, n);
+		System.arraycopy(path, i+1, path, i, n);
+		System.arraycopy(pathStart, i+1, pathStart, i, n);
+		System.arraycopy(pathCount, i+1, pathCount, i, n);
+		System.arraycopy(pathSerial, i+1, pathSerial, i, n);
+		System.arraycopy(pathAdded, i+1, pathAdded, i, n);
+		System.arraycopy(pathKeyX, i+1, pathKeyX, i, n);
+		System.arraycopy(pathKeyY, i+1, pathKeyY, i, n);
+		System.arraycopy(pathShared, i+1, pathShared, i, n);
+		System.arraycopy(handles, i+1, handles, i, n);
+		count--;
+		removals++;
+		crossing[count] = null;
+		path[count] = null;
+		handles[count] = null;
+		//handles that moved down need their new index
+		for (int j = i; j < count; j++){
+			if (handles[j] != null) handles[j].setIndex(j);
+		}
+		//so do links to them in the targeting lists
+		for (int j = 0; j < count; j++){
+			if (targetNext[j] > i) targetNext[j]--;
+			if (targetPrev[j] > i) targetPrev[j]--;
+		}
+		for (int j = i; j < count; j++){
+			if (listedTarget[j] >= 0 && targetPrev[j] < 0) targetersHead[listedTarget[j]] = j;
+		}
+	}
+
+	/**
+	 * Removes all vehicles
+	 */
+	public void clear(){
+		Arrays.fill(crossing, 0, count, null);
+		Arrays.fill(path, 0, count, null);
+		Arrays.fill(handles, 0, count, null);
+		Arrays.fill(targetersHead, -1);
+		count = 0;
+		removals++;
+	}
+
+	/**
+	 * Copies what is needed to draw another store's vehicles: their geometry, energy, type, size and paths.
+	 * Targets, plans and step counters are not copied, so the copy must not be stepped. Paths are copied only
+	 * for vehicles whose path changed since the last copy, unless rows were removed in between.
+	 * @param source	The store to copy
+	 */
+	public void copyForDrawing(VehicleStore source){
+		int n = source.count;
+		int unchanged = removals == source.removals ? Math.min(count, n) : 0; //Rows that still hold the same vehicles
+		if (x.length < n){
+			grow(source.x.length);
+		}
+		System.arraycopy(source.x, 0, x, 0, n);
+		System.arraycopy(source.y, 0, y, 0, n);
+		System.arraycopy(source.orient, 0, orient, 0, n);
+		System.arraycopy(source.rightSensorX, 0, rightSensorX, 0, n);
+		System.arraycopy(source.rightSensorY, 0, rightSensorY, 0, n);
+		System.arraycopy(source.leftWheelX, 0, leftWheelX, 0, n);
+		System.arraycopy(source.leftWheelY, 0, leftWheelY, 0, n);
+		System.arraycopy(source.rightWheelX, 0, rightWheelX, 0, n);
+		System.arraycopy(source.rightWheelY, 0, rightWheelY, 0, n);
+		System.arraycopy(source.energy, 0, energy, 0, n);
+		System.arraycopy(source.speed, 0, speed, 0, n);
+		System.arraycopy(source.serial, 0, serial, 0, n);
+		System.arraycopy(source.type, 0, type, 0, n);
+		System.arraycopy(source.size, 0, size, 0, n);
+		System.arraycopy(source.deceased, 0, deceased, 0, n);
+		for (int i = 0; i < n; i++){
+			if (i < unchanged && pathSerial[i] == source.pathSerial[i]) continue;
+			int length = source.path[i].length;
+			if (path[i] == null || path[i].length != length || pathShared[i]){
+				path[i] = length == 0 ? NO_POINTS : new float[length];
+				pathShared[i] = false;
+			}
+			System.arraycopy(source.path[i], 0, path[i], 0, length);
+			pathStart[i] = source.pathStart[i];
+			pathCount[i] = source.pathCount[i];
+			pathSerial[i] = source.pathSerial[i];
+			pathAdded[i] = source.pathAdded[i];
+		}
+		for (int i = n; i < count; i++){
+			path[i] = null;
+			handles[i] = null;
+		}
+		for (int i = count; i < n; i++){
+			crossing[i] = NO_TERRAIN;
+			target[i] = -1;
+			listedTarget[i] = -1;
+		}
+		count = n;
+		nextSerial = source.nextSerial;
+		removals = source.removals;
+	}
+
+	/**
+	 * Makes this store a copy of another one to be stepped separately (see World.fork()). The columns that change
+	 * every tick are copied; each vehicle's path and crossing plan are shared with the other store, until either
+	 * store changes them.
+	 * @param source	The store to copy
+	 */
+	void forkFrom(VehicleStore source){
+		x = source.x.clone();
+		y = source.y.clone();
+		orient = source.orient.clone();
+		rightSensorX = source.rightSensorX.clone();
+		rightSensorY = source.rightSensorY.clone();
+		leftWheelX = source.leftWheelX.clone();
+		leftWheelY = source.leftWheelY.clone();
+		rightWheelX = source.rightWheelX.clone();
+		rightWheelY = source.rightWheelY.clone();
+		energy = source.energy.clone();
+		speed = source.speed.clone();
+		serial = source.serial.clone();
+		type = source.type.clone();
+		size = source.size.clone();
+		target = source.target.clone();
+		claimed = source.claimed.clone();
+		retarget = source.retarget.clone();
+		listedTarget = source.listedTarget.clone();
+		targetNext = source.targetNext.clone();
+		targetPrev = source.targetPrev.clone();
+		targetersHead = source.targetersHead.clone();
+		deceased = source.deceased.clone();
+		stepCounter = source.stepCounter.clone();
+		traveled = source.traveled.clone();
+		costPaid = source.costPaid.clone();
+		eaten = source.eaten.clone();
+		crossing = source.crossing.clone();
+		crossingCount = source.crossingCount.clone();
+		path = source.path.clone();
+		pathStart = source.pathStart.clone();
+		pathCount = source.pathCount.clone();
+		pathSerial = source.pathSerial.clone();
+		pathAdded = source.pathAdded.clone();
+		pathKeyX = source.pathKeyX.clone();
+		pathKeyY = source.pathKeyY.clone();
+		handles = new Vehicle[source.handles.length];
+		count = source.count;
+		nextSerial = source.nextSerial;
+		removals = source.removals;
+		crossingShared = new boolean[source.crossingShared.length];
+		pathShared = new boolean[source.pathShared.length];
+		Arrays.fill(crossingShared, 0, count, true);
+		Arrays.fill(pathShared, 0, count, true);
+		Arrays.fill(source.crossingShared, 0, count, true);
+		Arrays.fill(source.pathShared, 0, count, true);
+	}
+
+	/**
+	 * Writes the state of every vehicle, all that stepping them further depends on (see WorldFile).
+	 * Each path is written as just its kept points, oldest first.
+	 * @param out	Where to write
+	 */
+	void write(BinaryOutput out) throws IOException {
+		out.writeInt(count);
+		out.writeInt(nextSerial);
+		out.writeDoubles(x, count);
+		out.writeDoubles(y, count);
+		out.writeDoubles(orient, count);
+		out.writeDoubles(rightSensorX, count);
+		out.writeDoubles(rightSensorY, count);
+		out.writeDoubles(leftWheelX, count);
+		out.writeDoubles(leftWheelY, count);
+		out.writeDoubles(rightWheelX, count);
+		out.writeDoubles(rightWheelY, count);
+		out.writeDoubles(energy, count);
+		out.writeDoubles(speed, count);
+		out.writeInts(serial, count);
+		out.writeBytes(type, count);
+		out.writeInts(size, count);
+		out.writeInts(target, count);
+		out.writeInts(claimed, count);
+		out.writeBooleans(retarget, count);
+		out.writeInts(listedTarget, count);
+		out.writeInts(targetNext, count);
+		out.writeInts(targetPrev, count);
+		out.writeBooleans(deceased, count);
+		out.writeInts(stepCounter, count);
+		out.writeDoubles(traveled, count);
+		out.writeDoubles(costPaid, count);
+		out.writeInts(eaten, count);
+		out.writeInts(crossingCount, count);
+		for (int i = 0; i < count; i++){
+			out.writeInts(crossing[i], crossingCount[i]);
+		}
+		out.writeInts(pathCount, count);
+		out.writeInts(pathSerial, count);
+		out.writeInts(pathAdded, count);
+		out.writeFloats(pathKeyX, count);
+		out.writeFloats(pathKeyY, count);
+		for (int i = 0; i < count; i++){
+			for (int point = 0; point < pathCount[i]; point++){
+				out.writeFloat(getPathX(i, point));
+				out.writeFloat(getPathY(i, point));
+			}
+		}
+		out.writeInt(targetersHead.length);
+		out.writeInts(targetersHead, targetersHead.length);
+	}
+
+	/**
+	 * Replaces all vehicles with those written by write()
+	 * @param in	Where to read from
+	 * @param version	Version of the world file; before version 2 the distances, costs and food eaten start at 0
+	 */
+	void read(BinaryInput in, int version) throws IOException {
+		clear();
+		int n = in.readLength(in.getRemaining());
+		if (x.length < n){
+			grow(n);
+		}
+		Arrays.fill(handles, 0, n, null);
+		count = n;
+		nextSerial = in.readInt();
+		in.readDoubles(x, n);
+		in.readDoubles(y, n);
+		in.readDoubles(orient, n);
+		in.readDoubles(rightSensorX, n);
+		in.readDoubles(rightSensorY, n);
+		in.readDoubles(leftWheelX, n);
+		in.readDoubles(leftWheelY, n);
+		in.readDoubles(rightWheelX, n);
+		in.readDoubles(rightWheelY, n);
+		in.readDoubles(energy, n);
+		in.readDoubles(speed, n);
+		in.readInts(serial, n);
+		in.readBytes(type, n);
+		in.readInts(size, n);
+		in.readInts(target, n);
+		in.readInts(claimed, n);
+		in.readBooleans(retarget, n);
+		in.readInts(listedTarget, n);
+		in.readInts(targetNext, n);
+		in.readInts(targetPrev, n);
+		in.readBooleans(deceased, n);
+		in.readInts(stepCounter, n);
+		if (version >= 2){
+			in.readDoubles(traveled, n);
+			in.readDoubles(costPaid, n);
+			in.readInts(eaten, n);
+		}
+		else {
+			Arrays.fill(traveled, 0, n, 0);
+			Arrays.fill(costPaid, 0, n, 0);
+			Arrays.fill(eaten, 0, n, 0);
+		}
+		in.readInts(crossingCount, n);
+		Arrays.fill(crossingShared, 0, n, false);
+		Arrays.fill(pathShared, 0, n, false);
+		for (int i = 0; i < n; i++){
+			if (crossingCount[i] < 0) throw new IOException("Bad crossing count " + crossingCount[i]);
+			crossing[i] = crossingCount[i] == 0 ? NO_TERRAIN : new int[crossingCount[i]];
+			in.readInts(crossing[i], crossingCount[i]);
+		}
+		in.readInts(pathCount, n);
+		in.readInts(pathSerial, n);
+		in.readInts(pathAdded, n);
+		in.readFloats(pathKeyX, n);
+		in.readFloats(pathKeyY, n);
+		for (int i = 0; i < n; i++){
+			//a full path fills its ring exactly, so it wraps around at the same capacity as before
+			if (pathCount[i] < 0) throw new IOException("Bad path length " + pathCount[i]);
+			path[i] = pathCount[i] == 0 ? NO_POINTS : new float[2*pathCount[i]];
+			pathStart[i] = 0;
+			in.readFloats(path[i], 2*pathCount[i]);
+		}
+		targetersHead = new int[in.readLength(in.getRemaining())];
+		in.readInts(targetersHead, targetersHead.length);
+	}
+
+	/**
+	 * @param world	The world this store belongs to
+	 * @param i	Index of a vehicle
+	 * @return	The handle object for that vehicle
+	 */
+	Vehicle getHandle(World world, int i){
+		if (handles[i] == null) handles[i] = new Vehicle(world, i);
+		return handles[i];
+	}
+
+	/**
+	 * Sets the positions of the right sensor and the wheels, which are derived from the left sensor and orientation
+	 */
+	public void setGeometry(int i, double rightSensorX, double rightSensorY, double leftWheelX, double leftWheelY,
+			double rightWheelX, double rightWheelY){
+		this.rightSensorX[i] = rightSensorX;
+		this.rightSensorY[i] = rightSensorY;
+		this.leftWheelX[i] = leftWheelX;
+		this.leftWheelY[i] = leftWheelY;
+		this.rightWheelX[i] = rightWheelX;
+		this.rightWheelY[i] = rightWheelY;
+	}
+
+	/**
+	 * Sets the terrains a vehicle plans to cross
+	 * @param i	Index of the vehicle
+	 * @param ids	Ids of the terrains
+	 * @param n	Number of ids to use
+	 */
+	public void setCrossing(int i, int[] ids, int n){
+		if (crossing[i].length < n || (n > 0 && crossingShared[i])){
+			crossing[i] = new int[Math.max(n, crossing[i].length)];
+			crossingShared[i] = false;
+		}
+		System.arraycopy(ids, 0, crossing[i], 0, n);
+		crossingCount[i] = n;
+	}
+
+	/**
+	 * @return	Whether the vehicle plans to cross the terrain with the given id
+	 */
+	public boolean isCrossing(int i, int terrainId){
+		int[] ids = crossing[i];
+		for (int j = 0; j < crossingCount[i]; j++){
+			if (ids[j] == terrainId) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Lists a vehicle under the food it is now after, if that changed since it was last listed. The food must be
+	 * live: once a slot is freed, retargetAll() has emptied its list, and anything listed later would be taken for
+	 * a targeter of the next food in the slot. Must not run in parallel with other changes to the lists.
+	 * @param i	Index of the vehicle
+	 */
+	public void syncTarget(int i){
+		if (listedTarget[i] == target[i]) return;
+		unlistTarget(i);
+		int slot = target[i];
+		if (slot < 0) return;
+		if (slot >= targetersHead.length){
+			int old = targetersHead.length;
+			targetersHead = Arrays.copyOf(targetersHead, Math.max(Math.max(16, old*2), slot + 1));
+			Arrays.fill(targetersHead, old, targetersHead.length, -1);
+		}
+		listedTarget[i] = slot;
+		targetPrev[i] = -1;
+		targetNext[i] = targetersHead[slot];
+		if (targetNext[i] >= 0) targetPrev[targetNext[i]] = i;
+		targetersHead[slot] = i;
+	}
+
+	/**
+	 * Takes a vehicle out of the list of the food it was after
+	 * @param i	Index of the vehicle
+	 */
+	public void unlistTarget(int i){
+		int slot = listedTarget[i];
+		if (slot < 0) return;
+		if (targetPrev[i] >= 0) targetNext[targetPrev[i]] = targetNext[i];
+		else targetersHead[slot] = targetNext[i];
+		if (targetNext[i] >= 0) targetPrev[targetNext[i]] = targetPrev[i];
+		listedTarget[i] = -1;
+		targetNext[i] = -1;
+		targetPrev[i] = -1;
+	}
+
+	/**
+	 * Tells every vehicle listed under a piece of food to pick a new target, and empties the list
+	 * @param slot	Slot of the food, which has been eaten or removed
+	 */
+	public void retargetAll(int slot){
+		if (slot >= targetersHead.length) return;
+		int j = targetersHead[slot];
+		while (j >= 0){
+			int next = targetNext[j];
+			retarget[j] = true;
+			listedTarget[j] = -1;
+			targetNext[j] = -1;
+			targetPrev[j] = -1;
+			j = next;
+		}
+		targetersHead[slot] = -1;
+	}
+
+	/**
+	 * Records a point on a vehicle's path, keeping at most capacity points (the oldest are dropped).
+	 * The path is simplified as it is recorded (Reumann-Witkam): a point closer than minDistance to the last one
+	 * is skipped, and while new points stay within PATH_TOLERANCE of the line from the second-newest point
+	 * through where the newest one was first recorded, and keep moving forward along it, each new point
+	 * replaces the newest one instead of being added. Every dropped point is then within about twice
+	 * PATH_TOLERANCE of the kept path.
+	 * @param i	Index of the vehicle
+	 * @param capacity	Maximum number of points kept
+	 * @param minDistance	Minimum distance between kept points
+	 */
+	public void addPathPoint(int i, double px, double py, int capacity, double minDistance){
+		if (capacity <= 0) return;
+		int n = pathCount[i];
+		if (n > 0){
+			double lastX = getPathX(i, n-1);
+			double lastY = getPathY(i, n-1);
+			if (Math.hypot(px - lastX, py - lastY) < minDistance) return;
+			if (n > 1){
+				double prevX = getPathX(i, n-2);
+				double prevY = getPathY(i, n-2);
+				double keyX = pathKeyX[i] - prevX;
+				double keyY = pathKeyY[i] - prevY;
+				double length = Math.hypot(keyX, keyY);
+				//distance of the new point from the line through the key point, and how far along it the new and newest points are
+				double offLine = Math.abs((px - prevX)*keyY - (py - prevY)*keyX);
+				double along = (px - prevX)*keyX + (py - prevY)*keyY;
+				double lastAlong = (lastX - prevX)*keyX + (lastY - prevY)*keyY;
+				if (length > 0 && offLine <= PATH_TOLERANCE*length && along > lastAlong){
+					setPathPoint(i, n-1, px, py);
+					pathSerial[i]++;
+					return;
+				}
+			}
+		}
+		if (n < capacity){
+			if (2*n + 2 > path[i].length){
+				//grow the ring, moving its points to the start of the new array
+				float[] grown = new float[2*Math.min(capacity, Math.max(16, n*2))];
+				for (int k = 0; k < n; k++){
+					grown[2*k] = getPathX(i, k);
+					grown[2*k + 1] = getPathY(i, k);
+				}
+				path[i] = grown;
+				pathShared[i] = false;
+				pathStart[i] = 0;
+			}
+			pathCount[i] = n + 1;
+		}
+		else {
+			pathStart[i] = (pathStart[i] + 1) % (path[i].length/2);
+		}
+		setPathPoint(i, pathCount[i] - 1, px, py);
+		pathKeyX[i] = (float) px;
+		pathKeyY[i] = (float) py;
+		pathSerial[i]++;
+		pathAdded[i]++;
+	}
+
+	private void setPathPoint(int i, int point, double px, double py){
+		if (pathShared[i]){
+			path[i] = path[i].clone();
+			pathShared[i] = false;
+		}
+		int pos = (pathStart[i] + point) % (path[i].length/2);
+		path[i][2*pos] = (float) px;
+		path[i][2*pos + 1] = (float) py;
+	}
+
+	/**
+	 * @return	Number of points kept of a vehicle's path
+	 */
+	public int getPathCount(int i){
+		return pathCount[i];
+	}
+
+	/**
+	 * @param point	0 for the oldest point kept to getPathCount(i)-1 for the newest
+	 */
+	public float getPathX(int i, int point){
+		return path[i][2*((pathStart[i] + point) % (path[i].length/2))];
+	}
+
+	public float getPathY(int i, int point){
+		return path[i][2*((pathStart[i] + point) % (path[i].length/2)) + 1];
+	}
+
+	/**
+	 * @return	Number of changes to a vehicle's path: each added point and each move of the newest point counts one
+	 */
+	public int getPathSerial(int i){
+		return pathSerial[i];
+	}
+
+	/**
+	 * @return	Number of points ever added to a vehicle's path, including ones since dropped; moves of the newest point do not count
+	 */
+	public int getPathAdded(int i){
+		return pathAdded[i];
+	}
+
+	/**
+	 * @return	Number of times a vehicle was removed or the store cleared; rows may have changed meaning when this changes
+	 */
+	public int getRemovals(){
+		return removals;
+	}
+
+	public int getCount(){
+		return count;
+	}
+
+	/**
+	 * @return	Number identifying a vehicle, which unlike its index does not change when other vehicles are removed
+	 * and is never given to another vehicle
+	 */
+	public int getSerial(int i){
+		return serial[i];
+	}
+
+	/**
+	 * @param serial	Serial of a vehicle
+	 * @return	Index of the vehicle; -1 if it has been removed
+	 */
+	public int indexOf(int serial){
+		//vehicles are only added at the end and removals keep the order, so rows are sorted by serial
+		int k = Arrays.binarySearch(this.serial, 0, count, serial);
+		return k >= 0 ? k : -1;
+	}
+
+	public double getX(int i){
+		return x[i];
+	}
+
+	public void setX(int i, double x){
+		this.x[i] = x;
+	}
+
+	public double getY(int i){
+		return y[i];
+	}
+
+	public void setY(int i, double y){
+		this.y[i] = y;
+	}
+
+	public double getOrient(int i){
+		return orient[i];
+	}
+
+	public void setOrient(int i, double orient){
+		this.orient[i] = orient;
+	}
+
+	public double getRightSensorX(int i){
+		return rightSensorX[i];
+	}
+
+	public double getRightSensorY(int i){
+		return rightSensorY[i];
+	}
+
+	public double getLeftWheelX(int i){
+		return leftWheelX[i];
+	}
+
+	public double getLeftWheelY(int i){
+		return leftWheelY[i];
+	}
+
+	public double getRightWheelX(int i){
+		return rightWheelX[i];
+	}
+
+	public double getRightWheelY(int i){
+		return rightWheelY[i];
+	}
+
+	public double getEnergy(int i){
+		return energy[i];
+	}
+
+	public void setEnergy(int i, double energy){
+		this.energy[i] = energy;
+	}
+
+	public double getSpeed(int i){
+		return speed[i];
+	}
+
+	public void setSpeed(int i, double speed){
+		this.speed[i] = speed;
+	}
+
+	public int getType(int i){
+		return type[i];
+	}
+
+	public int getSize(int i){
+		return size[i];
+	}
+
+	public int getTarget(int i){
+		return target[i];
+	}
+
+	public void setTarget(int i, int target){
+		this.target[i] = target;
+	}
+
+	public int getClaimed(int i){
+		return claimed[i];
+	}
+
+	public void setClaimed(int i, int claimed){
+		this.claimed[i] = claimed;
+	}
+
+	/**
+	 * @return	Whether the vehicle's target food is gone and it must pick a new one
+	 */
+	public boolean isRetarget(int i){
+		return retarget[i];
+	}
+
+	public void setRetarget(int i, boolean retarget){
+		this.retarget[i] = retarget;
+	}
+
+	public boolean isDeceased(int i){
+		return deceased[i];
+	}
+
+	public void setDeceased(int i, boolean deceased){
+		this.deceased[i] = deceased;
+	}
+
+	public double getTraveled(int i){
+		return traveled[i];
+	}
+
+	public void setTraveled(int i, double traveled){
+		this.traveled[i] = traveled;
+	}
+
+	public double getCostPaid(int i){
+		return costPaid[i];
+	}
+
+	public void setCostPaid(int i, double costPaid){
+		this.costPaid[i] = costPaid;
+	}
+
+	public int getEaten(int i){
+		return eaten[i];
+	}
+
+	public void setEaten(int i, int eaten){
+		this.eaten[i] = eaten;
+	}
+
+	public int getStepCounter(int i){
+		return stepCounter[i];
+	}
+
+	public void setStepCounter(int i, int stepCounter){
+		this.stepCounter[i] = stepCounter;
+	}
+
+}
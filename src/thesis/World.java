@@ -0,0 +1,724 @@
+package thesis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *
+ * The simulation state: vehicles, food and terrain, advanced one fixed step at a time by tick().
+ * Nothing here depends on the applet or on painting, so a World can be run headless;
+ * Field is just one optional viewer of it.
+ * 
+ * Time is counted in ticks, and terrain, food, spawning and orientation each draw from their own
+ * stream seeded from the world's seed, so a run is reproducible from its seed at any speed.
+ * 
+ * Each tick runs in two phases: every vehicle senses and moves (Vehicle.advance(), which can run on
+ * a fork/join pool), then eating and deaths are resolved one vehicle at a time in list order
+ * (Vehicle.commit()). The result is the same whether or not the first phase runs in parallel.
+ *
+ */
+public class World {
+
+	private VehicleStore vehicles = new VehicleStore(); //State of the vehicles in the world
+	private final FoodStore food; //Food (for distance and energy vehicles) in the world
+	private List<Terrain> terrainList = new ArrayList<Terrain>(); //List of terrain patches
+	private TerrainIndex terrainIndex; //Grid of where the terrain patches are
+	private TerrainRaster terrainRaster; //Raster of terrain costs; null to test the terrain circles exactly
+	private boolean terrainShared; //Whether the patches, index and raster are shared with a fork and must be copied before they are changed
+	private final PathCostCache pathCostCache; //Terrain and food data that energy vehicles' path costs are computed from
+	private final EatenFoodHistory eatenFood; //Most recently eaten food, and counts of all of it
+	private int nextTerrainId = 0; //Id given to the next terrain added
+	private int terrainVersion = 0; //Incremented whenever terrain is added, moved or removed
+
+	private int deadVehicleCount = 0; //Count of number of dead vehicles
+	private final DeathHistogram deaths = new DeathHistogram(); //Deaths of each type over time, for the cemetery
+	private final WorldConfig config; //Tunable settings of this world
+	private long tick = 0; //Simulation clock: number of ticks run
+	private long ticksSinceFoodDrop = 0; //Ticks run since food was last dropped
+	private WorldListener listener; //Notified of deaths; may be null
+	private ForkJoinPool pool; //Runs the advance phase in parallel; null to run it on the ticking thread
+	private SimMetrics metrics; //Receives the time spent in each phase and counts of what happened; null to not measure
+	private boolean timingPhases = false; //Whether this tick's advance phase is timed (see SimMetrics.isTimingPhases())
+	private TrajectoryRecorder recorder; //Receives every tick and what happened in it; null to not record
+	private TelemetryRecorder telemetry; //Samples the vehicles and populations after each tick; null to not sample
+
+	private long seed; //Seed that all random streams are derived from; changed only by loading a world file
+	private final SimRandom terrainRandom; //Positions and radii of new terrain
+	private final SimRandom foodRandom; //Positions and values of new food
+	private final SimRandom spawnRandom; //Positions of new vehicles
+	private final SimRandom orientRandom; //Orientations of new vehicles
+
+	private final static int VEHICLES_PER_TASK = 64; //Vehicles advanced by one fork/join task without splitting further
+
+	//Per-thread clocks for timing the advance phase; a thread advances one run of vehicles at a time, so one clock each
+	//is enough, and timing a tick allocates nothing.
+	private final static ThreadLocal<PhaseClock> PHASE_CLOCKS = new ThreadLocal<PhaseClock>(){
+		@Override
+		protected PhaseClock initialValue() {
+			return new PhaseClock();
+		}
+	};
+	
+	/**
+	 * Number of ticks that make up one second of simulated time
+	 */
+	public final static int TICKS_PER_SECOND = 10000;
+
+	/**
+	 * Constructor: default settings, with the random streams seeded from the current time
+	 */
+	public World(){
+		this(new WorldConfig(), System.nanoTime());
+	}
+
+	/**
+	 * Constructor
+	 * @param seed	Seed for all of the world's random streams
+	 */
+	public World(long seed){
+		this(new WorldConfig(), seed);
+	}
+
+	/**
+	 * Constructor
+	 * @param config	Settings of the world; the world keeps a reference, not a copy
+	 * @param seed	Seed for all of the world's random streams
+	 */
+	public World(WorldConfig config, long seed){
+		this.config = config;
+		this.seed = seed;
+		food = new FoodStore(config.getWidth(), config.getHeight());
+		eatenFood = new EatenFoodHistory(config.getEatenFoodHistory());
+		terrainIndex = new TerrainIndex(config.getWidth(), config.getHeight());
+		terrainRaster = config.getTerrainRasterCellSize() > 0
+				? new TerrainRaster(config.getWidth(), config.getHeight(), config.getTerrainRasterCellSize(), terrainIndex) : null;
+		pathCostCache = new PathCostCache(food, terrainList);
+		terrainRandom = new SimRandom(SimRandom.streamSeed(seed, 0));
+		foodRandom = new SimRandom(SimRandom.streamSeed(seed, 1));
+		spawnRandom = new SimRandom(SimRandom.streamSeed(seed, 2));
+		orientRandom = new SimRandom(SimRandom.streamSeed(seed, 3));
+	}
+
+	/**
+	 * Constructor for fork()
+	 * @param source	The world to fork
+	 */
+	private World(World source){
+		config = source.config.copy();
+		seed = source.seed;
+		tick = source.tick;
+		ticksSinceFoodDrop = source.ticksSinceFoodDrop;
+		deadVehicleCount = source.deadVehicleCount;
+		nextTerrainId = source.nextTerrainId;
+		terrainVersion = source.terrainVersion;
+		terrainRandom = new SimRandom(source.terrainRandom.getState());
+		foodRandom = new SimRandom(source.foodRandom.getState());
+		spawnRandom = new SimRandom(source.spawnRandom.getState());
+		orientRandom = new SimRandom(source.orientRandom.getState());
+
+		//terrain, food and paths are shared until changed; the vehicles' state changes every tick, so it is copied
+		terrainList.addAll(source.terrainList);
+		terrainIndex = source.terrainIndex;
+		terrainRaster = source.terrainRaster;
+		terrainShared = source.terrainShared = true;
+		food = new FoodStore(config.getWidth(), config.getHeight());
+		food.shareFrom(source.food);
+		pathCostCache = new PathCostCache(food, terrainList);
+		pathCostCache.shareFrom(source.pathCostCache);
+		vehicles.forkFrom(source.vehicles);
+		eatenFood = new EatenFoodHistory(config.getEatenFoodHistory());
+		eatenFood.copyFrom(source.eatenFood);
+		deaths.copyFrom(source.deaths);
+	}
+
+	/**
+	 * Makes a copy of the world as it is now, to run on separately: e.g. to continue one checkpoint under several
+	 * variants (other refill rates, extra terrain, fewer vehicles). The fork has a copy of this world's settings, and
+	 * ticks on exactly as this world would under the same settings and edits.
+	 *
+	 * Only the vehicles' state that changes every tick is copied. Terrain, food, the path cost cache and each
+	 * vehicle's path and crossing plan are shared copy-on-write: the two worlds read the same data until one of them
+	 * changes it, and the one that changes it copies it first. Forking is therefore cheap, and forks (and this world)
+	 * can run on separate threads at the same time. This world must not be ticked or edited while it is being forked.
+	 * @return	The fork; it has no listener, metrics, recorder or telemetry and runs the advance phase on the ticking thread
+	 */
+	public World fork(){
+		return new World(this);
+	}
+
+	/**
+	 * Copies the terrain patches, index and raster if they are shared with a fork, so they can be changed
+	 */
+	private void ownTerrain(){
+		if (!terrainShared) return;
+		terrainIndex = new TerrainIndex(config.getWidth(), config.getHeight());
+		if (terrainRaster != null){
+			terrainRaster = new TerrainRaster(config.getWidth(), config.getHeight(), terrainRaster.getCellSize(), terrainIndex);
+		}
+		for (int i = 0; i < terrainList.size(); i++){
+			Terrain copy = terrainList.get(i).copy();
+			terrainList.set(i, copy);
+			terrainIndex.add(copy);
+			if (terrainRaster != null) terrainRaster.update(copy);
+		}
+		terrainShared = false;
+	}
+
+	/**
+	 * Advances the clock, drops food if a refill interval has been reached, and steps every living vehicle forward one step
+	 */
+	public void tick(){
+		tick++;
+		if (config.getFoodRefillInterval() > 0 && ++ticksSinceFoodDrop >= config.getFoodRefillInterval()){
+			foodDrop();
+			ticksSinceFoodDrop = 0;
+		}
+		
+		//vehicles added during the commit phase (respawns) start moving on the next tick
+		int count = vehicles.getCount();
+		
+		//sense, decide and move
+		timingPhases = metrics != null && metrics.isTimingPhases();
+		if (pool != null && count > VEHICLES_PER_TASK){
+			pool.invoke(new AdvanceTask(0, count));
+		}
+		else {
+			advance(0, count);
+		}
+		
+		//eat and die, in list order so that the outcome does not depend on the thread schedule
+		long commitStart = metrics != null ? System.nanoTime() : 0;
+		for (int i = 0; i < count; i++){
+			if (!vehicles.isDeceased(i)){
+				getVehicle(i).commit();
+			}
+		}
+		if (metrics != null) metrics.addTick(System.nanoTime() - commitStart, timingPhases);
+		if (recorder != null) recorder.tickDone(this);
+		if (telemetry != null) telemetry.tickDone(this);
+	}
+	
+	/**
+	 * Runs the first phase of a step for a range of vehicles
+	 * @param from	Index of the first vehicle
+	 * @param to	Index after the last vehicle
+	 */
+	private void advance(int from, int to){
+		PhaseClock clock = null;
+		if (metrics != null){
+			clock = PHASE_CLOCKS.get();
+			clock.start(timingPhases);
+		}
+		for (int i = from; i < to; i++){
+			if (!vehicles.isDeceased(i)){
+				getVehicle(i).advance(clock);
+			}
+		}
+		if (clock != null) metrics.addPhases(clock);
+	}
+	
+	/**
+	 * Splits the advance phase over the fork/join pool
+	 */
+	private class AdvanceTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final int from, to; //Range of vehicle indices to advance
+		
+		AdvanceTask(int from, int to){
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= VEHICLES_PER_TASK){
+				advance(from, to);
+			}
+			else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new AdvanceTask(from, mid), new AdvanceTask(mid, to));
+			}
+		}
+	}
+
+	/**
+	 * Runs the world for a number of ticks, or until every vehicle has died
+	 * @param ticks	Maximum number of ticks to run
+	 * @return	Number of ticks actually run
+	 */
+	public long run(long ticks){
+		long t = 0;
+		while (t < ticks && !allDead()){
+			tick();
+			t++;
+		}
+		return t;
+	}
+
+	/**
+	 * Generates a new vehicle at a random spot in the world and adds it
+	 * @param vehicleType	Type: 0-distance; 1-energy
+	 * @param vehicleSize	Relative size of vehicle
+	 * @return The generated vehicle
+	 */
+	public Vehicle generateNewVehicle(int vehicleType, int vehicleSize){
+		double posx = spawnRandom.nextInt(config.getWidth());
+		double posy = spawnRandom.nextInt(config.getHeight());
+		double orient = orientRandom.nextInt(360);
+		orient = Math.toRadians(orient);
+		return addVehicle(posx, posy, orient, vehicleType, vehicleSize);
+	}
+	
+	/**
+	 * Adds a vehicle
+	 * @param x	x-coordinate of center of left sensor
+	 * @param y	y-coordinate of center of left sensor
+	 * @param orient	orientation of vehicle
+	 * @param vehicleType	type of vehicle: 0-distance, 1-energy
+	 * @param vehicleSize	size of the vehicle
+	 * @return The new vehicle
+	 */
+	public Vehicle addVehicle(double x, double y, double orient, int vehicleType, int vehicleSize){
+		int i = vehicles.add(x, y, orient, vehicleType, vehicleSize, config.getInitialEnergy(), config.getSpeed());
+		Vehicle vehicle = getVehicle(i);
+		vehicle.updateGeometry();
+		if (metrics != null) metrics.count(SimMetrics.SPAWNS);
+		if (recorder != null) recorder.vehicleSpawned(vehicles.getSerial(i), vehicleType);
+		return vehicle;
+	}
+	
+	/**
+	 * Removes a vehicle
+	 * @param i	Index of the vehicle
+	 */
+	public void removeVehicle(int i){
+		if (vehicles.isDeceased(i)) deadVehicleCount--;
+		vehicles.remove(i);
+	}
+
+	/**
+	 * Adds equi-value pieces of distance and energy food
+	 */
+	public void addFood(){
+		double x1 = foodRandom.nextInt(config.getWidth());
+		double y1 = foodRandom.nextInt(config.getHeight());
+		double x2 = foodRandom.nextInt(config.getWidth());
+		double y2 = foodRandom.nextInt(config.getHeight());
+		int value = foodRandom.nextInt(config.getMaxFoodValue() - config.getMinFoodValue()) + config.getMinFoodValue(); //food has value from 5 to 10 by default
+		addFood(x1, y1, value, Food.DISTANCE);
+		addFood(x2, y2, value, Food.ENERGY);
+	}
+	
+	/**
+	 * Adds a piece of food, kept a few pixels inside the edges of the world
+	 * @param x	X-coordinate of upper left-hand corner
+	 * @param y	Y-coordinate of upper left-hand corner
+	 * @param value	Value of the food
+	 * @param type	Type of food. 0-distance; 1-energy
+	 * @return	Slot of the new food
+	 */
+	public int addFood(double x, double y, int value, int type){
+		int slot = food.add(Food.clamp(x, config.getWidth()), Food.clamp(y, config.getHeight()), value, type);
+		pathCostCache.foodChanged(slot);
+		if (recorder != null) recorder.foodAdded(food.getSerial(slot), food.getX(slot), food.getY(slot), value, type);
+		return slot;
+	}
+	
+	/**
+	 * Moves a piece of food
+	 * @param slot	Slot of the food
+	 * @param x	X-coordinate of the new upper left-hand corner
+	 * @param y	Y-coordinate of the new upper left-hand corner
+	 */
+	public void moveFood(int slot, double x, double y){
+		food.setPos(slot, x, y);
+		pathCostCache.foodChanged(slot);
+		if (recorder != null) recorder.foodMoved(food.getSerial(slot), food.getX(slot), food.getY(slot));
+	}
+	
+	/**
+	 * Records a piece of food as eaten and removes it
+	 * @param slot	Slot of the food
+	 * @param vehicleSerial	Serial of the vehicle that ate it
+	 */
+	void eatFood(int slot, int vehicleSerial){
+		if (recorder != null) recorder.foodEaten(food.getSerial(slot), vehicleSerial);
+		eatenFood.add(food.getX(slot), food.getY(slot), food.getValue(slot), food.getType(slot));
+		takeFood(slot);
+		if (metrics != null) metrics.count(SimMetrics.FOODS_EATEN);
+	}
+	
+	/**
+	 * Removes a piece of uneaten food; its slot may be reused by the next piece added
+	 * @param slot	Slot of the food
+	 */
+	public void removeFood(int slot){
+		if (!food.isLive(slot)) return;
+		if (recorder != null) recorder.foodRemoved(food.getSerial(slot));
+		takeFood(slot);
+	}
+	
+	/**
+	 * Takes a live piece of food out of the world, and has every vehicle heading for it pick another
+	 */
+	private void takeFood(int slot){
+		food.remove(slot);
+		vehicles.retargetAll(slot);
+	}
+
+	/**
+	 * Adds a terrain patch centered at a random spot
+	 * @param terrainType	0-green, 1-yellow, 2-red
+	 * @param radius	Radius of the patch, or a value <= 0 for a random radius between 40 and 100
+	 */
+	public void addTerrain(int terrainType, int radius){
+		double x = terrainRandom.nextInt(config.getWidth());
+		double y = terrainRandom.nextInt(config.getHeight());
+		if (radius <= 0) radius = terrainRandom.nextInt(60) + 40; //random number between 40 and 100
+		addTerrain(x-radius, y-radius, radius, terrainType);
+	}
+	
+	/**
+	 * Adds a terrain patch
+	 * @param x	X-coordinate of upper left corner of the circle
+	 * @param y	Y-coordinate of upper left corner of the circle
+	 * @param radius	Radius of the patch
+	 * @param terrainType	0-green, 1-yellow, 2-red
+	 * @return	The new terrain
+	 */
+	public Terrain addTerrain(double x, double y, double radius, int terrainType){
+		ownTerrain();
+		Terrain terrain = new Terrain(x, y, radius, terrainType, config.getTerrainCost(terrainType));
+		terrain.setId(nextTerrainId++);
+		terrainList.add(terrain);
+		terrainIndex.add(terrain);
+		if (terrainRaster != null) terrainRaster.update(terrain);
+		pathCostCache.terrainAdded();
+		terrainVersion++;
+		return terrain;
+	}
+	
+	/**
+	 * Moves a terrain patch
+	 * @param i	Index of the terrain in the terrain list
+	 * @param x	X-coordinate of the new upper left corner of the circle
+	 * @param y	Y-coordinate of the new upper left corner of the circle
+	 */
+	public void moveTerrain(int i, double x, double y){
+		ownTerrain();
+		Terrain terrain = terrainList.get(i);
+		terrainIndex.remove(terrain);
+		if (terrainRaster != null) terrainRaster.update(terrain);
+		terrain.resetPos(x, y);
+		terrainIndex.add(terrain);
+		if (terrainRaster != null) terrainRaster.update(terrain);
+		pathCostCache.terrainMoved(i);
+		terrainVersion++;
+	}
+	
+	/**
+	 * Removes a terrain patch
+	 * @param i	Index of the terrain in the terrain list
+	 */
+	public void removeTerrain(int i){
+		ownTerrain();
+		Terrain terrain = terrainList.remove(i);
+		terrainIndex.remove(terrain);
+		if (terrainRaster != null) terrainRaster.update(terrain);
+		pathCostCache.rebuild(); //later patches moved down the list
+		terrainVersion++;
+	}
+
+	/**
+	 * Adds food to the world (amount set by the config's foodRefillAmount)
+	 */
+	public void foodDrop(){
+		if (recorder != null) recorder.foodDropped();
+		for (int i = 0; i < config.getFoodRefillAmount(); i++){
+			addFood();
+		}
+	}
+
+	/**
+	 * Called by a vehicle when it runs out of energy
+	 * @param vehicle	The vehicle that died
+	 */
+	void vehicleDied(Vehicle vehicle){
+		deadVehicleCount++; //increment the count of dead vehicles
+		if (recorder != null) recorder.vehicleDied(vehicles.getSerial(vehicle.getIndex()));
+		deaths.add(tick, vehicle.getVehicleType());
+		if (metrics != null) metrics.count(SimMetrics.DEATHS);
+		if (listener != null) listener.vehicleDied(vehicle);
+
+		//if set to automatically add a new vehicle upon death, add one
+		if (config.isAddNewVehicles()){
+			generateNewVehicle(vehicle.getVehicleType(), vehicle.getVehicleSize());
+		}
+
+		if (allDead() && listener != null){
+			listener.allDead();
+		}
+	}
+
+	/**
+	 * Test whether all vehicles have died
+	 * @return True if all vehicles have died
+	 */
+	public boolean allDead(){
+		return deadVehicleCount == vehicles.getCount();
+	}
+
+	/**
+	 * Removes all vehicles, food and terrain, and restarts the clock
+	 */
+	public void clear(){
+		tick = 0;
+		ticksSinceFoodDrop = 0;
+		vehicles.clear();
+		terrainList.clear();
+		if (terrainShared){ //leave the shared index and raster to the fork, rather than copying them only to empty them
+			terrainIndex = new TerrainIndex(config.getWidth(), config.getHeight());
+			if (terrainRaster != null){
+				terrainRaster = new TerrainRaster(config.getWidth(), config.getHeight(), terrainRaster.getCellSize(), terrainIndex);
+			}
+			terrainShared = false;
+		}
+		else {
+			terrainIndex.clear();
+			if (terrainRaster != null) terrainRaster.clear();
+		}
+		pathCostCache.clear();
+		terrainVersion++;
+		eatenFood.clear();
+		food.clear();
+		deadVehicleCount = 0;
+		deaths.clear();
+	}
+
+	/**
+	 * Makes this world a copy of another one as far as drawing it needs (see VehicleStore.copyForDrawing()), for
+	 * a viewer to draw while the other world keeps running. The terrain is copied only when it changed, and the
+	 * terrain index, raster and path cost cache are left alone, so the copy must not be ticked or edited.
+	 * @param source	A world with the same settings
+	 */
+	public void copyForDrawing(World source){
+		tick = source.tick;
+		deadVehicleCount = source.deadVehicleCount;
+		deaths.copyFrom(source.deaths);
+		vehicles.copyForDrawing(source.vehicles);
+		food.copyFrom(source.food);
+		eatenFood.copyFrom(source.eatenFood);
+		if (terrainVersion != source.terrainVersion){
+			terrainList.clear();
+			for (int i = 0; i < source.terrainList.size(); i++){
+				terrainList.add(source.terrainList.get(i).copy());
+			}
+			terrainVersion = source.terrainVersion;
+		}
+	}
+
+	/**
+	 * Writes the state of the world, everything but its settings, so that a world read back ticks on exactly as
+	 * this one would (see WorldFile). The terrain index, raster and path cost cache are not written, as they are
+	 * worked out again from the terrain and food.
+	 * @param out	Where to write
+	 */
+	void write(BinaryOutput out) throws IOException {
+		out.writeLong(seed);
+		out.writeLong(tick);
+		out.writeLong(ticksSinceFoodDrop);
+		out.writeInt(deadVehicleCount);
+		out.writeInt(nextTerrainId);
+		out.writeLong(terrainRandom.getState());
+		out.writeLong(foodRandom.getState());
+		out.writeLong(spawnRandom.getState());
+		out.writeLong(orientRandom.getState());
+		out.writeInt(terrainList.size());
+		for (int i = 0; i < terrainList.size(); i++){
+			Terrain terrain = terrainList.get(i);
+			out.writeInt(terrain.getId());
+			out.writeDouble(terrain.getCircle().getX());
+			out.writeDouble(terrain.getCircle().getY());
+			out.writeDouble(terrain.getRadius());
+			out.writeInt(terrain.getTerrainType());
+			out.writeInt(terrain.getTerrainCost());
+		}
+		food.write(out);
+		vehicles.write(out);
+		eatenFood.write(out);
+		deaths.write(out);
+	}
+
+	/**
+	 * Replaces the state of the world with what write() wrote; the settings must already match those it was written with
+	 * @param in	Where to read from
+	 * @param version	Version of the world file
+	 */
+	void read(BinaryInput in, int version) throws IOException {
+		clear();
+		seed = in.readLong();
+		tick = in.readLong();
+		ticksSinceFoodDrop = in.readLong();
+		deadVehicleCount = in.readInt();
+		nextTerrainId = in.readInt();
+		terrainRandom.setState(in.readLong());
+		foodRandom.setState(in.readLong());
+		spawnRandom.setState(in.readLong());
+		orientRandom.setState(in.readLong());
+		int terrains = in.readLength(in.getRemaining());
+		for (int i = 0; i < terrains; i++){
+			int id = in.readInt();
+			double x = in.readDouble();
+			double y = in.readDouble();
+			double radius = in.readDouble();
+			int terrainType = in.readInt();
+			int terrainCost = in.readInt();
+			if (terrainType < 0 || terrainType > 2) throw new IOException("Bad terrain type " + terrainType);
+			Terrain terrain = new Terrain(x, y, radius, terrainType, terrainCost);
+			terrain.setId(id);
+			terrainList.add(terrain);
+			terrainIndex.add(terrain);
+			if (terrainRaster != null) terrainRaster.update(terrain);
+		}
+		food.read(in);
+		vehicles.read(in, version);
+		eatenFood.read(in);
+		deaths.read(in);
+		pathCostCache.rebuild();
+		terrainVersion++;
+	}
+
+	/**
+	 * @param i	Index of a vehicle, 0 to getVehicleCount()-1
+	 * @return	The vehicle
+	 */
+	public Vehicle getVehicle(int i) {
+		return vehicles.getHandle(this, i);
+	}
+	public int getVehicleCount() {
+		return vehicles.getCount();
+	}
+	public VehicleStore getVehicles() {
+		return vehicles;
+	}
+	public FoodStore getFood() {
+		return food;
+	}
+	/**
+	 * @return	The terrain patches, in the order they were added. Use addTerrain(), moveTerrain() and removeTerrain()
+	 * to change them, so that the terrain index and path cost cache stay current.
+	 */
+	public List<Terrain> getTerrainList() {
+		return terrainList;
+	}
+	/**
+	 * @param id	Id of a terrain patch
+	 * @return	Index of the patch in the terrain list; -1 if it has been removed
+	 */
+	public int indexOfTerrain(int id) {
+		for (int i = 0; i < terrainList.size(); i++){
+			if (terrainList.get(i).getId() == id) return i;
+		}
+		return -1;
+	}
+	public TerrainIndex getTerrainIndex() {
+		return terrainIndex;
+	}
+	public PathCostCache getPathCostCache() {
+		return pathCostCache;
+	}
+	/**
+	 * @return	A number that changes whenever terrain is added, moved or removed, so that drawings of the terrain know to redraw
+	 */
+	public int getTerrainVersion() {
+		return terrainVersion;
+	}
+	/**
+	 * @return	Where per-step terrain costs are looked up: the raster if the config sets a raster cell size, otherwise the exact index
+	 */
+	public TerrainLookup getTerrainLookup() {
+		return terrainRaster != null ? terrainRaster : terrainIndex;
+	}
+	public EatenFoodHistory getEatenFood() {
+		return eatenFood;
+	}
+
+	/**
+	 * @return	Deaths of each type since the world was last cleared, including vehicles since removed
+	 */
+	public DeathHistogram getDeaths() {
+		return deaths;
+	}
+	public int getDeadVehicleCount() {
+		return deadVehicleCount;
+	}
+
+	public void setDeadVehicleCount(int deadVehicleCount) {
+		this.deadVehicleCount = deadVehicleCount;
+	}
+
+	public WorldConfig getConfig() {
+		return config;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @return	Number of threads the advance phase runs on
+	 */
+	public int getParallelism() {
+		return pool == null ? 1 : pool.getParallelism();
+	}
+
+	/**
+	 * Sets how many threads the advance phase runs on
+	 * @param threads	Number of threads; 1 to advance vehicles on the ticking thread
+	 */
+	public void setParallelism(int threads) {
+		if (threads == getParallelism()) return;
+		if (pool != null) pool.shutdown();
+		pool = threads > 1 ? new ForkJoinPool(threads) : null;
+	}
+
+	public SimMetrics getMetrics() {
+		return metrics;
+	}
+	/**
+	 * @param metrics	Receives the time spent in each phase of each tick and counts of what happened; null to not measure
+	 */
+	public void setMetrics(SimMetrics metrics) {
+		this.metrics = metrics;
+	}
+	public TrajectoryRecorder getRecorder() {
+		return recorder;
+	}
+	/**
+	 * @param recorder	Records a frame every few ticks and everything that happens; null to not record
+	 */
+	public void setRecorder(TrajectoryRecorder recorder) {
+		this.recorder = recorder;
+	}
+	public TelemetryRecorder getTelemetry() {
+		return telemetry;
+	}
+	/**
+	 * @param telemetry	Samples the vehicles and populations every few ticks; null to not sample
+	 */
+	public void setTelemetry(TelemetryRecorder telemetry) {
+		this.telemetry = telemetry;
+	}
+	public void setListener(WorldListener listener) {
+		this.listener = listener;
+	}
+
+}
@@ -0,0 +1,18 @@
+package thesis;
+
+/**
+ *
+ * An edit to a World, such as adding, moving or deleting something, sent from the GUI to whichever thread
+ * owns the world (see CommandQueue). Commands are applied between ticks, so they should name vehicles, food
+ * and terrain by serial or id rather than by index, and do nothing if the thing is gone by then.
+ *
+ */
+public interface WorldCommand {
+
+	/**
+	 * Makes the edit
+	 * @param world	The world to edit, between ticks
+	 */
+	void apply(World world);
+
+}
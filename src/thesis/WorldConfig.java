@@ -0,0 +1,211 @@
+package thesis;
+
+/**
+ *
+ * Tunable settings of one World. Each world has its own copy, so worlds with different
+ * settings can run side by side (e.g. in a SweepRunner).
+ *
+ */
+public class WorldConfig {
+
+	private int width = Simulator.WINDOW_WIDTH; //Width of the world
+	private int height = Simulator.WINDOW_HEIGHT; //Height of the world
+	private double speed = 0.05; //Default speed - relative to how far (pixels) a vehicle moves per step
+	private int initialEnergy = 50; //Amount of energy a vehicle starts with (0-100)
+	private int[] terrainCosts = {10, 15, 20}; //Cost of crossing each terrain type: 0-green, 1-yellow, 2-red
+	private double wheelNormalizer = 750; //Sensor readings are divided by this to get wheel speeds
+	private int minFoodValue = 5; //Min value of food
+	private int maxFoodValue = 10; //Maximum value of food (exclusive)
+	private int vehicleSize = 35; //Relative size of vehicles that are respawned or added without a size
+	private boolean addNewVehicles = true; //Whether to add a new vehicle when one dies
+	private int foodRefillAmount = 0; //Number of pieces of each food type added by a food drop
+	private int foodRefillInterval = 0; //Number of ticks between food drops; 0 for none
+	private int trailCapacity = 1000; //Maximum number of points kept of each vehicle's path
+	private double trailMinDistance = 1; //Minimum distance in pixels between kept path points
+	private int eatenFoodHistory = 10000; //Number of eaten pieces of food remembered for drawing
+	private int terrainRasterCellSize = 0; //Cell size in pixels of the terrain cost raster; 0 to test the terrain circles exactly
+
+	/**
+	 * @return	A copy of this configuration
+	 */
+	public WorldConfig copy(){
+		WorldConfig copy = new WorldConfig();
+		copy.width = width;
+		copy.height = height;
+		copy.speed = speed;
+		copy.initialEnergy = initialEnergy;
+		copy.terrainCosts = terrainCosts.clone();
+		copy.wheelNormalizer = wheelNormalizer;
+		copy.minFoodValue = minFoodValue;
+		copy.maxFoodValue = maxFoodValue;
+		copy.vehicleSize = vehicleSize;
+		copy.addNewVehicles = addNewVehicles;
+		copy.foodRefillAmount = foodRefillAmount;
+		copy.foodRefillInterval = foodRefillInterval;
+		copy.trailCapacity = trailCapacity;
+		copy.trailMinDistance = trailMinDistance;
+		copy.eatenFoodHistory = eatenFoodHistory;
+		copy.terrainRasterCellSize = terrainRasterCellSize;
+		return copy;
+	}
+
+	/**
+	 * @param terrainType	0-green, 1-yellow, 2-red
+	 * @return	Cost of crossing that type of terrain
+	 */
+	public int getTerrainCost(int terrainType){
+		return terrainCosts[terrainType];
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public void setWidth(int width) {
+		this.width = width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public void setHeight(int height) {
+		this.height = height;
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+
+	public int getInitialEnergy() {
+		return initialEnergy;
+	}
+
+	public void setInitialEnergy(int initialEnergy) {
+		this.initialEnergy = initialEnergy;
+	}
+
+	public int[] getTerrainCosts() {
+		return terrainCosts;
+	}
+
+	/**
+	 * @param terrainCosts	Cost of each terrain type: 0-green, 1-yellow, 2-red
+	 */
+	public void setTerrainCosts(int[] terrainCosts) {
+		if (terrainCosts.length != this.terrainCosts.length)
+			throw new IllegalArgumentException("Expected " + this.terrainCosts.length + " terrain costs, got " + terrainCosts.length);
+		this.terrainCosts = terrainCosts.clone();
+	}
+
+	public double getWheelNormalizer() {
+		return wheelNormalizer;
+	}
+
+	public void setWheelNormalizer(double wheelNormalizer) {
+		this.wheelNormalizer = wheelNormalizer;
+	}
+
+	public int getMinFoodValue() {
+		return minFoodValue;
+	}
+
+	public void setMinFoodValue(int minFoodValue) {
+		this.minFoodValue = minFoodValue;
+	}
+
+	public int getMaxFoodValue() {
+		return maxFoodValue;
+	}
+
+	public void setMaxFoodValue(int maxFoodValue) {
+		this.maxFoodValue = maxFoodValue;
+	}
+
+	public int getVehicleSize() {
+		return vehicleSize;
+	}
+
+	public void setVehicleSize(int vehicleSize) {
+		this.vehicleSize = vehicleSize;
+	}
+
+	public boolean isAddNewVehicles() {
+		return addNewVehicles;
+	}
+
+	public void setAddNewVehicles(boolean addNewVehicles) {
+		this.addNewVehicles = addNewVehicles;
+	}
+
+	public int getFoodRefillAmount() {
+		return foodRefillAmount;
+	}
+
+	public void setFoodRefillAmount(int foodRefillAmount) {
+		this.foodRefillAmount = foodRefillAmount;
+	}
+
+	public int getFoodRefillInterval() {
+		return foodRefillInterval;
+	}
+
+	/**
+	 * @param foodRefillInterval	Number of ticks between food drops; 0 for none
+	 */
+	public void setFoodRefillInterval(int foodRefillInterval) {
+		this.foodRefillInterval = foodRefillInterval;
+	}
+
+	public int getTrailCapacity() {
+		return trailCapacity;
+	}
+
+	/**
+	 * @param trailCapacity	Maximum number of points kept of each vehicle's path; older points are dropped
+	 */
+	public void setTrailCapacity(int trailCapacity) {
+		this.trailCapacity = trailCapacity;
+	}
+
+	public double getTrailMinDistance() {
+		return trailMinDistance;
+	}
+
+	/**
+	 * @param trailMinDistance	Minimum distance in pixels between kept path points; closer points are skipped
+	 */
+	public void setTrailMinDistance(double trailMinDistance) {
+		this.trailMinDistance = trailMinDistance;
+	}
+
+	public int getEatenFoodHistory() {
+		return eatenFoodHistory;
+	}
+
+	/**
+	 * Takes effect for worlds created after it is set.
+	 * @param eatenFoodHistory	Number of eaten pieces of food remembered for drawing; older ones are forgotten but still counted
+	 */
+	public void setEatenFoodHistory(int eatenFoodHistory) {
+		this.eatenFoodHistory = eatenFoodHistory;
+	}
+
+	public int getTerrainRasterCellSize() {
+		return terrainRasterCellSize;
+	}
+
+	/**
+	 * Takes effect for worlds created after it is set.
+	 * @param terrainRasterCellSize	Cell size in pixels of the terrain cost raster; 0 to test the terrain circles exactly.
+	 * With a raster, a point's cost may be that of a neighbouring point up to cellSize*sqrt(2)/2 pixels away (see TerrainRaster).
+	 */
+	public void setTerrainRasterCellSize(int terrainRasterCellSize) {
+		this.terrainRasterCellSize = terrainRasterCellSize;
+	}
+
+}
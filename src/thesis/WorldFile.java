@@ -0,0 +1,215 @@
+package thesis;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * Saves a whole world to a compact binary file and loads it back: its settings, terrain, food, vehicles with their
+ * energy, orientation, targets, plans and paths, the eaten food and deaths, the states of its random streams and
+ * its clock. A loaded world ticks on exactly as the saved one would have.
+ *
+ * The file is little-endian: MAGIC, VERSION, the settings, then the state as World.write() lays it out (columns
+ * of primitive values, one per field of the stores), then MAGIC again to check the file was not cut short. Files
+ * are written by streaming through a small buffer, and read from a memory-mapped view of the file, so the columns
+ * are copied straight into the stores' arrays. Caches that can be worked out from the rest (the terrain index and
+ * raster, and the terrain costs of paths to food) are not saved.
+ *
+ * Files of a later version than VERSION are refused; when the format changes, VERSION goes up and readConfig()
+ * and the stores' read methods keep reading the versions before it. Version 2 added each vehicle's distance
+ * traveled, cost paid and food eaten, which start at 0 when a version 1 file is loaded.
+ *
+ */
+public class WorldFile {
+
+	/**
+	 * First (and last) four bytes of a world file: "WRLD"
+	 */
+	public final static int MAGIC = 0x444c5257;
+
+	/**
+	 * Version of the format written by save()
+	 */
+	public final static int VERSION = 2;
+
+	/**
+	 * Saves a world to a file, replacing the file if it exists
+	 * @param world	The world; must not be ticked or edited meanwhile
+	 * @param file	File to write
+	 */
+	public static void save(World world, File file) throws IOException {
+		save(world, FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	/**
+	 * Saves a world to a channel, and closes it
+	 * @param world	The world; must not be ticked or edited meanwhile
+	 * @param channel	Where to write
+	 */
+	public static void save(World world, WritableByteChannel channel) throws IOException {
+		BinaryOutput out = new BinaryOutput(channel);
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeConfig(world.getConfig(), out);
+			world.write(out);
+			out.writeInt(MAGIC);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads a world from a file
+	 * @param file	File written by save()
+	 * @return	A new world, as it was when saved
+	 */
+	public static World load(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			BinaryInput in = open(channel);
+			int version = readVersion(in);
+			World world = new World(readConfig(in), 0);
+			world.read(in, version);
+			close(in);
+			return world;
+		} catch (RuntimeException e) {
+			throw new IOException("World file is corrupt", e);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Loads a world from a file into an existing world, e.g. the one shown by the simulator. Settings are copied
+	 * from the file, except those fixed when the world was made, which must match.
+	 * @param file	File written by save()
+	 * @param world	The world to replace the state of; must not be ticked or edited meanwhile
+	 */
+	public static void load(File file, World world) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			BinaryInput in = open(channel);
+			int version = readVersion(in);
+			WorldConfig config = readConfig(in);
+			WorldConfig current = world.getConfig();
+			if (config.getWidth() != current.getWidth() || config.getHeight() != current.getHeight()
+					|| config.getEatenFoodHistory() != current.getEatenFoodHistory()
+					|| config.getTerrainRasterCellSize() != current.getTerrainRasterCellSize()){
+				throw new IOException("World in " + file + " is " + config.getWidth() + "x" + config.getHeight()
+						+ ", not " + current.getWidth() + "x" + current.getHeight() + " with the same eaten food history and terrain raster");
+			}
+			//read the state before changing the settings, so a bad file leaves them alone; the world is left empty
+			try {
+				world.read(in, version);
+				close(in);
+			} catch (IOException e) {
+				world.clear();
+				throw e;
+			} catch (RuntimeException e) {
+				world.clear();
+				throw new IOException("World file is corrupt", e);
+			}
+			current.setSpeed(config.getSpeed());
+			current.setInitialEnergy(config.getInitialEnergy());
+			current.setTerrainCosts(config.getTerrainCosts());
+			current.setWheelNormalizer(config.getWheelNormalizer());
+			current.setMinFoodValue(config.getMinFoodValue());
+			current.setMaxFoodValue(config.getMaxFoodValue());
+			current.setVehicleSize(config.getVehicleSize());
+			current.setAddNewVehicles(config.isAddNewVehicles());
+			current.setFoodRefillAmount(config.getFoodRefillAmount());
+			current.setFoodRefillInterval(config.getFoodRefillInterval());
+			current.setTrailCapacity(config.getTrailCapacity());
+			current.setTrailMinDistance(config.getTrailMinDistance());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Maps a file and checks that it is a world file
+	 * @return	Input positioned at the version
+	 */
+	private static BinaryInput open(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) throw new IOException("World file of " + size + " bytes is too large to map");
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		BinaryInput in = new BinaryInput(buffer);
+		if (size < 8 || in.readInt() != MAGIC) throw new IOException("Not a world file");
+		return in;
+	}
+
+	/**
+	 * @return	Version of the file, one that can be read
+	 */
+	private static int readVersion(BinaryInput in) throws IOException {
+		int version = in.readInt();
+		if (version < 1 || version > VERSION) throw new IOException("World file version " + version + " is not supported (up to " + VERSION + ")");
+		return version;
+	}
+
+	/**
+	 * Checks that a file ends where it should
+	 */
+	private static void close(BinaryInput in) throws IOException {
+		if (in.readInt() != MAGIC || in.getRemaining() != 0) throw new IOException("World file is corrupt");
+	}
+
+	/**
+	 * Writes every setting of a world
+	 */
+	static void writeConfig(WorldConfig config, BinaryOutput out) throws IOException {
+		out.writeInt(config.getWidth());
+		out.writeInt(config.getHeight());
+		out.writeDouble(config.getSpeed());
+		out.writeInt(config.getInitialEnergy());
+		int[] terrainCosts = config.getTerrainCosts();
+		out.writeInt(terrainCosts.length);
+		out.writeInts(terrainCosts, terrainCosts.length);
+		out.writeDouble(config.getWheelNormalizer());
+		out.writeInt(config.getMinFoodValue());
+		out.writeInt(config.getMaxFoodValue());
+		out.writeInt(config.getVehicleSize());
+		out.writeBoolean(config.isAddNewVehicles());
+		out.writeInt(config.getFoodRefillAmount());
+		out.writeInt(config.getFoodRefillInterval());
+		out.writeInt(config.getTrailCapacity());
+		out.writeDouble(config.getTrailMinDistance());
+		out.writeInt(config.getEatenFoodHistory());
+		out.writeInt(config.getTerrainRasterCellSize());
+	}
+
+	/**
+	 * Reads settings written by writeConfig()
+	 */
+	static WorldConfig readConfig(BinaryInput in) throws IOException {
+		WorldConfig config = new WorldConfig();
+		config.setWidth(in.readInt());
+		config.setHeight(in.readInt());
+		if (config.getWidth() <= 0 || config.getHeight() <= 0) throw new IOException("Bad world size " + config.getWidth() + "x" + config.getHeight());
+		config.setSpeed(in.readDouble());
+		config.setInitialEnergy(in.readInt());
+		int[] terrainCosts = new int[in.readLength(in.getRemaining())];
+		in.readInts(terrainCosts, terrainCosts.length);
+		config.setTerrainCosts(terrainCosts);
+		config.setWheelNormalizer(in.readDouble());
+		config.setMinFoodValue(in.readInt());
+		config.setMaxFoodValue(in.readInt());
+		config.setVehicleSize(in.readInt());
+		config.setAddNewVehicles(in.readBoolean());
+		config.setFoodRefillAmount(in.readInt());
+		config.setFoodRefillInterval(in.readInt());
+		config.setTrailCapacity(in.readInt());
+		config.setTrailMinDistance(in.readDouble());
+		config.setEatenFoodHistory(in.readInt());
+		config.setTerrainRasterCellSize(in.readInt());
+		return config;
+	}
+
+}
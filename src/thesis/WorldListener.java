@@ -0,0 +1,22 @@
+package thesis;
+
+/**
+ *
+ * Receives notifications about events in a World, e.g. so the GUI can update the cemetery.
+ * Called on whichever thread is ticking the world.
+ *
+ */
+public interface WorldListener {
+
+	/**
+	 * Called when a vehicle runs out of energy
+	 * @param vehicle	The vehicle that died
+	 */
+	void vehicleDied(Vehicle vehicle);
+
+	/**
+	 * Called when the last living vehicle has died
+	 */
+	void allDead();
+
+}
@@ -0,0 +1,84 @@
+package thesis;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * Hands copies of a running world from the thread that ticks it to the thread that draws it, without locks
+ * and without either thread waiting for the other. There are three copies: the one being written, the one
+ * being drawn, and the latest finished one in between, which the two threads swap theirs with atomically
+ * (triple buffering). The drawing thread always gets a whole tick, never a half-written one, and the
+ * ticking thread only copies again once the last copy it handed over was taken, so however many ticks it
+ * runs per frame it copies the world about once per frame.
+ *
+ * Only one thread may call publish() at a time, and only one thread may call getLatest().
+ *
+ */
+public class WorldSnapshots {
+
+	private final AtomicReference<Snapshot> shared; //Latest finished copy, or one already taken
+	private Snapshot back; //Copy written by the ticking thread
+	private Snapshot front; //Copy drawn by the drawing thread
+
+	/**
+	 * A copy of the world, with whether it has been handed over since it was written
+	 */
+	private static class Snapshot {
+		final World world;
+		volatile boolean fresh = false;
+
+		Snapshot(WorldConfig config){
+			world = new World(config, 0);
+		}
+	}
+
+	/**
+	 * Constructor
+	 * @param config	Settings of the world to be copied
+	 */
+	public WorldSnapshots(WorldConfig config){
+		shared = new AtomicReference<Snapshot>(new Snapshot(config));
+		back = new Snapshot(config);
+		front = new Snapshot(config);
+	}
+
+	/**
+	 * For the ticking thread
+	 * @return	Whether the drawing thread has taken the last copy published, so a new one is wanted
+	 */
+	public boolean isWanted(){
+		return !shared.get().fresh;
+	}
+
+	/**
+	 * For the ticking thread: copies the world and makes the copy the latest one
+	 * @param world	The world, between ticks
+	 */
+	public void publish(World world){
+		back.world.copyForDrawing(world);
+		back.fresh = true;
+		back = shared.getAndSet(back);
+	}
+
+	/**
+	 * For the drawing thread: takes the latest copy if there is a new one. The copy returned stays unchanged
+	 * until the next call.
+	 * @return	The latest copy of the world
+	 */
+	public World getLatest(){
+		if (shared.get().fresh){
+			front.fresh = false;
+			front = shared.getAndSet(front);
+		}
+		return front.world;
+	}
+
+	/**
+	 * For the drawing thread
+	 * @return	Whether a copy newer than the one last returned by getLatest() is waiting
+	 */
+	public boolean hasNew(){
+		return shared.get().fresh;
+	}
+
+}